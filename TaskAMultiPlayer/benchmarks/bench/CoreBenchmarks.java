@@ -0,0 +1,203 @@
+package bench;
+
+import core.Game;
+import core.GameCallback;
+import core.GameManager;
+import core.GameRound;
+import core.Player;
+import server.ResponseEncoder;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks of the hot operations of the game engine in {@code core}, run with {@link Microbenchmark}.
+ *
+ * <ul>
+ * <li>addGuess.* - whole rounds of 3 players played through their {@link GameManager}s, where every player
+ * wins with the first guess, loses after all their attempts or forfeits. An operation is one guess, and
+ * the round is started in the operation as well, see startNextRound for what that costs</li>
+ * <li>round.checks.* - whether a player has won, lost, forfeited or plays the round, in rounds of
+ * 6 and 512 players. An operation checks one player</li>
+ * <li>game.startNextRound - ending the round of a full game of {@link Game#MAX_PLAYERS} players and starting the next</li>
+ * <li>onRoundEnded.* - {@link GameCallback#onRoundEnded} for a round of 6 players, writing binary frames.
+ * The first player of a round writes the results, the others send what the first one wrote</li>
+ * </ul>
+ *
+ * <p>Usage: <pre>java -cp bin bench.CoreBenchmarks [filter] [iterations] [iteration ms]</pre>
+ * The process ends with status 1 if comparing with saved results (-Dbench.compare=file) finds regressions.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class CoreBenchmarks {
+
+	private static final String[] DIGITS = { "0", "1", "2", "3", "4", "5", "6", "7", "8", "9" };
+
+	private static final OutputStream NOWHERE = new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	};
+
+
+	public static void main(String[] args) throws Exception {
+		Microbenchmark benchmarks = new Microbenchmark("core")
+				.add("addGuess.win", () -> guesses(Outcome.WIN))
+				.add("addGuess.lose", () -> guesses(Outcome.LOSE))
+				.add("addGuess.forfeit", () -> guesses(Outcome.FORFEIT))
+				.add("round.checks.6", () -> checks(Game.MAX_PLAYERS))
+				.add("round.checks.512", () -> checks(512))
+				.add("game.startNextRound", CoreBenchmarks::startNextRound)
+				.add("onRoundEnded.firstPlayer", () -> roundEnded(true))
+				.add("onRoundEnded.otherPlayers", () -> roundEnded(false));
+
+		benchmarks.run(args);
+		if (benchmarks.getRegressions() > 0) {
+			System.exit(1);
+		}
+	}
+
+
+	enum Outcome {
+		WIN,
+		LOSE,
+		FORFEIT
+	}
+
+	/**
+	 * Plays a round where every player has the outcome
+	 */
+	private static Microbenchmark.Operation guesses(Outcome outcome) throws Exception {
+		Game game = new Game();
+		List<GameManager> managers = new ArrayList<>();
+		for (int p = 0; p < Game.MIN_PLAYERS; p++) {
+			GameManager manager = new GameManager(game);
+			manager.setCurrentPlayer(game.signUpPlayer("player" + p));
+			managers.add(manager);
+		}
+
+		return () -> {
+			managers.get(0).startNextRound();
+			int code = Integer.parseInt(game.getCurrentRound().getCode());
+
+			int guesses = 0;
+			for (GameManager manager : managers) {
+				switch (outcome) {
+					case WIN:
+						manager.addGuess(DIGITS[code]);
+						guesses++;
+						break;
+					case LOSE:
+						for (int a = 0; a < GameRound.MAX_ATTEMPTS; a++) {
+							manager.addGuess(DIGITS[(code + 1 + a) % 10]);
+							guesses++;
+						}
+						break;
+					default:
+						manager.addGuess("f");
+						guesses++;
+				}
+			}
+			Microbenchmark.consume(game.getCurrentRound().hasEnded() ? 1 : 0);
+			return guesses;
+		};
+	}
+
+	/**
+	 * A round where the players have won, lost, forfeited or are still playing, in turn
+	 */
+	private static Microbenchmark.Operation checks(int size) throws Exception {
+		Game game = new Game();
+		game.setMaxPlayers(size);
+		for (int p = 0; p < size; p++) {
+			game.signUpPlayer("player" + p);
+		}
+		GameRound round = game.startNextRound("5");
+		List<Player> players = new ArrayList<>(game.getPlayers());
+		for (int p = 0; p < size; p++) {
+			switch (p % 4) {
+				case 0:
+					round.addGuess(players.get(p), "5");
+					break;
+				case 1:
+					round.addLoser(players.get(p));
+					break;
+				case 2:
+					round.forfeit(players.get(p));
+					break;
+				default:
+			}
+		}
+
+		// players from the start, the middle and the end of the round
+		Player[] checked = { players.get(0), players.get(size / 2 + 1), players.get(size - 2), players.get(size - 1) };
+		int[] next = { 0 };
+		return () -> {
+			Player player = checked[next[0]++ & 3];
+			int found = 0;
+			if (round.hasPlayer(player)) found++;
+			if (round.hasWinner(player)) found++;
+			if (round.hasLoser(player)) found++;
+			if (round.hasForfeited(player)) found++;
+			Microbenchmark.consume(found + round.getActivePlayers());
+			return 1;
+		};
+	}
+
+	private static Microbenchmark.Operation startNextRound() throws Exception {
+		Game game = new Game();
+		for (int p = 0; p < Game.MAX_PLAYERS; p++) {
+			game.signUpPlayer("player" + p);
+		}
+		game.startNextRound();
+
+		return () -> {
+			game.getCurrentRound().end();
+			Microbenchmark.consume(game.startNextRound());
+			return 1;
+		};
+	}
+
+	/**
+	 * @param first a new round every time, so its results are written again
+	 */
+	private static Microbenchmark.Operation roundEnded(boolean first) throws Exception {
+		Game game = new Game();
+		List<Player> players = new ArrayList<>();
+		for (int p = 0; p < Game.MAX_PLAYERS; p++) {
+			players.add(game.signUpPlayer("player" + p));
+		}
+		GameCallback callback = new GameCallback(new ResponseEncoder(NOWHERE));
+		GameRound[] round = { endedRound(players) };
+
+		return () -> {
+			if (first) {
+				round[0] = endedRound(players);
+			}
+			callback.onRoundEnded(game, round[0]);
+			return 1;
+		};
+	}
+
+	/**
+	 * A round of the players where two have won with a few guesses, one has forfeited and the others lost
+	 */
+	private static GameRound endedRound(List<Player> players) {
+		GameRound round = new GameRound("5");
+		for (Player player : players) {
+			round.addPlayer(player);
+		}
+		round.addGuess(players.get(0), "3");
+		round.addGuess(players.get(0), "5");
+		round.addGuess(players.get(1), "5");
+		round.forfeit(players.get(2));
+		round.end();
+		return round;
+	}
+}
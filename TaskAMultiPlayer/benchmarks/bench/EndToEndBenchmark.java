@@ -0,0 +1,482 @@
+package bench;
+
+import core.Game;
+import core.GameCallbackLogger;
+import core.GameRound;
+import server.ISessionExecutor;
+import server.Lobby;
+import server.MultiPlayerServer;
+import server.NioServerEngine;
+import server.Protocol;
+import server.Response;
+import server.ResponseDecoder;
+import server.RoomRegistry;
+import server.ServerCallback;
+import server.ServerMetrics;
+import server.ServerProcess;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Runs the multiplayer server in this process on the loopback address and plays scripted players
+ * against it, so changes to the server can be compared with a baseline.
+ *
+ * <p>The server is set up like {@link MultiPlayerServer#main(String[])}, from the same system properties
+ * (eg. -Dguessing.roundSize, -Dguessing.outboundQueue) and with its metrics, except that its logs and console
+ * lines are not written anywhere, the metrics are not registered with JMX and the lobby waits a second
+ * at most (see {@link #LOBBY_WAIT_MILLIS}).
+ * Every player has a connection and a thread of its own, guesses by halving the numbers the hints leave
+ * and plays its rounds. The time from sending a guess to the first response after it is recorded for
+ * every guess. When every player has played, the run ends and the heap is measured while the connections
+ * are still open, then the players quit.
+ *
+ * <p>The results are printed as JSON: rounds per second, the percentiles and histogram of the guess
+ * latencies, the CPU time of the server (the process minus the players' threads) and the heap per
+ * connection. The clients run in the same process, so the heap includes both ends of every connection.
+ * With -Dbench.json=file the JSON is saved as well.
+ *
+ * <p>Usage: <pre>java -cp bin bench.EndToEndBenchmark [players] [rounds] [protocol] [think ms] [mode] [I/O threads]</pre>
+ * The protocol is binary or serialized, the mode thread, virtual or nio as for the server.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class EndToEndBenchmark {
+
+	public static final int DEFAULT_PLAYERS = 60;
+	public static final int DEFAULT_ROUNDS = 20;
+
+	public static final String JSON_PROPERTY = "bench.json";
+
+	/**
+	 * How long the lobby waits before it starts a round with fewer players. Players come back
+	 * from their rounds at different times, so the last few of a run may not make a full round,
+	 * and would wait for the server's {@link ServerProcess#WAITING_TIME_SECONDS} otherwise
+	 */
+	public static final long LOBBY_WAIT_MILLIS = 1000;
+
+	/**
+	 * How long a player waits for the server before giving up
+	 */
+	public static final int TIMEOUT_MILLIS = 60 * 1000;
+
+	private static final OutputStream NOWHERE = new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	};
+
+
+	public static void main(String[] args) throws Exception {
+		int players = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PLAYERS;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+		boolean binary = args.length <= 2 || ! args[2].trim().equalsIgnoreCase("serialized");
+		long think = args.length > 3 ? Long.parseLong(args[3]) : 0;
+		String[] serverArgs = Arrays.copyOfRange(args, Math.min(4, args.length), args.length);
+		MultiPlayerServer.ConnectionMode mode = MultiPlayerServer.getConnectionMode(serverArgs);
+
+		// the server, set up like MultiPlayerServer.main() does
+		int roundSize = MultiPlayerServer.getRoundSize();
+		int retainedRounds = MultiPlayerServer.getRetainedRounds();
+		int resetInterval = MultiPlayerServer.getResetInterval();
+		RoomRegistry rooms = new RoomRegistry(() -> {
+			Game game = new Game();
+			game.setRetention(retainedRounds, null);
+			game.setMaxPlayers(Math.max(Game.MAX_PLAYERS, roundSize));
+			return game;
+		});
+		Lobby lobby = new Lobby(rooms, roundSize, LOBBY_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+
+		// events are formatted as usual, but go nowhere, as do the lines the game prints
+		Logger logger = Logger.getAnonymousLogger();
+		logger.setUseParentHandlers(false);
+		PrintStream console = new PrintStream(NOWHERE);
+		PrintStream stdout = System.out;
+		System.setOut(console);
+		GameCallbackLogger gameCallbackLogger = new GameCallbackLogger(logger, console);
+
+		MultiPlayerServer server = new MultiPlayerServer(0, lobby, mode);
+		server.setBindAddress(InetAddress.getLoopbackAddress());
+		server.addServerCallback(new ServerCallback(logger, console));
+		ServerMetrics metrics = new ServerMetrics(lobby, server.getOutboundStats());
+		server.addServerCallback(metrics);
+		server.addGameCallback(metrics);
+
+		ISessionExecutor executor = null;
+		Thread acceptor;
+		int ioThreads = 0;
+		int capacity = MultiPlayerServer.getOutboundQueueCapacity();
+		if (capacity > 0) {
+			server.setOutboundQueue(capacity, MultiPlayerServer.getSlowClientPolicy());
+		}
+		if (mode == MultiPlayerServer.ConnectionMode.NIO) {
+			ioThreads = MultiPlayerServer.getIoThreads(serverArgs);
+			NioServerEngine engine = new NioServerEngine(server, lobby, server.getServerCallback(), gameCallbackLogger, ioThreads);
+			engine.setResetInterval(resetInterval);
+			engine.setOutboundQueue(capacity, MultiPlayerServer.getSlowClientPolicy(), server.getOutboundStats());
+			server.start(engine);
+			acceptor = new Thread(engine, "nio-acceptor");
+		}
+		else {
+			ISessionExecutor sessions = MultiPlayerServer.createSessionExecutor(mode);
+			server.start();
+			acceptor = new Thread(() -> {
+				try {
+					server.acceptClients(sessions, resetInterval, gameCallbackLogger, new ConcurrentHashMap<>());
+				}
+				catch (IOException e) {
+					// the server is closed
+				}
+			}, "acceptor");
+			executor = sessions;
+		}
+		acceptor.setDaemon(true);
+		acceptor.start();
+
+		InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getServerSocket().getLocalPort());
+		System.err.printf("%d players, %d rounds each, %s protocol, %s mode, rounds of %d players\n",
+				players, rounds, binary ? "binary" : "serialized", mode.toString().toLowerCase(), roundSize);
+
+		// the players
+		long baselineHeap = usedHeap();
+		CountDownLatch played = new CountDownLatch(players);
+		CountDownLatch quit = new CountDownLatch(1);
+		List<ScriptedPlayer> scripted = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+
+		com.sun.management.OperatingSystemMXBean os = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+		long startCpu = os.getProcessCpuTime();
+		long startGc = gcMillis();
+		long start = System.nanoTime();
+		for (int i = 0; i < players; i++) {
+			ScriptedPlayer player = new ScriptedPlayer("player" + i, address, binary, think, rounds, played, quit);
+			Thread thread = new Thread(null, player, player.name, 256 * 1024);
+			thread.start();
+			scripted.add(player);
+			threads.add(thread);
+		}
+
+		played.await();
+		long end = System.nanoTime();
+		long cpu = os.getProcessCpuTime() - startCpu;
+		long gc = gcMillis() - startGc;
+		long matches = lobby.getMatches();
+
+		// every connection is still open
+		long connectedHeap = usedHeap();
+		quit.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		server.close();
+		if (executor != null) {
+			executor.shutdown();
+		}
+
+		// results
+		long[] latencies = new long[0];
+		long clientCpu = 0;
+		int failed = 0;
+		int playerRounds = 0;
+		for (ScriptedPlayer player : scripted) {
+			int from = latencies.length;
+			latencies = Arrays.copyOf(latencies, from + player.guesses);
+			System.arraycopy(player.latencies, 0, latencies, from, player.guesses);
+			clientCpu += player.cpuNanos;
+			playerRounds += player.rounds;
+			if (player.error != null) {
+				failed++;
+				System.err.printf("%s: %s\n", player.name, player.error);
+			}
+		}
+		Arrays.sort(latencies);
+
+		double seconds = (end - start) / 1e9;
+		long serverCpu = Math.max(0, cpu - clientCpu);
+
+		StringBuilder json = new StringBuilder();
+		json.append("{\n");
+		json.append("  \"benchmark\": \"end-to-end\",\n");
+		json.append("  \"config\": {");
+		json.append(format("\"mode\": \"%s\", \"ioThreads\": %d, \"protocol\": \"%s\", \"players\": %d, \"roundsPerPlayer\": %d, ",
+				mode.toString().toLowerCase(), ioThreads, binary ? "binary" : "serialized", players, rounds));
+		json.append(format("\"thinkMillis\": %d, \"roundSize\": %d, \"lobbyWaitMillis\": %d, \"outboundQueue\": %d, \"slowClient\": \"%s\", \"resetInterval\": %d, ",
+				think, roundSize, LOBBY_WAIT_MILLIS, server.getOutboundCapacity(), MultiPlayerServer.getSlowClientPolicy().toString().toLowerCase(), resetInterval));
+		json.append(format("\"java\": \"%s\", \"processors\": %d},\n",
+				System.getProperty("java.version"), Runtime.getRuntime().availableProcessors()));
+		json.append(format("  \"seconds\": %.3f,\n", seconds));
+		json.append(format("  \"rounds\": %d,\n", matches));
+		json.append(format("  \"roundsPerSecond\": %.2f,\n", matches / seconds));
+		json.append(format("  \"playerRounds\": %d,\n", playerRounds));
+		json.append(format("  \"failedPlayers\": %d,\n", failed));
+		json.append("  \"guessLatencyMicros\": ").append(latencyJson(latencies)).append(",\n");
+		json.append(format("  \"cpuMillis\": {\"process\": %.1f, \"clients\": %.1f, \"server\": %.1f, \"serverPerRound\": %.3f},\n",
+				cpu / 1e6, clientCpu / 1e6, serverCpu / 1e6, matches > 0 ? serverCpu / 1e6 / matches : 0));
+		json.append(format("  \"gcMillis\": %d,\n", gc));
+		json.append(format("  \"heap\": {\"baselineBytes\": %d, \"connectedBytes\": %d, \"bytesPerConnection\": %d},\n",
+				baselineHeap, connectedHeap, players > 0 ? Math.max(0, connectedHeap - baselineHeap) / players : 0));
+		json.append(format("  \"lobby\": {\"averageWaitMillis\": %.2f, \"maxWaitMillis\": %.2f}\n",
+				lobby.getAverageTimeToMatchMillis(), lobby.getMaxTimeToMatchMillis()));
+		json.append("}\n");
+
+		System.setOut(stdout);
+		System.out.print(json);
+		String file = System.getProperty(JSON_PROPERTY);
+		if (file != null) {
+			try (PrintWriter out = new PrintWriter(new File(file), "UTF-8")) {
+				out.print(json);
+			}
+			System.err.printf("Results saved to %s\n", file);
+		}
+	}
+
+
+	private static String format(String format, Object... args) {
+		return String.format(Locale.ROOT, format, args);
+	}
+
+	/**
+	 * Percentiles and a histogram with buckets that double, from the shortest time to the longest
+	 *
+	 * @param sorted nanoseconds
+	 * @return
+	 */
+	private static String latencyJson(long[] sorted) {
+		if (sorted.length == 0) {
+			return "{\"count\": 0}";
+		}
+
+		long total = 0;
+		for (long latency : sorted) {
+			total += latency;
+		}
+
+		StringBuilder json = new StringBuilder();
+		json.append(format("{\"count\": %d, \"mean\": %.1f, \"p50\": %.1f, \"p90\": %.1f, \"p99\": %.1f, \"p999\": %.1f, \"max\": %.1f,\n",
+				sorted.length, total / 1e3 / sorted.length, percentile(sorted, 0.50) / 1e3, percentile(sorted, 0.90) / 1e3,
+				percentile(sorted, 0.99) / 1e3, percentile(sorted, 0.999) / 1e3, sorted[sorted.length - 1] / 1e3));
+		json.append("    \"histogram\": [");
+
+		// each bucket counts the times up to its bound, from the bucket of the shortest time
+		long bound = 1;
+		while (sorted[0] > bound * 1000) {
+			bound *= 2;
+		}
+		int i = 0;
+		boolean first = true;
+		while (i < sorted.length) {
+			int count = 0;
+			while (i < sorted.length && sorted[i] <= bound * 1000) {
+				count++;
+				i++;
+			}
+			json.append(first ? "" : ", ").append(format("{\"upToMicros\": %d, \"count\": %d}", bound, count));
+			first = false;
+			bound *= 2;
+		}
+		json.append("]}");
+		return json.toString();
+	}
+
+	/**
+	 * @param p from 0 to 1, 1 is the largest
+	 */
+	private static long percentile(long[] sorted, double p) {
+		return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+	}
+
+	/**
+	 * Heap in use once the garbage is collected
+	 */
+	private static long usedHeap() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	private static long gcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis += Math.max(0, collector.getCollectionTime());
+		}
+		return millis;
+	}
+
+
+	/**
+	 * One player with its own connection, that plays its rounds and then waits to quit
+	 */
+	static class ScriptedPlayer implements Runnable {
+
+		final String name;
+		private InetSocketAddress address;
+		private boolean binary;
+		private long think;
+		private int roundsToPlay;
+		private CountDownLatch played;
+		private CountDownLatch quit;
+
+		// results, read once the thread has ended
+		long[] latencies;
+		int guesses = 0;
+		int rounds = 0;
+		long cpuNanos;
+		Exception error;
+
+		// the numbers the code can still be
+		private int low;
+		private int high;
+		private boolean done = false;
+
+		ScriptedPlayer(String name, InetSocketAddress address, boolean binary, long think, int roundsToPlay,
+				CountDownLatch played, CountDownLatch quit) {
+			this.name = name;
+			this.address = address;
+			this.binary = binary;
+			this.think = think;
+			this.roundsToPlay = roundsToPlay;
+			this.played = played;
+			this.quit = quit;
+			this.latencies = new long[Math.max(1, roundsToPlay) * GameRound.MAX_ATTEMPTS];
+		}
+
+		@Override
+		public void run() {
+			try (Socket socket = new Socket()) {
+				socket.connect(address, TIMEOUT_MILLIS);
+				socket.setSoTimeout(TIMEOUT_MILLIS);
+
+				InputStream in = new BufferedInputStream(socket.getInputStream());
+				int version = Protocol.clientHello(in, socket.getOutputStream(),
+						binary ? Protocol.VERSION_BINARY : Protocol.VERSION_SERIALIZED);
+				ResponseDecoder decoder = version == Protocol.VERSION_BINARY ? new ResponseDecoder(in) : null;
+				ObjectInputStream objects = decoder == null ? new ObjectInputStream(in) : null;
+				PrintWriter writer = new PrintWriter(socket.getOutputStream(), true);
+
+				play(decoder, objects, writer);
+			}
+			catch (Exception e) {
+				error = e;
+			}
+			finally {
+				finish();
+			}
+		}
+
+		private void play(ResponseDecoder decoder, ObjectInputStream objects, PrintWriter writer) throws Exception {
+			long guessedAt = 0;
+
+			while (true) {
+				Response response = decoder != null ? decoder.read() : (Response) objects.readObject();
+				if (guessedAt != 0) {
+					latencies[guesses++] = System.nanoTime() - guessedAt;
+					guessedAt = 0;
+				}
+
+				String message = response.getMessage();
+				if (response.getType() == Response.PRINTMESSAGE) {
+					onMessage(message);
+					continue;
+				}
+				if (response.getType() == Response.QUIT) {
+					return;
+				}
+
+				String answer;
+				if (message.startsWith("Enter your name")) {
+					answer = name;
+				}
+				else if (message.startsWith("Enter your guess")) {
+					answer = Integer.toString(high < low ? low : (low + high) / 2);
+				}
+				else if (message.startsWith("Press (p)")) {
+					if (++rounds < roundsToPlay) {
+						answer = "p";
+					}
+					else {
+						finish();
+						quit.await();
+						answer = "q";
+					}
+				}
+				else {
+					throw new IOException("Unexpected prompt: " + message);
+				}
+
+				pause();
+				if (message.startsWith("Enter your guess")) {
+					guessedAt = System.nanoTime();
+				}
+				writer.println(answer);
+			}
+		}
+
+		/**
+		 * Follows the hints
+		 *
+		 * @param message
+		 */
+		private void onMessage(String message) {
+			if (message.startsWith("----------------ROUND STARTED")) {
+				low = 0;
+				high = 9;
+			}
+			else if (message.startsWith("Your guess ")) {
+				int guess = Integer.parseInt(message.substring("Your guess ".length(), message.indexOf(' ', "Your guess ".length())));
+				if (message.contains("bigger")) {
+					high = Math.min(high, guess - 1);
+				}
+				else if (message.contains("smaller")) {
+					low = Math.max(low, guess + 1);
+				}
+			}
+		}
+
+		/**
+		 * Counts the player as played, once
+		 */
+		private void finish() {
+			if ( ! done) {
+				done = true;
+				cpuNanos = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+				played.countDown();
+			}
+		}
+
+		/**
+		 * Waits for a random time from 0 to twice the think time
+		 */
+		private void pause() throws InterruptedException {
+			if (think > 0) {
+				TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(2 * think + 1));
+			}
+		}
+	}
+}
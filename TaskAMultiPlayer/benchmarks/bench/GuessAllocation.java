@@ -0,0 +1,226 @@
+package bench;
+
+import core.Game;
+import core.GameManager;
+import core.GameRound;
+import core.Player;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast guesses are added and how much memory they allocate.
+ *
+ * <ul>
+ * <li>LIST - guesses kept in a new {@code ArrayList<String>} every round, the way players kept them before</li>
+ * <li>PLAYER - guesses kept by {@link Player}, in an array reused every round</li>
+ * <li>GAME_MANAGER - whole rounds played through {@link GameManager#addGuess(String)}</li>
+ * </ul>
+ * Allocated bytes are read from the thread's allocation counter, so they include everything
+ * the guesses allocate, not just the storage.
+ *
+ * <p>Before measuring, a mass round of guesses that are not numbers is checked to read back
+ * exactly the guesses that were added.
+ *
+ * <p>Usage: <pre>java -cp bin bench.GuessAllocation [seconds]</pre>
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class GuessAllocation {
+
+	public static final int DEFAULT_SECONDS = 3;
+
+	private static final String[] DIGITS = { "0", "1", "2", "3", "4", "5", "6", "7", "8", "9" };
+
+	// keeps the JIT from removing the work
+	static long sink;
+
+
+	public static void main(String[] args) throws Exception {
+		int seconds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SECONDS;
+
+		checkOtherGuesses();
+
+		System.out.printf("%d seconds per mode%n", seconds);
+		System.out.printf("%-14s %14s %16s%n", "mode", "guesses/s", "bytes/guess");
+
+		// warm up the JIT
+		for (Mode mode : Mode.values()) {
+			measure(mode, 1, false);
+		}
+		for (Mode mode : Mode.values()) {
+			measure(mode, seconds, true);
+		}
+	}
+
+
+	/**
+	 * Adds more guesses that are not numbers than a byte can count, from the players 
+	 * of a mass round, and checks every one reads back as it was added
+	 */
+	private static void checkOtherGuesses() {
+		int players = 100;
+		// none of the guesses is the code, so every player makes every attempt
+		GameRound round = new GameRound("10");
+		List<String> added = new ArrayList<>();
+		for (int p = 0; p < players; p++) {
+			Player player = new Player("player" + p);
+			round.addPlayer(player);
+			for (int a = 0; a < GameRound.MAX_ATTEMPTS; a++) {
+				// numbers and other guesses mixed, "07" and "-1" are kept as they are
+				String guess = a == 0 ? DIGITS[p % 10] : a == 1 ? "0" + (p % 10) : a == 2 ? "-1" : "abc" + p;
+				round.addGuess(player, guess);
+				added.add(guess);
+			}
+		}
+
+		List<String> guesses = round.getGuesses();
+		if ( ! guesses.equals(added)) {
+			for (int i = 0; i < added.size(); i++) {
+				if ( ! added.get(i).equals(guesses.get(i))) {
+					throw new IllegalStateException(String.format("Guess %d reads back as %s instead of %s", i, guesses.get(i), added.get(i)));
+				}
+			}
+			throw new IllegalStateException(guesses.size() + " guesses read back instead of " + added.size());
+		}
+		System.out.printf("%d guesses of a %d player round read back as added, %d of them not numbers%n", 
+				added.size(), players, players * 3);
+	}
+
+
+	enum Mode {
+		LIST,
+		PLAYER,
+		GAME_MANAGER
+	}
+
+	private static void measure(Mode mode, int seconds, boolean report) throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		Runner runner = mode == Mode.LIST ? new ListRunner() : mode == Mode.PLAYER ? new PlayerRunner() : new ManagerRunner();
+
+		long guesses = 0;
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		long allocated = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		while (System.nanoTime() < deadline) {
+			// check the clock every few thousand rounds only
+			for (int i = 0; i < 10_000; i++) {
+				guesses += runner.round(i);
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+		if (report) {
+			System.out.printf("%-14s %14.0f %16.2f%n", mode, guesses / (elapsed / 1e9), allocated / (double) guesses);
+		}
+	}
+
+
+	interface Runner {
+
+		/**
+		 * Plays a round
+		 * @return the number of guesses added
+		 */
+		int round(int round) throws Exception;
+	}
+
+	/**
+	 * Each of three players makes every attempt
+	 */
+	static class ListRunner implements Runner {
+
+		List<List<String>> players = new ArrayList<>();
+
+		ListRunner() {
+			for (int p = 0; p < Game.MIN_PLAYERS; p++) {
+				players.add(new ArrayList<>());
+			}
+		}
+
+		@Override
+		public int round(int round) {
+			List<String> guesses = new ArrayList<>();
+			for (int p = 0; p < players.size(); p++) {
+				List<String> player = new ArrayList<>();
+				players.set(p, player);
+				for (int a = 0; a < GameRound.MAX_ATTEMPTS; a++) {
+					String guess = DIGITS[(round + a) % 10];
+					player.add(guess);
+					guesses.add(guess);
+				}
+				sink += player.size();
+			}
+			return guesses.size();
+		}
+	}
+
+	/**
+	 * Same as the list runner, with the guesses kept by players
+	 */
+	static class PlayerRunner implements Runner {
+
+		List<Player> players = new ArrayList<>();
+
+		PlayerRunner() {
+			for (int p = 0; p < Game.MIN_PLAYERS; p++) {
+				players.add(new Player("player" + p));
+			}
+		}
+
+		@Override
+		public int round(int round) {
+			int guesses = 0;
+			for (Player player : players) {
+				player.resetGuesses();
+				for (int a = 0; a < GameRound.MAX_ATTEMPTS; a++) {
+					player.addGuess(DIGITS[(round + a) % 10]);
+					guesses++;
+				}
+				sink += player.getNumGuesses();
+			}
+			return guesses;
+		}
+	}
+
+	/**
+	 * Plays rounds of a game through its players' managers until everyone has won or lost
+	 */
+	static class ManagerRunner implements Runner {
+
+		Game game = new Game();
+		List<GameManager> managers = new ArrayList<>();
+
+		ManagerRunner() throws Exception {
+			for (int p = 0; p < Game.MIN_PLAYERS; p++) {
+				GameManager manager = new GameManager(game);
+				manager.setCurrentPlayer(game.signUpPlayer("player" + p));
+				managers.add(manager);
+			}
+		}
+
+		@Override
+		public int round(int round) throws Exception {
+			managers.get(0).startNextRound();
+
+			int guesses = 0;
+			int next = round;
+			while ( ! game.getCurrentRound().hasEnded()) {
+				for (GameManager manager : managers) {
+					if (manager.playerWins() || manager.playerLoses()) {
+						continue;
+					}
+					manager.addGuess(DIGITS[next++ % 10]);
+					guesses++;
+				}
+			}
+			return guesses;
+		}
+	}
+}
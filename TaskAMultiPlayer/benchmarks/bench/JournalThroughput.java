@@ -0,0 +1,158 @@
+package bench;
+
+import core.Game;
+import core.GameCallbackLogger;
+import core.GameRound;
+import core.IGameCallback;
+import core.Player;
+import server.EventJournal;
+import server.JournalCallback;
+import server.JournalReader;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.FileHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Compares recording guesses in the binary {@link EventJournal} with writing them to a text log
+ * through {@link GameCallbackLogger}, then reads the journal back with {@link JournalReader}.
+ *
+ * <p>Session threads call {@link IGameCallback#onGuessAdded} as fast as they can. The text log
+ * has its console lines thrown away, so both only pay for the file. The journal uses small
+ * segments so the benchmark also rolls segments.
+ *
+ * <p>Usage: <pre>java -cp bin bench.JournalThroughput [threads] [eventsPerThread]</pre>
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class JournalThroughput {
+
+	public static final int DEFAULT_THREADS = 4;
+	public static final int DEFAULT_EVENTS = 100000;
+	public static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+	public static final int RUNS = 2;
+
+	private static final PrintStream NOWHERE = new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	});
+
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_THREADS;
+		int events = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_EVENTS;
+
+		System.out.printf("%d threads, %d events per thread%n", threads, events);
+		System.out.printf("%-14s %14s %12s %12s%n", "", "events/s", "ns/event", "on disk");
+
+		// the first runs warm up the JIT
+		for (int run = 0; run < RUNS; run++) {
+			File dir = Files.createTempDirectory("journal-throughput").toFile();
+			try {
+				measureTextLog(dir, threads, events);
+				measureJournal(dir, threads, events);
+			}
+			finally {
+				for (File file : dir.listFiles()) {
+					file.delete();
+				}
+				dir.delete();
+			}
+		}
+	}
+
+
+	private static void measureTextLog(File dir, int threads, int events) throws Exception {
+		File logFile = new File(dir, "game.log");
+
+		// same setup as Utility.createLogger
+		FileHandler handler = new FileHandler(logFile.getPath(), true);
+		handler.setLevel(Level.INFO);
+		handler.setFormatter(new SimpleFormatter());
+		Logger logger = Logger.getAnonymousLogger();
+		logger.setUseParentHandlers(false);
+		logger.addHandler(handler);
+
+		long elapsed = play(new GameCallbackLogger(logger, NOWHERE), threads, events);
+		handler.close();
+
+		print("text log", threads * (long) events, elapsed, logFile.length());
+	}
+
+	private static void measureJournal(File dir, int threads, int events) throws Exception {
+		File journalDir = new File(dir, "journal");
+		EventJournal journal = new EventJournal(journalDir, SEGMENT_SIZE);
+
+		long elapsed = play(new JournalCallback(journal), threads, events);
+		journal.close();
+
+		long size = 0;
+		JournalReader reader = new JournalReader(journalDir);
+		for (File segment : reader.getSegments()) {
+			size += segment.length();
+		}
+		print("journal write", threads * (long) events, elapsed, size);
+
+		long[] guesses = { 0 };
+		long start = System.nanoTime();
+		long read = reader.read(event -> guesses[0] += event.get("guess").length());
+		long readTime = System.nanoTime() - start;
+		print("journal read", read, readTime, size);
+
+		for (File segment : reader.getSegments()) {
+			segment.delete();
+		}
+		journalDir.delete();
+	}
+
+	private static void print(String name, long events, long elapsed, long bytes) {
+		System.out.printf("%-14s %14.0f %12.0f %9d KB%n", name,
+				(double) events / elapsed * TimeUnit.SECONDS.toNanos(1),
+				(double) elapsed / events,
+				bytes / 1024);
+	}
+
+
+	/**
+	 * Runs the session threads
+	 *
+	 * @return the time until every thread has added its guesses
+	 */
+	private static long play(IGameCallback callback, int threads, int events) throws InterruptedException {
+		List<Thread> sessions = new ArrayList<>();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < threads; i++) {
+			final String name = "player" + i;
+			Thread session = new Thread(() -> {
+				Player player = new Player(name);
+				GameRound round = new GameRound(new Game().createSecretCode());
+				round.addPlayer(player);
+
+				for (int e = 0; e < events; e++) {
+					callback.onGuessAdded(round, player, Integer.toString(e % 10));
+				}
+			});
+			session.start();
+			sessions.add(session);
+		}
+		for (Thread session : sessions) {
+			session.join();
+		}
+		return System.nanoTime() - start;
+	}
+}
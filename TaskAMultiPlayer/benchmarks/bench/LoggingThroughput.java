@@ -0,0 +1,161 @@
+package bench;
+
+import core.Game;
+import core.GameCallbackLogger;
+import core.GameRound;
+import core.Player;
+import server.AsyncLogHandler;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.FileHandler;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Measures how long game events keep the session threads busy with logging, with the current
+ * {@link FileHandler} and console path and with an {@link AsyncLogHandler} for every overflow policy.
+ *
+ * <p>Every thread calls {@link GameCallbackLogger#onGuessAdded} as fast as it can, which prints a
+ * console line and logs a record like a guess in the game does. The console is a file behind a
+ * stream set up like {@link System#out}, so the numbers do not depend on the terminal.
+ * For each mode the benchmark prints the events per second seen by the session threads, the time
+ * of a single event, the time until everything was on disk and how many events were dropped.
+ *
+ * <p>Usage: <pre>java -cp bin bench.LoggingThroughput [threads] [eventsPerThread]</pre>
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class LoggingThroughput {
+
+	public static final int DEFAULT_THREADS = 4;
+	public static final int DEFAULT_EVENTS = 50000;
+	public static final int RUNS = 2;
+
+	enum Mode {
+		SYNC,
+		BLOCK,
+		DROP,
+		SAMPLE
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_THREADS;
+		int events = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_EVENTS;
+
+		System.out.printf("%d threads, %d events per thread%n", threads, events);
+		System.out.printf("%-8s %14s %10s %10s %14s %10s%n", "mode", "events/s", "p50", "p99", "all written", "dropped");
+
+		File dir = Files.createTempDirectory("logging-throughput").toFile();
+		try {
+			// the first runs warm up the JIT
+			for (int run = 0; run < RUNS; run++) {
+				for (Mode mode : Mode.values()) {
+					measure(mode, dir, threads, events);
+				}
+			}
+		}
+		finally {
+			for (File file : dir.listFiles()) {
+				file.delete();
+			}
+			dir.delete();
+		}
+	}
+
+
+	private static void measure(Mode mode, File dir, int threads, int events) throws Exception {
+		File logFile = new File(dir, mode + ".log");
+		File consoleFile = new File(dir, mode + ".out");
+
+		// System.out is a PrintStream that flushes every line through a small buffer
+		PrintStream consoleOut = new PrintStream(new BufferedOutputStream(new FileOutputStream(consoleFile), 128), true);
+
+		Handler handler;
+		PrintStream console;
+		if (mode == Mode.SYNC) {
+			// same setup as Utility.createLogger
+			handler = new FileHandler(logFile.getPath(), true);
+			handler.setLevel(Level.INFO);
+			handler.setFormatter(new SimpleFormatter());
+			console = consoleOut;
+		}
+		else {
+			AsyncLogHandler async = new AsyncLogHandler(new FileOutputStream(logFile, true), consoleOut,
+					AsyncLogHandler.OverflowPolicy.valueOf(mode.name()), AsyncLogHandler.DEFAULT_CAPACITY);
+			handler = async;
+			console = async.getConsole();
+		}
+
+		Logger logger = Logger.getAnonymousLogger();
+		logger.setUseParentHandlers(false);
+		logger.addHandler(handler);
+		GameCallbackLogger callback = new GameCallbackLogger(logger, console);
+
+		long[][] latencies = new long[threads][events];
+		List<Thread> sessions = new ArrayList<>();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < threads; i++) {
+			final int id = i;
+			Thread session = new Thread(() -> play(callback, "player" + id, latencies[id]));
+			session.start();
+			sessions.add(session);
+		}
+		for (Thread session : sessions) {
+			session.join();
+		}
+		long played = System.nanoTime() - start;
+
+		// the async handlers write what is left in their buffer
+		handler.close();
+		consoleOut.close();
+		long written = System.nanoTime() - start;
+
+		long dropped = handler instanceof AsyncLogHandler ? ((AsyncLogHandler) handler).getDropped() : 0;
+
+		long[] all = new long[threads * events];
+		for (int i = 0; i < threads; i++) {
+			System.arraycopy(latencies[i], 0, all, i * events, events);
+		}
+		Arrays.sort(all);
+
+		System.out.printf("%-8s %14.0f %7.2f us %7.2f us %11d ms %10d%n", mode,
+				(double) all.length / played * TimeUnit.SECONDS.toNanos(1),
+				all[all.length / 2] / 1000.0,
+				all[(int) (all.length * 0.99)] / 1000.0,
+				TimeUnit.NANOSECONDS.toMillis(written),
+				dropped);
+
+		logFile.delete();
+		consoleFile.delete();
+	}
+
+	/**
+	 * One session thread adding guesses to its own round
+	 */
+	private static void play(GameCallbackLogger callback, String name, long[] latencies) {
+		Player player = new Player(name);
+		GameRound round = new GameRound(new Game().createSecretCode());
+		round.addPlayer(player);
+
+		for (int i = 0; i < latencies.length; i++) {
+			String guess = Integer.toString(i % 10);
+			long start = System.nanoTime();
+			callback.onGuessAdded(round, player, guess);
+			latencies[i] = System.nanoTime() - start;
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package bench;
+
+import core.Game;
+import core.GameCallback;
+import core.GameManager;
+import core.GameRound;
+import core.Player;
+import server.GameRoom;
+import server.IResponseWriter;
+import server.IRoomCallback;
+import server.Response;
+import server.RoomRegistry;
+import server.RoundCoordinator;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of mass rounds. Checks that the time a guess takes does not grow with the number
+ * of players guessing the same code.
+ *
+ * <p>For each round size a room is opened with that many players, each with a {@link GameManager}
+ * and a {@link GameCallback} like a connected client, and a room callback like the game state store.
+ * Threads then make every player's guesses through the room's {@link RoundCoordinator}, taking the
+ * room's lock like the server processes do. The time of each guess is measured from asking for
+ * the lock to giving it back. The round is played a few times and the percentiles are taken over
+ * every guess after the first round.
+ *
+ * <p>The size of the messages every player gets when the round starts and ends, and the time
+ * it takes to send them to everyone, are printed as well.
+ *
+ * <p>Usage: <pre>java -cp bin bench.MassRoundLatency [threads] [rounds] [players...]</pre>
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class MassRoundLatency {
+
+	public static final int DEFAULT_THREADS = 4;
+	public static final int DEFAULT_ROUNDS = 4;
+	public static final int[] DEFAULT_SIZES = { Game.MAX_PLAYERS, 100, 1000, 5000 };
+
+	private static final PrintStream OUT = System.out;
+
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_THREADS;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+		int[] sizes = DEFAULT_SIZES;
+		if (args.length > 2) {
+			sizes = new int[args.length - 2];
+			for (int i = 2; i < args.length; i++) {
+				sizes[i - 2] = Integer.parseInt(args[i]);
+			}
+		}
+
+		// GameCallback prints every secret code
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		}));
+
+		OUT.printf("%d threads, %d rounds per size, the first round is not counted%n", threads, rounds);
+		OUT.printf("%8s %9s %10s %10s %10s %14s %14s %12s%n", "players", "guesses", "p50 us", "p99 us", "max us",
+				"start B/player", "end B/player", "start+end ms");
+
+		for (int size : sizes) {
+			measure(size, threads, rounds);
+		}
+	}
+
+
+	private static void measure(int size, int threads, int rounds) throws Exception {
+		List<long[]> latencies = new ArrayList<>();
+		long startBytes = 0;
+		long endBytes = 0;
+		long announceNanos = 0;
+
+		for (int r = 0; r < rounds; r++) {
+			Round round = new Round(size);
+
+			long start = System.nanoTime();
+			round.start();
+			long started = System.nanoTime();
+
+			List<long[]> times = round.guess(threads);
+
+			long end = System.nanoTime();
+			round.end();
+			long ended = System.nanoTime();
+
+			if (r > 0) {
+				latencies.addAll(times);
+				startBytes += round.startBytes.get();
+				endBytes += round.endBytes.get();
+				announceNanos += (started - start) + (ended - end);
+			}
+		}
+
+		int count = 0;
+		for (long[] times : latencies) {
+			count += times.length;
+		}
+		long[] all = new long[count];
+		int i = 0;
+		for (long[] times : latencies) {
+			System.arraycopy(times, 0, all, i, times.length);
+			i += times.length;
+		}
+		Arrays.sort(all);
+
+		int counted = rounds - 1;
+		OUT.printf("%8d %9d %10.1f %10.1f %10.1f %14d %14d %12.1f%n", size, all.length,
+				percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3, all[all.length - 1] / 1e3,
+				startBytes / counted / size, endBytes / counted / size, announceNanos / 1e6 / counted);
+	}
+
+	private static long percentile(long[] sorted, double p) {
+		return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+	}
+
+
+	/**
+	 * A room with its players, as the server processes would see it
+	 */
+	static class Round {
+
+		GameRoom room;
+		List<GameManager> managers = new ArrayList<>();
+
+		AtomicLong startBytes = new AtomicLong();
+		AtomicLong endBytes = new AtomicLong();
+		AtomicLong bytes = startBytes;
+
+		Round(int size) {
+			RoomRegistry rooms = new RoomRegistry(Game::new);
+			rooms.setCallback(ROOM_CALLBACK);
+
+			List<Player> players = new ArrayList<>();
+			for (int p = 0; p < size; p++) {
+				players.add(new Player("player" + p));
+			}
+			room = rooms.open(players);
+
+			// counts what each client would be sent
+			IResponseWriter writer = new IResponseWriter() {
+				@Override
+				public void write(Response response) {
+					bytes.addAndGet(response.getMessage().length());
+				}
+
+				@Override
+				public void close() {
+				}
+			};
+			for (Player player : players) {
+				GameManager manager = new GameManager(room.getGame());
+				manager.setCurrentPlayer(player);
+				manager.addCallback(new GameCallback(writer));
+				managers.add(manager);
+			}
+		}
+
+		/**
+		 * Every player starts the round, the first one creates it
+		 */
+		void start() throws Exception {
+			for (GameManager manager : managers) {
+				room.getLock().lock();
+				try {
+					room.getCoordinator().startRound(manager);
+				}
+				finally {
+					room.getLock().unlock();
+				}
+			}
+			bytes = new AtomicLong();
+		}
+
+		/**
+		 * Each thread makes the guesses of every few players, one attempt of each player at a time.
+		 * One player in ten wins on each attempt, the others guess wrong.
+		 *
+		 * @return the time of each guess, per thread
+		 */
+		List<long[]> guess(int threads) throws Exception {
+			GameRound round = room.getCoordinator().getRound();
+			int code = Integer.parseInt(round.getCode());
+
+			long[][] times = new long[threads][(managers.size() / threads + 1) * GameRound.MAX_ATTEMPTS];
+			int[] counts = new int[threads];
+
+			List<Thread> workers = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				final int first = t;
+				Thread worker = new Thread(() -> {
+					for (int attempt = 0; attempt < GameRound.MAX_ATTEMPTS; attempt++) {
+						for (int p = first; p < managers.size(); p += threads) {
+							GameManager manager = managers.get(p);
+							int digit = p % 10 == attempt ? code : (code + 1 + (p + attempt) % 9) % 10;
+
+							long start = System.nanoTime();
+							room.getLock().lock();
+							try {
+								if (manager.playerWins() || manager.playerLoses()) {
+									continue;
+								}
+								room.getCoordinator().addGuess(manager, Integer.toString(digit));
+							}
+							finally {
+								room.getLock().unlock();
+							}
+							times[first][counts[first]++] = System.nanoTime() - start;
+						}
+					}
+				}, "guesser" + t);
+				worker.start();
+				workers.add(worker);
+			}
+			for (Thread worker : workers) {
+				worker.join();
+			}
+
+			if (room.getCoordinator().getPhase() != RoundCoordinator.Phase.RESULTS) {
+				throw new IllegalStateException("The round has not ended");
+			}
+
+			List<long[]> made = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				made.add(Arrays.copyOf(times[t], counts[t]));
+			}
+			return made;
+		}
+
+		/**
+		 * Every player is told the results
+		 */
+		void end() {
+			bytes = endBytes;
+			for (GameManager manager : managers) {
+				manager.endCurrentRound();
+			}
+		}
+	}
+
+
+	private static final IRoomCallback ROOM_CALLBACK = new IRoomCallback() {
+		@Override
+		public void onRoomOpened(GameRoom room) {
+		}
+
+		@Override
+		public void onRoundStarted(GameRoom room, GameRound round) {
+		}
+
+		@Override
+		public void onGuessAdded(GameRoom room, int seat, String guess) {
+		}
+
+		@Override
+		public void onPlayerLeft(GameRoom room, int seat) {
+		}
+
+		@Override
+		public void onRoomRetired(GameRoom room) {
+		}
+	};
+}
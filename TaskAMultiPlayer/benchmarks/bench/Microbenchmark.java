@@ -0,0 +1,278 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Small harness for benchmarks of single operations, in place of JMH which the Makefile build cannot fetch.
+ *
+ * <p>Like JMH, each benchmark gets fresh state from its {@link Setup}, is warmed up for a few iterations
+ * and then measured for a few more. Every iteration calls the operation in batches until its time is up.
+ * The throughput is the mean over the measured iterations, with the standard deviation, and the
+ * allocation is read from the thread's allocation counter, so it includes everything the operation allocates.
+ *
+ * <p>The results can be saved and compared with a later run, which marks the benchmarks that are
+ * more than {@link #REGRESSION_PERCENT} percent slower or allocate more:
+ * <pre>
+ * -Dbench.save=file     saves the results
+ * -Dbench.compare=file  compares the results with the saved ones
+ * </pre>
+ *
+ * <p>Benchmarks are selected with the first argument, a regular expression matched against the names.
+ * The second is the number of measured iterations and the third the time of an iteration in milliseconds.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class Microbenchmark {
+
+	public static final int WARMUP_ITERATIONS = 3;
+	public static final int DEFAULT_ITERATIONS = 5;
+	public static final long DEFAULT_ITERATION_MILLIS = 500;
+
+	/**
+	 * Changes smaller than this are noise
+	 */
+	public static final double REGRESSION_PERCENT = 10;
+
+	public static final String SAVE_PROPERTY = "bench.save";
+	public static final String COMPARE_PROPERTY = "bench.compare";
+
+	// calls the operation this many times between looks at the clock
+	private static final int BATCH = 256;
+
+	/**
+	 * Operations store their results here, so the JIT cannot leave the work out
+	 */
+	static long sink;
+
+	/**
+	 * One benchmark, created for every run by its setup
+	 */
+	public interface Operation {
+
+		/**
+		 * Does the work once
+		 * @return how many operations that was, eg. the number of guesses in a round
+		 */
+		int run() throws Exception;
+	}
+
+	public interface Setup {
+
+		Operation create() throws Exception;
+	}
+
+	/**
+	 * Outcome of a benchmark
+	 */
+	public static class Result {
+
+		public final String name;
+		public final double opsPerSecond;
+		public final double deviation;
+		public final double bytesPerOp;
+
+		Result(String name, double opsPerSecond, double deviation, double bytesPerOp) {
+			this.name = name;
+			this.opsPerSecond = opsPerSecond;
+			this.deviation = deviation;
+			this.bytesPerOp = bytesPerOp;
+		}
+
+		public double getNanosPerOp() {
+			return 1e9 / opsPerSecond;
+		}
+	}
+
+	private String title;
+	private Map<String, Setup> benchmarks = new LinkedHashMap<>();
+	private int regressions = 0;
+
+
+	public Microbenchmark(String title) {
+		this.title = title;
+	}
+
+	public Microbenchmark add(String name, Setup setup) {
+		benchmarks.put(name, setup);
+		return this;
+	}
+
+	/**
+	 * Gets the number of regressions the last run found, if it was compared with saved results
+	 * @return
+	 */
+	public int getRegressions() {
+		return regressions;
+	}
+
+	/**
+	 * Consumes a result of an operation
+	 * @param value
+	 */
+	public static void consume(long value) {
+		sink += value;
+	}
+
+	public static void consume(Object value) {
+		if (value != null) {
+			sink++;
+		}
+	}
+
+
+	/**
+	 * Runs the benchmarks selected by the arguments and prints the results
+	 *
+	 * @param args [filter] [iterations] [iteration ms]
+	 * @return
+	 * @throws Exception
+	 */
+	public List<Result> run(String[] args) throws Exception {
+		Pattern filter = Pattern.compile(args.length > 0 ? args[0] : ".*");
+		int iterations = args.length > 1 ? Math.max(1, Integer.parseInt(args[1])) : DEFAULT_ITERATIONS;
+		long millis = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_ITERATION_MILLIS;
+
+		System.out.printf("%s: %d warm-up and %d measured iterations of %d ms%n", title, WARMUP_ITERATIONS, iterations, millis);
+		System.out.printf("%-36s %14s %10s %12s %12s%n", "benchmark", "ops/s", "+-", "ns/op", "B/op");
+
+		List<Result> results = new ArrayList<>();
+		for (Map.Entry<String, Setup> benchmark : benchmarks.entrySet()) {
+			if ( ! filter.matcher(benchmark.getKey()).find()) {
+				continue;
+			}
+
+			Result result = measure(benchmark.getKey(), benchmark.getValue().create(), iterations, millis);
+			System.out.printf("%-36s %14.0f %10.0f %12.1f %12.1f%n", result.name, result.opsPerSecond,
+					result.deviation, result.getNanosPerOp(), result.bytesPerOp);
+			results.add(result);
+		}
+
+		if (sink == 42) {
+			System.out.println();
+		}
+
+		String compare = System.getProperty(COMPARE_PROPERTY);
+		if (compare != null) {
+			regressions = compare(results, new File(compare));
+		}
+		String save = System.getProperty(SAVE_PROPERTY);
+		if (save != null) {
+			save(results, new File(save));
+		}
+		return results;
+	}
+
+
+	private static Result measure(String name, Operation operation, int iterations, long millis) throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			iterate(operation, millis);
+		}
+
+		double[] scores = new double[iterations];
+		long operations = 0;
+		long allocated = 0;
+		for (int i = 0; i < iterations; i++) {
+			long before = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			long count = iterate(operation, millis);
+			long elapsed = System.nanoTime() - start;
+			allocated += threads.getThreadAllocatedBytes(thread) - before;
+
+			operations += count;
+			scores[i] = count / (elapsed / 1e9);
+		}
+
+		double mean = 0;
+		for (double score : scores) {
+			mean += score;
+		}
+		mean /= iterations;
+
+		double variance = 0;
+		for (double score : scores) {
+			variance += (score - mean) * (score - mean);
+		}
+		double deviation = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+
+		return new Result(name, mean, deviation, allocated / (double) operations);
+	}
+
+	/**
+	 * Calls the operation until the time is up
+	 * @return the number of operations
+	 */
+	private static long iterate(Operation operation, long millis) throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+		long count = 0;
+		do {
+			for (int i = 0; i < BATCH; i++) {
+				count += operation.run();
+			}
+		} while (System.nanoTime() < deadline);
+		return count;
+	}
+
+
+	/**
+	 * Writes one line per benchmark: name, ops/s and B/op
+	 */
+	private static void save(List<Result> results, File file) throws IOException {
+		try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+			for (Result result : results) {
+				out.printf("%s\t%.1f\t%.1f%n", result.name, result.opsPerSecond, result.bytesPerOp);
+			}
+		}
+		System.out.printf("Results saved to %s%n", file);
+	}
+
+	/**
+	 * @return the number of regressions
+	 */
+	private static int compare(List<Result> results, File file) throws IOException {
+		Map<String, double[]> saved = new HashMap<>();
+		for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+			String[] fields = line.split("\t");
+			if (fields.length == 3) {
+				saved.put(fields[0], new double[] { Double.parseDouble(fields[1]), Double.parseDouble(fields[2]) });
+			}
+		}
+
+		System.out.printf("%nCompared with %s%n", file);
+		System.out.printf("%-36s %10s %10s%n", "benchmark", "ops/s", "B/op");
+		int regressions = 0;
+		for (Result result : results) {
+			double[] before = saved.get(result.name);
+			if (before == null) {
+				continue;
+			}
+
+			double throughput = (result.opsPerSecond - before[0]) * 100 / before[0];
+			double allocation = result.bytesPerOp - before[1];
+			// a byte or two per operation is the allocation counter, not the code
+			boolean regression = throughput < -REGRESSION_PERCENT
+					|| (allocation > 2 && allocation > before[1] * REGRESSION_PERCENT / 100);
+			if (regression) {
+				regressions++;
+			}
+			System.out.printf("%-36s %+9.1f%% %+10.1f%s%n", result.name, throughput, allocation, regression ? "  REGRESSION" : "");
+		}
+		System.out.printf("%d regressions%n", regressions);
+		return regressions;
+	}
+}
@@ -0,0 +1,237 @@
+package bench;
+
+import core.Game;
+import core.GameCallbackLogger;
+import server.IServerCallback;
+import server.Lobby;
+import server.MultiPlayerServer;
+import server.ObjectResponseWriter;
+import server.Response;
+import server.RoomRegistry;
+import server.ServerProcess;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plays thousands of rounds through {@link ServerProcess} over loopback and measures how 
+ * much heap each connection keeps as the session goes on.
+ * 
+ * <p>The clients use the serialized protocol, so every response goes through 
+ * {@link ObjectResponseWriter}. The soak runs once per reset interval and prints the 
+ * retained heap at each checkpoint. With {@link ObjectResponseWriter#NEVER_RESET} the heap 
+ * grows with every round. With a reset interval it should stay flat, and the soak fails 
+ * if a connection keeps more than {@link #MAX_GROWTH_PER_ROUND} bytes per round.
+ * 
+ * <p>Usage: <pre>java -cp bin bench.ResponseStreamSoak [rounds] [resetInterval,...]</pre>
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class ResponseStreamSoak {
+	
+	public static final int DEFAULT_ROUNDS = 3000;
+	public static final int PLAYERS = Game.MIN_PLAYERS;
+	public static final int CHECKPOINTS = 6;
+	
+	// heap measurements are noisy, so a little growth is expected even with resets
+	public static final int MAX_GROWTH_PER_ROUND = 1024;
+	
+	private static final PrintStream OUT = System.out;
+	
+	
+	public static void main(String[] args) throws Exception {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROUNDS;
+		String intervals = args.length > 1 ? args[1] : 
+			ObjectResponseWriter.NEVER_RESET + "," + ObjectResponseWriter.DEFAULT_RESET_INTERVAL;
+		
+		// GameCallbackLogger prints every event
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		}));
+		
+		boolean failed = false;
+		for (String interval : intervals.split(",")) {
+			int resetInterval = Integer.parseInt(interval.trim());
+			long growth = soak(rounds, resetInterval);
+			OUT.printf("%d bytes per connection per round%n", growth);
+			
+			if (resetInterval != ObjectResponseWriter.NEVER_RESET && growth > MAX_GROWTH_PER_ROUND) {
+				OUT.printf("FAILED: more than %d bytes per round retained%n", MAX_GROWTH_PER_ROUND);
+				failed = true;
+			}
+		}
+		
+		if (failed) {
+			System.exit(1);
+		}
+	}
+	
+	
+	/**
+	 * Runs one soak with a fresh game and prints the checkpoints
+	 * 
+	 * @return heap retained per connection per round between the first and the last checkpoint
+	 */
+	private static long soak(int rounds, int resetInterval) throws Exception {
+		OUT.printf("%nreset interval %d, %d players, %d rounds%n", resetInterval, PLAYERS, rounds);
+		OUT.printf("%8s %14s %22s%n", "round", "heap used", "per connection growth");
+		
+		Lobby lobby = new Lobby(new RoomRegistry(Game::new));
+		lobby.start();
+		Logger logger = Logger.getAnonymousLogger();
+		logger.setUseParentHandlers(false);
+		logger.setLevel(Level.OFF);
+		GameCallbackLogger gameLogger = new GameCallbackLogger(logger);
+		
+		int checkpointEvery = Math.max(1, rounds / CHECKPOINTS);
+		long[] baseline = { -1, -1 };
+		long[] last = { -1, -1 };
+		
+		try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+			List<Thread> threads = new ArrayList<>();
+			
+			for (int i = 0; i < PLAYERS; i++) {
+				final int id = i;
+				Thread client = new Thread(() -> {
+					try {
+						play(serverSocket.getLocalPort(), "player" + id, rounds, round -> {
+							// only the first client takes measurements. The others cannot 
+							// start the next round without it, so they wait in the lobby. 
+							// After the last round they have quit already
+							if (id == 0 && round % checkpointEvery == 0 && round < rounds) {
+								long used = usedHeap();
+								if (baseline[0] < 0) {
+									baseline[0] = used;
+									baseline[1] = round;
+								}
+								last[0] = used;
+								last[1] = round;
+								OUT.printf("%8d %11d KB %19d KB%n", round, used / 1024, (used - baseline[0]) / 1024 / PLAYERS);
+							}
+						});
+					}
+					catch (Exception e) {
+						OUT.println("player" + id + " failed: " + e);
+					}
+				});
+				client.start();
+				threads.add(client);
+				
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				ServerProcess process = new ServerProcess(lobby, socket, SILENT, gameLogger);
+				process.setResetInterval(resetInterval);
+				Thread session = new Thread(process);
+				session.start();
+				threads.add(session);
+			}
+			
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		}
+		finally {
+			lobby.close();
+		}
+		
+		if (last[1] <= baseline[1]) {
+			return 0;
+		}
+		return (last[0] - baseline[0]) / PLAYERS / (last[1] - baseline[1]);
+	}
+	
+	
+	interface RoundListener {
+		void onRoundPlayed(int round) throws Exception;
+	}
+	
+	/**
+	 * Old-protocol client that guesses 0, 1, 2... and continues until it has played all rounds
+	 */
+	private static void play(int port, String name, int rounds, RoundListener listener) throws Exception {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.setTcpNoDelay(true);
+			ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+			PrintWriter writer = new PrintWriter(socket.getOutputStream(), true);
+			
+			int guess = 0;
+			int played = 0;
+			Response command;
+			
+			do {
+				command = (Response) in.readObject();
+				if (command.getType() != Response.READLINE) {
+					continue;
+				}
+				
+				String message = command.getMessage();
+				if (message.startsWith("Enter your name")) {
+					writer.println(name);
+				}
+				else if (message.startsWith("Enter your guess")) {
+					writer.println(guess++ % 10);
+				}
+				else {
+					played++;
+					guess = 0;
+					listener.onRoundPlayed(played);
+					writer.println(played < rounds ? "p" : "q");
+				}
+			}
+			while (command.getType() != Response.QUIT);
+		}
+	}
+	
+	private static long usedHeap() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+	
+	
+	private static final IServerCallback SILENT = new IServerCallback() {
+		@Override
+		public void onServerStarted(MultiPlayerServer server, int port) {
+		}
+
+		@Override
+		public void onClientConnected(MultiPlayerServer server, Socket socket) {
+		}
+
+		@Override
+		public void onSendResponse(ServerProcess process, Response response) {
+		}
+
+		@Override
+		public void onClientReply(ServerProcess process, String clientReply) {
+		}
+
+		@Override
+		public void onClientDisconnected(MultiPlayerServer server, Socket socket, ServerProcess process) {
+		}
+
+		@Override
+		public void onException(ServerProcess process, Exception e) {
+			if ( ! (e instanceof IOException)) {
+				OUT.println("server: " + e);
+			}
+		}
+	};
+}
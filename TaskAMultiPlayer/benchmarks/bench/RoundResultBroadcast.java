@@ -0,0 +1,143 @@
+package bench;
+
+import core.Game;
+import core.GameCallback;
+import core.GameCallbackLogger;
+import core.GameManager;
+import core.GameRound;
+import server.ResponseEncoder;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures what it costs to tell every player of a round the results.
+ *
+ * <p>For each round size, a game is played with a {@link GameManager} per player, each with a
+ * {@link GameCallback} writing the binary protocol like a connected client, and the game logger
+ * the server shares between its players. Every round one player in three wins and the others lose,
+ * then every player's manager ends the round, the way each server process does. Only the ending
+ * of the rounds is timed. Allocated bytes are read from the thread's allocation counter.
+ *
+ * <p>Usage: <pre>java -cp bin bench.RoundResultBroadcast [seconds] [players...]</pre>
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class RoundResultBroadcast {
+
+	public static final int DEFAULT_SECONDS = 2;
+	public static final int[] DEFAULT_SIZES = { Game.MIN_PLAYERS, Game.MAX_PLAYERS, 100, 1000 };
+
+	private static final PrintStream OUT = System.out;
+
+	private static final PrintStream NOWHERE = new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	});
+
+
+	public static void main(String[] args) throws Exception {
+		int seconds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SECONDS;
+		int[] sizes = DEFAULT_SIZES;
+		if (args.length > 1) {
+			sizes = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++) {
+				sizes[i - 1] = Integer.parseInt(args[i]);
+			}
+		}
+
+		// GameCallback prints every secret code
+		System.setOut(NOWHERE);
+
+		OUT.printf("%d seconds per round size%n", seconds);
+		OUT.printf("%8s %10s %16s %16s %16s%n", "players", "rounds", "us/round end", "alloc B/player", "sent B/player");
+
+		// warm up the JIT
+		measure(Game.MAX_PLAYERS, 1, false);
+		for (int size : sizes) {
+			measure(size, seconds, true);
+		}
+	}
+
+
+	private static void measure(int size, int seconds, boolean report) throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		Logger logger = Logger.getLogger("bench.RoundResultBroadcast");
+		logger.setUseParentHandlers(false);
+		logger.setLevel(Level.OFF);
+		GameCallbackLogger gameLogger = new GameCallbackLogger(logger, NOWHERE);
+
+		// counts what the clients are sent
+		long[] sent = new long[1];
+		OutputStream connection = new OutputStream() {
+			@Override
+			public void write(int b) {
+				sent[0]++;
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				sent[0] += len;
+			}
+		};
+
+		Game game = new Game();
+		game.setMaxPlayers(size);
+		List<GameManager> managers = new ArrayList<>();
+		for (int p = 0; p < size; p++) {
+			GameManager manager = new GameManager(game);
+			manager.setCurrentPlayer(game.signUpPlayer("player" + p));
+			manager.addCallback(new GameCallback(new ResponseEncoder(connection)));
+			manager.addCallback(gameLogger);
+			managers.add(manager);
+		}
+
+		long rounds = 0;
+		long elapsed = 0;
+		long allocated = 0;
+		long bytes = 0;
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		while (System.nanoTime() < deadline) {
+			managers.get(0).startNextRound();
+			GameRound round = game.getCurrentRound();
+			int code = Integer.parseInt(round.getCode());
+			for (int p = 0; p < size; p++) {
+				GameManager manager = managers.get(p);
+				for (int attempt = 0; attempt < GameRound.MAX_ATTEMPTS && ! manager.playerWins() && ! manager.playerLoses(); attempt++) {
+					int digit = p % 3 == 0 && attempt == p % GameRound.MAX_ATTEMPTS ? code : (code + 1) % 10;
+					manager.addGuess(Integer.toString(digit));
+				}
+			}
+
+			sent[0] = 0;
+			long before = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			for (GameManager manager : managers) {
+				manager.endCurrentRound();
+			}
+			elapsed += System.nanoTime() - start;
+			allocated += threads.getThreadAllocatedBytes(thread) - before;
+			bytes += sent[0];
+			rounds++;
+		}
+
+		if (report) {
+			OUT.printf("%8d %10d %16.1f %16d %16d%n", size, rounds, elapsed / 1e3 / rounds,
+					allocated / rounds / size, bytes / rounds / size);
+		}
+	}
+}
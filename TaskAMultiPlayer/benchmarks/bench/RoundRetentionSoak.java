@@ -0,0 +1,138 @@
+package bench;
+
+import core.Game;
+import core.GameManager;
+import server.ArchivedRound;
+import server.RoundArchive;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that the heap of a long running game stays flat when it only keeps its last rounds.
+ *
+ * <p>One game with {@link Game#MIN_PLAYERS} players plays rounds one after the other
+ * through {@link GameManager}, the way a game that never ends would. Each mode plays the same rounds:
+ * <ul>
+ * <li>UNBOUNDED - every round is kept in memory, as before</li>
+ * <li>RETAINED - only the last rounds are kept, older rounds are dropped</li>
+ * <li>ARCHIVED - only the last rounds are kept, older rounds go to a {@link RoundArchive}</li>
+ * </ul>
+ * The used heap after a full gc is printed every tenth of the rounds. For the archive,
+ * its size and the time to find a player's last rounds are printed at the end.
+ *
+ * <p>Usage: <pre>java -cp bin bench.RoundRetentionSoak [rounds] [retainedRounds]</pre>
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class RoundRetentionSoak {
+
+	public static final int DEFAULT_ROUNDS = 200_000;
+	public static final int CHECKPOINTS = 10;
+
+	enum Mode {
+		UNBOUNDED,
+		RETAINED,
+		ARCHIVED
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROUNDS;
+		int retained = args.length > 1 ? Integer.parseInt(args[1]) : Game.DEFAULT_RETAINED_ROUNDS;
+
+		System.out.printf("%d rounds of %d players, %d rounds kept in memory%n", rounds, Game.MIN_PLAYERS, retained);
+		for (Mode mode : Mode.values()) {
+			measure(mode, rounds, retained);
+		}
+	}
+
+
+	private static void measure(Mode mode, int rounds, int retained) throws Exception {
+		File dir = Files.createTempDirectory("round-archive").toFile();
+		RoundArchive archive = mode == Mode.ARCHIVED ? new RoundArchive(dir) : null;
+
+		Game game = new Game();
+		game.setRetention(mode == Mode.UNBOUNDED ? Integer.MAX_VALUE : retained, archive);
+
+		List<GameManager> managers = new ArrayList<>();
+		for (int p = 0; p < Game.MIN_PLAYERS; p++) {
+			GameManager manager = new GameManager(game);
+			manager.setCurrentPlayer(game.signUpPlayer("player" + p));
+			managers.add(manager);
+		}
+
+		System.out.printf("%n%s%n%10s %14s %12s%n", mode, "rounds", "used heap", "in memory");
+		long baseline = usedHeap();
+		long start = System.nanoTime();
+		for (int r = 1; r <= rounds; r++) {
+			play(managers, r);
+
+			if (r % (rounds / CHECKPOINTS) == 0) {
+				long used = usedHeap();
+				System.out.printf("%10d %11d KB %12d%n", r, (used - baseline) / 1024, game.getRounds().size());
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("%.0f rounds/s, not counting the gc at the checkpoints%n", rounds / (elapsed / 1e9));
+
+		if (archive != null) {
+			game.archiveRounds();
+
+			long queryStart = System.nanoTime();
+			List<ArchivedRound> last = archive.findByPlayer("player1", 5);
+			long query = System.nanoTime() - queryStart;
+
+			long size = 0;
+			for (File file : dir.listFiles()) {
+				size += file.length();
+			}
+			System.out.printf("archived %d rounds in %d KB (%.0f bytes per round), last 5 rounds of player1 found in %.1f ms%n",
+					archive.getArchived(), size / 1024, size / (double) archive.getArchived(), query / 1e6);
+			System.out.println("  " + last.get(last.size() - 1));
+			archive.close();
+		}
+
+		for (File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	/**
+	 * Plays a round until everyone has won or lost. The first player wins
+	 * every other round, the others guess the digits in turn
+	 */
+	private static void play(List<GameManager> managers, int round) throws Exception {
+		managers.get(0).startNextRound();
+		Game game = managers.get(0).getGame();
+		String code = game.getCurrentRound().getCode();
+
+		int next = 0;
+		while ( ! game.getCurrentRound().hasEnded()) {
+			for (int p = 0; p < managers.size(); p++) {
+				GameManager manager = managers.get(p);
+				if (manager.playerWins() || manager.playerLoses()) {
+					continue;
+				}
+				String guess = p == 0 && round % 2 == 0 ? code : Integer.toString(next++ % 10);
+				manager.addGuess(guess);
+				if (game.getCurrentRound().hasEnded()) {
+					break;
+				}
+			}
+		}
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+}
@@ -0,0 +1,87 @@
+package bench;
+
+import core.Game;
+import core.GameManager;
+import core.GameRound;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the cost of a guess grows with the number of players in a round.
+ *
+ * <p>For each round size, one game plays rounds through its players' {@link GameManager}s until
+ * everyone has won or lost. Every guess checks the player's outcome and whether the round
+ * has ended, so if those checks go through every player, the guesses per second drop as the
+ * rounds get bigger. Sizes above {@link Game#MAX_PLAYERS} are mass rounds.
+ *
+ * <p>Usage: <pre>java -cp bin bench.RoundSizeScaling [seconds] [players...]</pre>
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class RoundSizeScaling {
+
+	public static final int DEFAULT_SECONDS = 2;
+	public static final int[] DEFAULT_SIZES = { Game.MIN_PLAYERS, Game.MAX_PLAYERS, 64, 512 };
+
+	private static final String[] DIGITS = { "0", "1", "2", "3", "4", "5", "6", "7", "8", "9" };
+
+
+	public static void main(String[] args) throws Exception {
+		int seconds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SECONDS;
+		int[] sizes = DEFAULT_SIZES;
+		if (args.length > 1) {
+			sizes = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++) {
+				sizes[i - 1] = Integer.parseInt(args[i]);
+			}
+		}
+
+		System.out.printf("%d seconds per round size%n", seconds);
+		System.out.printf("%8s %14s %14s%n", "players", "guesses/s", "ns/guess");
+
+		// warm up the JIT
+		measure(Game.MAX_PLAYERS, 1, false);
+		for (int size : sizes) {
+			measure(size, seconds, true);
+		}
+	}
+
+
+	private static void measure(int size, int seconds, boolean report) throws Exception {
+		Game game = new Game();
+		game.setMaxPlayers(size);
+		List<GameManager> managers = new ArrayList<>();
+		for (int p = 0; p < size; p++) {
+			GameManager manager = new GameManager(game);
+			manager.setCurrentPlayer(game.signUpPlayer("player" + p));
+			managers.add(manager);
+		}
+
+		long guesses = 0;
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		long start = System.nanoTime();
+		int next = 0;
+		while (System.nanoTime() < deadline) {
+			managers.get(0).startNextRound();
+			GameRound round = game.getCurrentRound();
+
+			while ( ! round.hasEnded()) {
+				for (GameManager manager : managers) {
+					if (manager.playerWins() || manager.playerLoses()) {
+						continue;
+					}
+					manager.addGuess(DIGITS[next++ % 10]);
+					guesses++;
+				}
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+
+		if (report) {
+			System.out.printf("%8d %14.0f %14.1f%n", size, guesses / (elapsed / 1e9), elapsed / (double) guesses);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package bench;
+
+import server.IResponseWriter;
+import server.OutboundQueue;
+import server.Response;
+import server.ResponseEncoder;
+import server.ThreadPerSessionExecutor;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shows what a client that stops reading does to the other players of its room.
+ *
+ * <p>A room's lock is shared by a few players that guess every millisecond, and by the player of
+ * a client that never reads. That player's thread sends a message every millisecond while holding
+ * the lock, the way the game callbacks do. The connection is a real socket with small buffers, so
+ * it fills up quickly. Without a queue the write then blocks with the lock held, and the other
+ * players wait until the connection is closed at the end of the run. With an {@link OutboundQueue}
+ * the slow client's policy decides what happens to its messages and the others keep playing.
+ *
+ * <p>Usage: <pre>java -cp bin bench.SlowClientStall [seconds] [players]</pre>
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class SlowClientStall {
+
+	public static final int DEFAULT_SECONDS = 3;
+	public static final int DEFAULT_PLAYERS = 3;
+
+	private static final int BUFFER_SIZE = 4096;
+	private static final int CAPACITY = 64;
+	private static final String MESSAGE = String.join("", Collections.nCopies(16, "You guessed 5, "));
+
+
+	public static void main(String[] args) throws Exception {
+		int seconds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SECONDS;
+		int players = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PLAYERS;
+
+		System.out.printf("%d seconds per mode, %d players and one client that does not read%n", seconds, players);
+		System.out.printf("%-12s %10s %10s %12s %10s %10s %10s %12s%n", "mode", "guesses", "p99 us", "max ms",
+				"sent", "dropped", "merged", "disconnected");
+
+		run(null, seconds, players);
+		for (OutboundQueue.SlowClientPolicy policy : OutboundQueue.SlowClientPolicy.values()) {
+			run(policy, seconds, players);
+		}
+	}
+
+
+	/**
+	 * @param policy the slow client's policy, or null to write on the player's thread
+	 */
+	private static void run(OutboundQueue.SlowClientPolicy policy, int seconds, int players) throws Exception {
+		ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		Socket client = new Socket();
+		client.setReceiveBufferSize(BUFFER_SIZE);
+		client.connect(server.getLocalSocketAddress());
+		Socket connection = server.accept();
+		connection.setSendBufferSize(BUFFER_SIZE);
+		server.close();
+
+		OutboundQueue.Stats stats = new OutboundQueue.Stats();
+		IResponseWriter writer = new ResponseEncoder(connection.getOutputStream());
+		if (policy != null) {
+			OutboundQueue queue = new OutboundQueue(writer, connection, CAPACITY, policy, stats);
+			queue.start(new ThreadPerSessionExecutor());
+			writer = queue;
+		}
+
+		ReentrantLock lock = new ReentrantLock();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		AtomicLong sent = new AtomicLong();
+
+		// the slow client's player
+		IResponseWriter slow = writer;
+		Thread slowPlayer = new Thread(() -> {
+			while (System.nanoTime() < deadline) {
+				lock.lock();
+				try {
+					slow.write(Response.message(MESSAGE));
+					sent.incrementAndGet();
+				}
+				catch (IOException e) {
+					// disconnected
+					return;
+				}
+				finally {
+					lock.unlock();
+				}
+				pause();
+			}
+		}, "slow-player");
+
+		// the other players, each guess is timed from asking for the lock to giving it back
+		long[][] times = new long[players][(int) TimeUnit.SECONDS.toMillis(seconds) + 1];
+		int[] counts = new int[players];
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < players; p++) {
+			final int player = p;
+			threads.add(new Thread(() -> {
+				while (System.nanoTime() < deadline && counts[player] < times[player].length) {
+					long start = System.nanoTime();
+					lock.lock();
+					lock.unlock();
+					times[player][counts[player]++] = System.nanoTime() - start;
+					pause();
+				}
+			}, "player" + p));
+		}
+
+		slowPlayer.start();
+		threads.forEach(Thread::start);
+		Thread.sleep(TimeUnit.SECONDS.toMillis(seconds) + 500);
+
+		// a write stuck on the full connection only ends when it is closed
+		connection.close();
+		client.close();
+		slowPlayer.join();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		int count = 0;
+		for (int c : counts) {
+			count += c;
+		}
+		long[] all = new long[count];
+		int i = 0;
+		for (int p = 0; p < players; p++) {
+			System.arraycopy(times[p], 0, all, i, counts[p]);
+			i += counts[p];
+		}
+		Arrays.sort(all);
+
+		System.out.printf("%-12s %10d %10.1f %12.1f %10d %10d %10d %12d%n", policy == null ? "NO_QUEUE" : policy,
+				all.length, all[Math.min(all.length - 1, (int) (all.length * 0.99))] / 1e3, all[all.length - 1] / 1e6,
+				sent.get(), stats.getDropped(), stats.getCoalesced(), stats.getDisconnects());
+	}
+
+	private static void pause() {
+		try {
+			Thread.sleep(1);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
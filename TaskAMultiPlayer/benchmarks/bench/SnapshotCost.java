@@ -0,0 +1,235 @@
+package bench;
+
+import core.Game;
+import core.GameManager;
+import core.GameRound;
+import core.Player;
+import server.GameRoom;
+import server.GameStateStore;
+import server.RoomRegistry;
+import server.RoundCoordinator;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what keeping the game state with a {@link GameStateStore} costs the rounds.
+ *
+ * <p>Threads play rounds in their own rooms as fast as they can, through the same
+ * {@link RoomRegistry} and {@link RoundCoordinator} calls as the server processes, while a
+ * number of idle rooms stay in the middle of their round. Each mode runs for a few seconds:
+ * <ul>
+ * <li>NONE - no store</li>
+ * <li>LOG - every change is logged, no snapshots</li>
+ * <li>SNAPSHOT_x - changes are logged and a snapshot is written every x milliseconds</li>
+ * </ul>
+ * The idle rooms do not change, so after the first snapshot they are copied instead of written again.
+ *
+ * <p>Usage: <pre>java -cp bin bench.SnapshotCost [threads] [idleRooms] [seconds]</pre>
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class SnapshotCost {
+
+	public static final int DEFAULT_THREADS = 4;
+	public static final int DEFAULT_IDLE_ROOMS = 500;
+	public static final int DEFAULT_SECONDS = 3;
+
+	/**
+	 * Snapshot intervals in milliseconds. 0 means no store, -1 a store without snapshots
+	 */
+	public static final long[] INTERVALS = { 0, -1, 1000, 100, 10 };
+
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_THREADS;
+		int idle = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_IDLE_ROOMS;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SECONDS;
+
+		System.out.printf("%d threads, %d idle rooms, %d seconds per mode%n", threads, idle, seconds);
+		System.out.printf("%-14s %10s %12s %10s %14s %14s %13s %14s%n", "mode", "rounds/s", "guesses/s",
+				"snapshots", "avg snapshot", "rooms written", "rooms copied", "snapshot size");
+
+		// warm up the JIT
+		measure(INTERVALS[1], threads, idle, 1, false);
+		for (long interval : INTERVALS) {
+			measure(interval, threads, idle, seconds, true);
+		}
+	}
+
+
+	private static void measure(long interval, int threads, int idle, int seconds, boolean report) throws Exception {
+		File dir = Files.createTempDirectory("snapshot-cost").toFile();
+		RoomRegistry rooms = new RoomRegistry(Game::new);
+
+		GameStateStore store = null;
+		if (interval != 0) {
+			store = new GameStateStore(dir, rooms, Math.max(1, interval));
+			store.recover();
+		}
+
+		for (int i = 0; i < idle; i++) {
+			Round round = new Round(rooms);
+			round.guess(0, "11");
+		}
+
+		long[] counts = new long[threads * 2];
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		List<Thread> players = new ArrayList<>();
+
+		if (store != null && interval > 0) {
+			store.start();
+		}
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			final int id = t;
+			Thread player = new Thread(() -> {
+				try {
+					while (System.nanoTime() < deadline) {
+						counts[id * 2 + 1] += play(rooms);
+						counts[id * 2]++;
+					}
+				}
+				catch (Exception e) {
+					System.out.println("thread " + id + " failed: " + e);
+				}
+			});
+			player.start();
+			players.add(player);
+		}
+		for (Thread player : players) {
+			player.join();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		if (store != null) {
+			store.close();
+		}
+		for (File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+
+		long rounds = 0;
+		long guesses = 0;
+		for (int t = 0; t < threads; t++) {
+			rounds += counts[t * 2];
+			guesses += counts[t * 2 + 1];
+		}
+
+		if ( ! report) {
+			return;
+		}
+		String mode = interval == 0 ? "NONE" : interval < 0 ? "LOG" : "SNAPSHOT_" + interval;
+		double perSecond = TimeUnit.SECONDS.toNanos(1) / (double) elapsed;
+		if (store == null) {
+			System.out.printf("%-14s %10.0f %12.0f%n", mode, rounds * perSecond, guesses * perSecond);
+			return;
+		}
+		System.out.printf("%-14s %10.0f %12.0f %10d %11.2f ms %14d %13d %11d KB%n", mode,
+				rounds * perSecond, guesses * perSecond,
+				store.getSnapshots(), store.getAverageSnapshotMillis(),
+				store.getRoomsWritten(), store.getRoomsCopied(), store.getLastSnapshotBytes() / 1024);
+	}
+
+	/**
+	 * Plays one round in a new room until everyone has won or lost, then every player leaves
+	 *
+	 * @return the number of guesses
+	 */
+	private static int play(RoomRegistry rooms) throws Exception {
+		Round round = new Round(rooms);
+
+		int guesses = 0;
+		int next = 0;
+		while ( ! round.hasEnded()) {
+			for (int p = 0; p < Game.MIN_PLAYERS; p++) {
+				if (round.guess(p, Integer.toString(next++ % 10))) {
+					guesses++;
+				}
+			}
+		}
+		round.leave();
+		return guesses;
+	}
+
+
+	/**
+	 * A room with its players, as the server processes would see it
+	 */
+	static class Round {
+
+		RoomRegistry rooms;
+		GameRoom room;
+		List<GameManager> managers = new ArrayList<>();
+
+		Round(RoomRegistry rooms) throws Exception {
+			this.rooms = rooms;
+
+			List<Player> players = new ArrayList<>();
+			for (int p = 0; p < Game.MIN_PLAYERS; p++) {
+				players.add(new Player("player" + p));
+			}
+			room = rooms.open(players);
+
+			room.getLock().lock();
+			try {
+				for (Player player : players) {
+					GameManager manager = new GameManager(room.getGame());
+					manager.setCurrentPlayer(player);
+					room.getCoordinator().startRound(manager);
+					managers.add(manager);
+				}
+			}
+			finally {
+				room.getLock().unlock();
+			}
+		}
+
+		/**
+		 * @return false if the player has finished the round already
+		 */
+		boolean guess(int player, String guess) {
+			GameManager manager = managers.get(player);
+			room.getLock().lock();
+			try {
+				GameRound round = room.getCoordinator().getRound();
+				if (round.hasEnded() || manager.playerWins() || manager.playerLoses()) {
+					return false;
+				}
+				room.getCoordinator().addGuess(manager, guess);
+				return true;
+			}
+			finally {
+				room.getLock().unlock();
+			}
+		}
+
+		boolean hasEnded() {
+			room.getLock().lock();
+			try {
+				return room.getCoordinator().getPhase() == RoundCoordinator.Phase.RESULTS;
+			}
+			finally {
+				room.getLock().unlock();
+			}
+		}
+
+		void leave() {
+			for (GameManager manager : managers) {
+				room.getLock().lock();
+				try {
+					room.getCoordinator().leave(manager);
+				}
+				finally {
+					room.getLock().unlock();
+				}
+				rooms.leave(room);
+			}
+		}
+	}
+}
@@ -0,0 +1,242 @@
+package bench;
+
+import core.Game;
+import core.GameManager;
+import core.GameRound;
+import server.GameRoom;
+import server.Lobby;
+import server.RoomRegistry;
+import server.RoundCoordinator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Measures how often players are woken while they wait for each other, with the same rounds
+ * played two ways:
+ * <ul>
+ * <li>SHARED - one lock and one condition for the whole server, signalled on every state change.
+ * This is how players waited for each other before rooms and the {@link RoundCoordinator}. Every
+ * waiting player wakes up, checks whether the change was for them and goes back to sleep.</li>
+ * <li>COORDINATOR - one lock per room, and the room's {@link RoundCoordinator} only wakes the
+ * players of the room when their round ends.</li>
+ * </ul>
+ *
+ * <p>In both modes the players are matched by the {@link Lobby}, play one round in the room
+ * it opens for them and go back to the queue, like a {@code ServerProcess} does. The lobby
+ * metrics are printed too.
+ *
+ * <p>Players run in-process without sockets, so the numbers are only the coordination. Waits are
+ * the number of times a player thread parked (see {@link ThreadInfo#getWaitedCount()}), which counts
+ * waiting in the lobby, waiting for other players and waiting for the lock.
+ *
+ * <p>Usage: <pre>java -cp bin bench.WakeUpStorm [rooms] [playersPerRoom] [rounds]</pre>
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class WakeUpStorm {
+
+	public static final int DEFAULT_ROUNDS = 2000;
+	public static final int RUNS = 2;
+
+	// only the last few players can be left without a full match
+	public static final int MAX_WAIT_MILLIS = 100;
+
+	enum Mode {
+		SHARED,
+		COORDINATOR
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 2 * Runtime.getRuntime().availableProcessors();
+		int players = args.length > 1 ? Integer.parseInt(args[1]) : Game.MAX_PLAYERS;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ROUNDS;
+
+		System.out.printf("%d rooms, %d players per room, %d rounds per player%n", rooms, players, rounds);
+		System.out.printf("%-12s %10s %12s %22s %16s %14s%n", "mode", "time", "rounds/s",
+				"waits per player-round", "avg match wait", "max queue");
+
+		// the first runs warm up the JIT
+		for (int run = 0; run < RUNS; run++) {
+			for (Mode mode : Mode.values()) {
+				measure(mode, rooms, players, rounds);
+			}
+		}
+	}
+
+
+	private static void measure(Mode mode, int rooms, int players, int rounds) throws Exception {
+		Lobby lobby = new Lobby(new RoomRegistry(Game::new), players, MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+		Server server = mode == Mode.SHARED ? new Server(new ReentrantLock()) : new Server(null);
+
+		long[] waits = new long[rooms * players];
+		List<Thread> threads = new ArrayList<>();
+
+		lobby.start();
+		long start = System.nanoTime();
+		for (int i = 0; i < waits.length; i++) {
+			final int id = i;
+			Thread player = new Thread(() -> {
+				try {
+					GameManager manager = new GameManager(null);
+					manager.signUpPlayer("player" + id);
+					waits[id] = play(lobby, server, manager, id, rounds);
+				}
+				catch (Exception e) {
+					System.out.println("player" + id + " failed: " + e);
+				}
+			});
+			player.start();
+			threads.add(player);
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long elapsed = System.nanoTime() - start;
+		lobby.close();
+
+		long totalWaits = 0;
+		for (long w : waits) {
+			totalWaits += w;
+		}
+
+		System.out.printf("%-12s %7d ms %12.0f %22.2f %13.2f ms %14d%n", mode,
+				TimeUnit.NANOSECONDS.toMillis(elapsed),
+				(double) lobby.getMatches() / elapsed * TimeUnit.SECONDS.toNanos(1),
+				(double) totalWaits / waits.length / rounds,
+				lobby.getAverageTimeToMatchMillis(),
+				lobby.getMaxQueueDepth());
+	}
+
+
+	/**
+	 * Same steps as ServerProcess.run(), without the client.
+	 *
+	 * @return the number of times the thread has waited
+	 */
+	private static long play(Lobby lobby, Server server, GameManager manager, int id, int rounds) throws Exception {
+		for (int played = 1; played <= rounds; played++) {
+			GameRoom room = lobby.enqueue(manager.getCurrentPlayer(), null).awaitMatch();
+			manager.setGame(room.getGame());
+			RoundCoordinator coordinator = room.getCoordinator();
+			GameRound round;
+
+			server.lock(room);
+			try {
+				round = coordinator.startRound(manager);
+				server.changed();
+			}
+			finally {
+				server.unlock(room);
+			}
+
+			boolean finished;
+			int guess = id;
+			do {
+				server.lock(room);
+				try {
+					manager.addGuess(Integer.toString(guess++ % 10));
+					coordinator.checkRoundEnded();
+					if (round.hasEnded()) {
+						server.changed();
+					}
+					finished = manager.playerWins() || manager.playerLoses();
+				}
+				finally {
+					server.unlock(room);
+				}
+			} while ( ! finished);
+
+			server.lock(room);
+			try {
+				server.awaitRoundEnd(room, round);
+
+				if (played == rounds) {
+					manager.quitPlayer();
+				}
+				else {
+					manager.chooseToContinue();
+				}
+				coordinator.leave(manager);
+				server.changed();
+			}
+			finally {
+				server.unlock(room);
+			}
+			lobby.getRooms().leave(room);
+		}
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		return threads.getThreadInfo(Thread.currentThread().getId()).getWaitedCount();
+	}
+
+
+	/**
+	 * How players wait for each other. In SHARED mode every room is also guarded by the
+	 * server's lock and players wait on the server's condition instead of the coordinator's.
+	 */
+	static class Server {
+
+		// null in COORDINATOR mode
+		ReentrantLock lock;
+		Condition shared;
+
+		Server(ReentrantLock lock) {
+			this.lock = lock;
+			this.shared = lock != null ? lock.newCondition() : null;
+		}
+
+		void lock(GameRoom room) {
+			if (lock != null) {
+				lock.lock();
+			}
+			room.getLock().lock();
+		}
+
+		void unlock(GameRoom room) {
+			room.getLock().unlock();
+			if (lock != null) {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Something changed, wake every waiting player on the server in SHARED mode
+		 */
+		void changed() {
+			if (shared != null) {
+				shared.signalAll();
+			}
+		}
+
+		/**
+		 * Must be called while holding both locks from {@link #lock(GameRoom)}
+		 */
+		void awaitRoundEnd(GameRoom room, GameRound round) throws InterruptedException {
+			if (shared == null) {
+				room.getCoordinator().awaitRoundEnd(round);
+				return;
+			}
+
+			// the room's lock is taken after the server's, so it cannot be held while waiting
+			room.getLock().unlock();
+			try {
+				while ( ! round.hasEnded()) {
+					shared.await();
+				}
+			}
+			finally {
+				room.getLock().lock();
+			}
+		}
+	}
+}
@@ -0,0 +1,257 @@
+package bench;
+
+import core.Game;
+import core.GameRound;
+import core.Player;
+import server.IResponseWriter;
+import server.ObjectResponseWriter;
+import server.Response;
+import server.ResponseDecoder;
+import server.ResponseEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmarks of encoding and decoding {@link Response}s, run with {@link Microbenchmark}.
+ *
+ * <p>Every encoding writes and reads batches of {@link ObjectResponseWriter#DEFAULT_RESET_INTERVAL}
+ * responses, so the serialized stream is reset once per batch as the server does. Each response and its
+ * message are new objects, as the server builds most messages when it sends them, otherwise serialization
+ * would only write a reference to the string it wrote before. BINARY_SHARED is the exception, one response
+ * is sent again and again like the results of a round. An operation is one response.
+ * <ul>
+ * <li>SERIALIZED - Java serialization, the original protocol</li>
+ * <li>SERIALIZED_RESET - Java serialization with the stream reset after every response</li>
+ * <li>BINARY - binary frames with UTF-8 messages ({@link ResponseEncoder}, {@link ResponseDecoder})</li>
+ * <li>BINARY_SHARED - binary frames of a shared response, encoded once</li>
+ * <li>DATA - a type byte and {@link DataOutputStream#writeUTF(String)}, the simplest alternative</li>
+ * </ul>
+ * The messages go from a short prompt to the results of ten rounds. The bytes each response takes on
+ * the wire are printed before the benchmarks.
+ *
+ * <p>Usage: <pre>java -cp bin bench.WireFormatBenchmarks [filter] [iterations] [iteration ms]</pre>
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class WireFormatBenchmarks {
+
+	public static final int BATCH = ObjectResponseWriter.DEFAULT_RESET_INTERVAL;
+
+	enum Encoding {
+		SERIALIZED,
+		SERIALIZED_RESET,
+		BINARY,
+		BINARY_SHARED,
+		DATA
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		Map<String, Response> messages = messages();
+
+		System.out.println("Bytes per response on the wire");
+		System.out.printf("%-18s %8s", "encoding", "chars");
+		for (String name : messages.keySet()) {
+			System.out.printf(" %10s", name);
+		}
+		System.out.println();
+		System.out.printf("%-18s %8s", "", "");
+		for (Response message : messages.values()) {
+			System.out.printf(" %10d", message.getMessage().length());
+		}
+		System.out.println();
+		for (Encoding encoding : Encoding.values()) {
+			System.out.printf("%-18s %8s", encoding.toString().toLowerCase(), "");
+			for (Response message : messages.values()) {
+				System.out.printf(" %10.1f", wireBytes(encoding, message));
+			}
+			System.out.println();
+		}
+		System.out.println();
+
+		Microbenchmark benchmarks = new Microbenchmark("wire format");
+		for (Encoding encoding : Encoding.values()) {
+			for (Map.Entry<String, Response> message : messages.entrySet()) {
+				benchmarks.add("encode." + encoding.toString().toLowerCase() + "." + message.getKey(),
+						() -> encode(encoding, message.getValue()));
+			}
+		}
+		for (Encoding encoding : Encoding.values()) {
+			// a shared response is read like any other
+			if (encoding == Encoding.BINARY_SHARED) {
+				continue;
+			}
+			for (Map.Entry<String, Response> message : messages.entrySet()) {
+				benchmarks.add("decode." + encoding.toString().toLowerCase() + "." + message.getKey(),
+						() -> decode(encoding, message.getValue()));
+			}
+		}
+
+		benchmarks.run(args);
+		if (benchmarks.getRegressions() > 0) {
+			System.exit(1);
+		}
+	}
+
+
+	/**
+	 * The messages the server sends, from short to long
+	 */
+	private static Map<String, Response> messages() throws Exception {
+		Game game = new Game();
+		List<Player> players = new ArrayList<>();
+		for (int p = 0; p < Game.MAX_PLAYERS; p++) {
+			players.add(game.signUpPlayer("player" + p));
+		}
+
+		GameRound round = new GameRound("5");
+		for (Player player : players) {
+			round.addPlayer(player);
+		}
+		round.addGuess(players.get(0), "3");
+		round.addGuess(players.get(0), "5");
+		round.addGuess(players.get(1), "5");
+		round.forfeit(players.get(2));
+		round.end();
+		String results = round.getResult().getResponse().getMessage();
+
+		Map<String, Response> messages = new LinkedHashMap<>();
+		messages.put("prompt", Response.readLine("Enter your guess: "));
+		messages.put("hint", Response.message("Your guess 8 is bigger than the generated number"));
+		messages.put("results", Response.message(results));
+		messages.put("history", Response.message(String.join("", Collections.nCopies(10, results))));
+		return messages;
+	}
+
+	private static IResponseWriter writer(Encoding encoding, OutputStream out) throws IOException {
+		switch (encoding) {
+			case SERIALIZED:
+				return new ObjectResponseWriter(new ObjectOutputStream(out), ObjectResponseWriter.DEFAULT_RESET_INTERVAL);
+			case SERIALIZED_RESET:
+				return new ObjectResponseWriter(new ObjectOutputStream(out), 1);
+			case DATA:
+				DataOutputStream data = new DataOutputStream(out);
+				return new IResponseWriter() {
+					@Override
+					public void write(Response response) throws IOException {
+						data.writeByte(response.getType());
+						data.writeUTF(response.getMessage());
+						data.flush();
+					}
+
+					@Override
+					public void close() throws IOException {
+						data.close();
+					}
+				};
+			default:
+				return new ResponseEncoder(out);
+		}
+	}
+
+	/**
+	 * Reads responses of the encoding
+	 */
+	interface Reader {
+
+		Response read() throws Exception;
+	}
+
+	private static Reader reader(Encoding encoding, InputStream in) throws IOException {
+		switch (encoding) {
+			case SERIALIZED:
+			case SERIALIZED_RESET:
+				ObjectInputStream objects = new ObjectInputStream(in);
+				return () -> (Response) objects.readObject();
+			case DATA:
+				DataInputStream data = new DataInputStream(in);
+				return () -> {
+					int type = data.readByte();
+					return new Response(data.readUTF(), type);
+				};
+			default:
+				ResponseDecoder decoder = new ResponseDecoder(in);
+				return decoder::read;
+		}
+	}
+
+	/**
+	 * Gets the response to write. Every response and message is new, except a shared one
+	 */
+	private static Response copy(Encoding encoding, Response message) {
+		if (encoding == Encoding.BINARY_SHARED) {
+			return message;
+		}
+		return new Response(new String(message.getMessage()), message.getType());
+	}
+
+	private static Response shared(Encoding encoding, Response message) {
+		return encoding == Encoding.BINARY_SHARED ? Response.shared(message.getMessage()) : message;
+	}
+
+
+	/**
+	 * Gets the bytes per response once the stream is past its header
+	 */
+	private static double wireBytes(Encoding encoding, Response message) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		IResponseWriter writer = writer(encoding, out);
+		Response response = shared(encoding, message);
+
+		writer.write(copy(encoding, response));
+		out.reset();
+		for (int i = 0; i < BATCH * 4; i++) {
+			writer.write(copy(encoding, response));
+		}
+		return out.size() / (double) (BATCH * 4);
+	}
+
+	private static Microbenchmark.Operation encode(Encoding encoding, Response message) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		IResponseWriter writer = writer(encoding, out);
+		Response response = shared(encoding, message);
+
+		return () -> {
+			for (int i = 0; i < BATCH; i++) {
+				writer.write(copy(encoding, response));
+			}
+			Microbenchmark.consume(out.size());
+			out.reset();
+			return BATCH;
+		};
+	}
+
+	/**
+	 * Reads a batch the way a client that has just connected would, header and all
+	 */
+	private static Microbenchmark.Operation decode(Encoding encoding, Response message) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		IResponseWriter writer = writer(encoding, out);
+		for (int i = 0; i < BATCH; i++) {
+			writer.write(copy(encoding, message));
+		}
+		byte[] batch = out.toByteArray();
+
+		return () -> {
+			Reader reader = reader(encoding, new ByteArrayInputStream(batch));
+			for (int i = 0; i < BATCH; i++) {
+				Microbenchmark.consume(reader.read().getMessage());
+			}
+			return BATCH;
+		};
+	}
+}
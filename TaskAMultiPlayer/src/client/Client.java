@@ -1,6 +1,8 @@
 package client;
 
+import server.Protocol;
 import server.Response;
+import server.ResponseDecoder;
 
 import java.io.*;
 import java.net.InetSocketAddress;
@@ -8,9 +10,10 @@ import java.net.Socket;
 import java.net.UnknownHostException;
 
 /**
- * Class the represent the player's client machine. This client expects to receive serialized form of server.Response object. 
+ * Class the represent the player's client machine. This client expects to receive server.Response objects, 
+ * either as binary frames (see {@link ResponseDecoder}) or in serialized form for servers using the old protocol. 
  * <p>Note: You must compile the whole project and not only this file.
- * <p>After the client deserialized the payload, it can do one of these 3 commands:<ul>
+ * <p>After the client decoded the payload, it can do one of these 3 commands:<ul>
  * <li>PRINTMESSAGE - Tells the client to print message to the screen</li>
  * <li>READLINE -  Read inputs from the console and send the contents via output stream.</li>
  * <li>QUIT - Tells the client to quit the program</li></ul>
@@ -28,17 +31,24 @@ public class Client {
 	// passing the second argument into the main(String[] args)
 	public static final int DEFAULT_SERVER_PORT = 61995;
 	
+	// Highest protocol version this client asks for. You can pass "serialized" 
+	// as the third argument to use Java serialization instead
+	public static final int DEFAULT_PROTOCOL_VERSION = Protocol.LATEST_VERSION;
+	
 
-	// You can pass 2 arguments, 
+	// You can pass 3 arguments, 
 	// - the first one is the host name
 	// - the second is the port number to listen from
+	// - the third is the protocol ("binary" or "serialized")
 	public static void main(String[] args) {
 		
 		int port = getPortNumber(args);
 		String host = getHostAddress(args);
+		int protocolVersion = getProtocolVersion(args);
 		
 		Socket socket = null;
 		ObjectInputStream objectInputStream = null;
+		ResponseDecoder decoder = null;
 		PrintWriter writer = null;
 		BufferedReader console = null;
 		
@@ -50,8 +60,17 @@ public class Client {
 			socket.setSoTimeout(60 * 1000);
 			System.out.println("Connected to " + host + " on port " + port);
 			
-			// client will receive an instance of server.Response object in serialized form
-			objectInputStream = new ObjectInputStream(socket.getInputStream());
+			// agree on the protocol with the server
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			int version = Protocol.clientHello(in, socket.getOutputStream(), protocolVersion);
+			
+			// client will receive instances of server.Response object as binary frames or in serialized form
+			if (version == Protocol.VERSION_BINARY) {
+				decoder = new ResponseDecoder(in);
+			}
+			else {
+				objectInputStream = new ObjectInputStream(in);
+			}
 			
 			// this client will send normal sequence of characters to the server
 			writer = new PrintWriter(socket.getOutputStream(), true);
@@ -61,7 +80,7 @@ public class Client {
 			Response command;
 			
 			do {
-				command = (Response) objectInputStream.readObject();
+				command = decoder != null ? decoder.read() : (Response) objectInputStream.readObject();
 				
 				// print response's message and read input from console
 				if (command.getType() == Response.READLINE) {
@@ -103,6 +122,7 @@ public class Client {
 				if (console != null) console.close();
 				if (writer != null) writer.close();
 				if (objectInputStream != null) objectInputStream.close();
+				if (decoder != null) decoder.close();
 				if (socket != null) socket.close();
 				
 				System.out.println("Connection closed.");
@@ -156,4 +176,26 @@ public class Client {
 		
 		return portNumber;
 	}
+	
+	
+	/**
+	 * Gets the protocol version from command line arguments. 
+	 * The protocol must be the third command line argument
+	 * 
+	 * @param args
+	 * @return int
+	 */
+	public static int getProtocolVersion(String[] args) {
+		if (args.length < 3) {
+			return DEFAULT_PROTOCOL_VERSION;
+		}
+		
+		if (args[2].equalsIgnoreCase("serialized")) {
+			return Protocol.VERSION_SERIALIZED;
+		}
+		if ( ! args[2].equalsIgnoreCase("binary")) {
+			System.err.printf("%s is not a valid protocol", args[2]);
+		}
+		return DEFAULT_PROTOCOL_VERSION;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,372 @@
+package client;
+
+import server.Protocol;
+import server.Response;
+import server.ResponseDecoder;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client that plays as many players at once, to put load on the server.
+ *
+ * <p>Each simulated player has a connection and a thread of its own, and answers the server's prompts
+ * the way {@link Client} would with a person at the keyboard: it signs up, guesses with a
+ * {@link Strategy}, and continues until it has played its rounds, then quits. Before every answer it
+ * waits for a random think time, on average the one given.
+ *
+ * <p>The time from sending an answer to getting the next prompt is measured for every answer.
+ * At the end the connection rate, the rounds per second and the percentiles of those times are printed.
+ * It only connects to the server on this machine.
+ *
+ * <p>Usage: <pre>java -cp bin client.LoadGenerator [players] [rounds] [think ms] [strategy] [protocol] [port]</pre>
+ * The strategy is random, sequential or bisect, the protocol binary, serialized or mixed.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class LoadGenerator {
+
+	public static final int DEFAULT_PLAYERS = 30;
+	public static final int DEFAULT_ROUNDS = 5;
+	public static final long DEFAULT_THINK_MILLIS = 200;
+
+	/**
+	 * How long a player waits for the server before giving up. The lobby may take 20 seconds to match
+	 */
+	public static final int TIMEOUT_MILLIS = 60 * 1000;
+
+	/**
+	 * How the simulated players guess
+	 * <ul>
+	 * <li>RANDOM - any number from 0 to 9, ignoring the hints</li>
+	 * <li>SEQUENTIAL - 0, 1, 2... like the test bots</li>
+	 * <li>BISECT - the middle of the numbers the hints have left, it nearly always wins</li>
+	 * </ul>
+	 */
+	public enum Strategy {
+		RANDOM,
+		SEQUENTIAL,
+		BISECT
+	}
+
+	/**
+	 * Answers the latencies are kept by. The time of an answer ends with the next prompt, so
+	 * the name includes waiting in the lobby, the last guess includes waiting for the others
+	 * to finish and continuing includes the lobby again
+	 */
+	enum Answer {
+		NAME,
+		GUESS,
+		LAST_GUESS,
+		CONTINUE
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		int players = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PLAYERS;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+		long think = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_THINK_MILLIS;
+		Strategy strategy = args.length > 3 ? Strategy.valueOf(args[3].trim().toUpperCase()) : Strategy.BISECT;
+		String protocol = args.length > 4 ? args[4].trim().toLowerCase() : "binary";
+		int port = args.length > 5 ? Integer.parseInt(args[5]) : Client.DEFAULT_SERVER_PORT;
+
+		System.out.printf("%d players, %d rounds each, %d ms think time, %s guesses, %s protocol, port %d\n",
+				players, rounds, think, strategy.toString().toLowerCase(), protocol, port);
+
+		// names differ between runs, so players are not taken back to rooms a restarted server restored
+		String run = Long.toString(System.currentTimeMillis() % 100_000, 36);
+		InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+
+		List<SimulatedPlayer> simulated = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int i = 0; i < players; i++) {
+			boolean binary = protocol.equals("binary") || (protocol.equals("mixed") && i % 2 == 0);
+			SimulatedPlayer player = new SimulatedPlayer("load" + run + "-" + i, address, binary, strategy, think, rounds);
+			Thread thread = new Thread(null, player, player.name, 256 * 1024);
+			thread.start();
+			simulated.add(player);
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		report(simulated, start, System.nanoTime());
+	}
+
+
+	private static void report(List<SimulatedPlayer> players, long start, long end) {
+		int connected = 0;
+		int failed = 0;
+		long lastConnected = 0;
+		long playerRounds = 0;
+		long wins = 0;
+		double rounds = 0;
+		Map<Answer, Latencies> latencies = new EnumMap<>(Answer.class);
+		for (Answer answer : Answer.values()) {
+			latencies.put(answer, new Latencies());
+		}
+
+		for (SimulatedPlayer player : players) {
+			if (player.connectedAt > 0) {
+				connected++;
+				lastConnected = Math.max(lastConnected, player.connectedAt);
+			}
+			if (player.error != null) {
+				failed++;
+				System.err.printf("%s: %s\n", player.name, player.error);
+			}
+			playerRounds += player.rounds;
+			wins += player.wins;
+			rounds += player.roundShare;
+			for (Answer answer : Answer.values()) {
+				latencies.get(answer).addAll(player.latencies.get(answer));
+			}
+		}
+
+		double seconds = (end - start) / 1e9;
+		double connectSeconds = connected > 0 ? (lastConnected - start) / 1e9 : 0;
+		System.out.printf("Connected %d players in %.2f s (%.0f connections/s), %d failed\n",
+				connected, connectSeconds, connected / Math.max(connectSeconds, 1e-3), failed);
+		System.out.printf("Played %.0f rounds in %.1f s (%.2f rounds/s), %d player rounds, %d won\n",
+				rounds, seconds, rounds / seconds, playerRounds, wins);
+
+		System.out.printf("%-12s %8s %10s %10s %10s %10s\n", "answer", "count", "p50 ms", "p90 ms", "p99 ms", "max ms");
+		for (Answer answer : Answer.values()) {
+			Latencies times = latencies.get(answer);
+			if (times.size == 0) {
+				continue;
+			}
+			times.sort();
+			System.out.printf("%-12s %8d %10.2f %10.2f %10.2f %10.2f\n", answer.toString().toLowerCase(), times.size,
+					times.percentile(0.50) / 1e6, times.percentile(0.90) / 1e6, times.percentile(0.99) / 1e6,
+					times.percentile(1.0) / 1e6);
+		}
+	}
+
+
+	/**
+	 * One player with its own connection
+	 */
+	static class SimulatedPlayer implements Runnable {
+
+		final String name;
+		private InetSocketAddress address;
+		private boolean binary;
+		private Strategy strategy;
+		private long think;
+		private int roundsToPlay;
+
+		// results, read once the thread has ended
+		long connectedAt;
+		int rounds = 0;
+		int wins = 0;
+		double roundShare = 0;
+		Exception error;
+		Map<Answer, Latencies> latencies = new EnumMap<>(Answer.class);
+
+		// the numbers the code can still be, for BISECT
+		private int low;
+		private int high;
+		private int guesses;
+
+		SimulatedPlayer(String name, InetSocketAddress address, boolean binary, Strategy strategy, long think, int roundsToPlay) {
+			this.name = name;
+			this.address = address;
+			this.binary = binary;
+			this.strategy = strategy;
+			this.think = think;
+			this.roundsToPlay = roundsToPlay;
+			for (Answer answer : Answer.values()) {
+				latencies.put(answer, new Latencies());
+			}
+		}
+
+		@Override
+		public void run() {
+			try (Socket socket = new Socket()) {
+				socket.connect(address, TIMEOUT_MILLIS);
+				socket.setSoTimeout(TIMEOUT_MILLIS);
+
+				InputStream in = new BufferedInputStream(socket.getInputStream());
+				int version = Protocol.clientHello(in, socket.getOutputStream(),
+						binary ? Protocol.VERSION_BINARY : Protocol.VERSION_SERIALIZED);
+				ResponseDecoder decoder = version == Protocol.VERSION_BINARY ? new ResponseDecoder(in) : null;
+				ObjectInputStream objects = decoder == null ? new ObjectInputStream(in) : null;
+				PrintWriter writer = new PrintWriter(socket.getOutputStream(), true);
+				connectedAt = System.nanoTime();
+
+				play(decoder, objects, writer);
+			}
+			catch (Exception e) {
+				error = e;
+			}
+		}
+
+		private void play(ResponseDecoder decoder, ObjectInputStream objects, PrintWriter writer) throws Exception {
+			Answer answered = null;
+			long answeredAt = 0;
+
+			while (true) {
+				Response response = decoder != null ? decoder.read() : (Response) objects.readObject();
+				String message = response.getMessage();
+
+				if (response.getType() == Response.PRINTMESSAGE) {
+					onMessage(message);
+					continue;
+				}
+
+				// the answer before this prompt is done
+				boolean guessPrompt = message.startsWith("Enter your guess");
+				if (answered != null) {
+					Answer kind = answered == Answer.GUESS && ! guessPrompt ? Answer.LAST_GUESS : answered;
+					latencies.get(kind).add(System.nanoTime() - answeredAt);
+				}
+				if (response.getType() == Response.QUIT) {
+					return;
+				}
+
+				String answer;
+				if (message.startsWith("Enter your name")) {
+					answered = Answer.NAME;
+					answer = name;
+				}
+				else if (guessPrompt) {
+					answered = Answer.GUESS;
+					answer = Integer.toString(guess());
+				}
+				else if (message.startsWith("Press (p)")) {
+					answered = Answer.CONTINUE;
+					answer = ++rounds < roundsToPlay ? "p" : "q";
+				}
+				else {
+					throw new IOException("Unexpected prompt: " + message);
+				}
+
+				pause();
+				answeredAt = System.nanoTime();
+				writer.println(answer);
+			}
+		}
+
+		/**
+		 * Follows the round from the server's messages
+		 *
+		 * @param message
+		 */
+		private void onMessage(String message) {
+			if (message.startsWith("----------------ROUND STARTED")) {
+				low = 0;
+				high = 9;
+				guesses = 0;
+				roundShare += 1.0 / roundSize(message);
+			}
+			else if (message.startsWith("YOU WIN")) {
+				wins++;
+			}
+			else if (message.startsWith("Your guess ")) {
+				int guess = Integer.parseInt(message.substring("Your guess ".length(), message.indexOf(' ', "Your guess ".length())));
+				if (message.contains("bigger")) {
+					high = Math.min(high, guess - 1);
+				}
+				else if (message.contains("smaller")) {
+					low = Math.max(low, guess + 1);
+				}
+			}
+		}
+
+		/**
+		 * Gets the number of players from the message that announces the round
+		 *
+		 * @param message
+		 * @return
+		 */
+		private static int roundSize(String message) {
+			// a mass round gives the number, a small one lists every player
+			int players = message.indexOf(" players are guessing");
+			if (players > 0) {
+				int start = message.lastIndexOf(' ', players - 1) + 1;
+				return Integer.parseInt(message.substring(start, players));
+			}
+
+			int size = 0;
+			for (String line : message.split("\n")) {
+				if (line.startsWith(" - ")) {
+					size++;
+				}
+			}
+			return Math.max(1, size);
+		}
+
+		private int guess() {
+			int attempt = guesses++;
+			switch (strategy) {
+				case SEQUENTIAL:
+					return attempt % 10;
+				case BISECT:
+					return high < low ? low : (low + high) / 2;
+				default:
+					return ThreadLocalRandom.current().nextInt(10);
+			}
+		}
+
+		/**
+		 * Waits for a random time from 0 to twice the think time
+		 */
+		private void pause() throws InterruptedException {
+			if (think > 0) {
+				TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(2 * think + 1));
+			}
+		}
+	}
+
+
+	/**
+	 * Times in nanoseconds
+	 */
+	static class Latencies {
+
+		long[] values = new long[64];
+		int size = 0;
+
+		void add(long value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		void addAll(Latencies other) {
+			for (int i = 0; i < other.size; i++) {
+				add(other.values[i]);
+			}
+		}
+
+		void sort() {
+			Arrays.sort(values, 0, size);
+		}
+
+		/**
+		 * @param p from 0 to 1, 1 is the largest
+		 * @return
+		 */
+		long percentile(double p) {
+			return values[Math.min(size - 1, (int) (size * p))];
+		}
+	}
+}
@@ -17,11 +17,26 @@ public class Game {
 	public static final int MIN_PLAYERS = 3;
 	
 	/**
-	 * Many rounds per game
+	 * Most players a mass round can have, see {@link #setMaxPlayers(int)}
+	 */
+	public static final int MAX_MASS_PLAYERS = 10_000;
+	
+	/**
+	 * Number of rounds a game keeps in memory unless told otherwise
+	 */
+	public static final int DEFAULT_RETAINED_ROUNDS = 16;
+	
+	/**
+	 * Many rounds per game. Only the last rounds are kept, see {@link #setRetention(int, IRoundArchive)}
 	 */
 	List<GameRound> rounds = new ArrayList<>();
 	private GameRound currentRound;
 	
+	private int retainedRounds = DEFAULT_RETAINED_ROUNDS;
+	private IRoundArchive archive;
+	
+	private int maxPlayers = MAX_PLAYERS;
+	
 	/**
 	 * Many players per game
 	 */
@@ -34,6 +49,55 @@ public class Game {
 	public void start() {
 		
 	}
+	
+	/**
+	 * Sets how many rounds the game keeps in memory. When a new round starts, the oldest rounds 
+	 * are given to the archive, or dropped if there is no archive. 
+	 * The current round is always kept
+	 * 
+	 * @param retainedRounds at least 1
+	 * @param archive may be null
+	 */
+	public void setRetention(int retainedRounds, IRoundArchive archive) {
+		this.retainedRounds = Math.max(1, retainedRounds);
+		this.archive = archive;
+	}
+	
+	/**
+	 * Sets how many players can sign up to the game. Games of more than {@link #MAX_PLAYERS} 
+	 * players are mass rounds, where everyone guesses the same code at the same time
+	 * 
+	 * @param maxPlayers from {@link #MIN_PLAYERS} to {@link #MAX_MASS_PLAYERS}
+	 */
+	public void setMaxPlayers(int maxPlayers) {
+		this.maxPlayers = Math.max(MIN_PLAYERS, Math.min(MAX_MASS_PLAYERS, maxPlayers));
+	}
+	
+	public int getMaxPlayers() {
+		return maxPlayers;
+	}
+	
+	/**
+	 * Gets the rounds kept in memory, oldest first
+	 * @return
+	 */
+	public List<GameRound> getRounds() {
+		return rounds;
+	}
+	
+	/**
+	 * Gives every round to the archive, eg. when the game is over. 
+	 * Does nothing if there is no archive
+	 */
+	public void archiveRounds() {
+		if (archive == null) {
+			return;
+		}
+		for (GameRound round : rounds) {
+			archive.archive(round);
+		}
+		rounds.clear();
+	}
 
 	
 	/**
@@ -88,6 +152,18 @@ public class Game {
 	 * @throws Exception
 	 */
 	public GameRound startNextRound() throws Exception {
+		return startNextRound(createSecretCode());
+	}
+	
+	/**
+	 * End the current round and start a new round with the given code, 
+	 * eg. the code a round had before the server restarted
+	 * 
+	 * @param guessCode
+	 * @return
+	 * @throws Exception
+	 */
+	public GameRound startNextRound(String guessCode) throws Exception {
 		if (currentRound != null && !currentRound.hasEnded() ) {
 			throw new Exception("Current round has not yet ended");
 		}
@@ -96,9 +172,6 @@ public class Game {
 			throw new Exception("There are currently no players available");
 		}
 		
-		// create code
-		String guessCode = createSecretCode();
-
 		// start new round
 		currentRound = new GameRound(guessCode);
 		
@@ -110,6 +183,13 @@ public class Game {
 		
 		rounds.add(currentRound);
 		
+		// older rounds are no longer kept in memory
+		while (rounds.size() > retainedRounds) {
+			GameRound oldest = rounds.remove(0);
+			if (archive != null) {
+				archive.archive(oldest);
+			}
+		}
 		
 		return getCurrentRound();
 	}
@@ -120,14 +200,11 @@ public class Game {
 	 * 
 	 * @param playerName
 	 * @return
-	 * @throws Exception If player is already set
+	 * @throws Exception If the game already has {@link #getMaxPlayers()} players
 	 */
 	public synchronized Player signUpPlayer(String playerName) throws Exception {
-		if (getPlayers().size() == MAX_PLAYERS) {
-			try{}
-			catch(Exception e){
-				System.err.print("Cannot add more than " + MAX_PLAYERS + " players");
-			}
+		if (getPlayers().size() >= maxPlayers) {
+			throw new Exception("Cannot add more than " + maxPlayers + " players");
 		}
 		
 		Player player = new Player(playerName);
@@ -136,6 +213,23 @@ public class Game {
 		return player;
 	}
 
+	/**
+	 * Adds a player that has already signed up, 
+	 * eg. a player that the lobby moves on to a new game
+	 * 
+	 * @param player
+	 */
+	public synchronized void addPlayer(Player player) {
+		players.add(player);
+	}
+
+	/**
+	 * Sets the current round without starting it, used by {@link GameSnapshot}
+	 */
+	void setCurrentRound(GameRound round) {
+		currentRound = round;
+	}
+
 	// get players in current round
 	public List<Player> getPlayers() {
 		return players;
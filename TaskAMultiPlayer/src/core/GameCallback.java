@@ -1,12 +1,9 @@
 package core;
 
+import server.IResponseWriter;
 import server.Response;
 
 import java.io.IOException;
-import java.io.ObjectOutputStream;
-import java.util.Comparator;
-import java.util.List;
-import java.util.stream.Collectors;
 
 
 /**
@@ -14,7 +11,7 @@ import java.util.stream.Collectors;
  * Instance of this class should not be shared on multiple clients.
  * <p>The class has following functionalities:<ul>
  * <li>Displays generated code in server console</li>
- * <li>Sends responses to the client. Response are objects of type server.Responses and serialized.</li>
+ * <li>Sends responses to the client. Response are objects of type server.Responses, written with the client's protocol.</li>
  * <li>Sends a QUIT command to the client.</li>
  * </ul>
  *
@@ -25,12 +22,15 @@ public class GameCallback implements IGameCallback {
 
     /**
      * Instead of stream of string objects, We will send instances
-     * of {@link Response} to the client via this stream
+     * of {@link Response} to the client via this writer
      */
-    private ObjectOutputStream stream;
+    private IResponseWriter writer;
 
-    public GameCallback(ObjectOutputStream stream) {
-        this.stream = stream;
+    // the player of the client, known once their round starts
+    private Player player;
+
+    public GameCallback(IResponseWriter writer) {
+        this.writer = writer;
     }
 
     /**
@@ -47,8 +47,17 @@ public class GameCallback implements IGameCallback {
      * @param responseType
      */
     private void respond(String message, int responseType) {
+        respond(new Response(message, responseType));
+    }
+
+    /**
+     * Sends the response to the client
+     *
+     * @param response
+     */
+    private void respond(Response response) {
         try {
-            stream.writeObject(new Response(message, responseType));
+            writer.write(response);
         } catch (IOException e) {
             System.err.println("Sorry something went wrong while sending your message. " + e.getMessage());
         }
@@ -79,6 +88,14 @@ public class GameCallback implements IGameCallback {
      */
     @Override
     public void onRoundStarted(Game game, GameRound round, Player player) {
+        this.player = player;
+
+        // a mass round is announced without every player's name
+        if (round.isMassRound()) {
+            respond(RoundSummary.roster(round, player));
+            return;
+        }
+
         StringBuilder response = new StringBuilder("----------------ROUND STARTED----------------\n");
         for (Player p : round.getPlayers()) {
             response.append(String.format(" - %s", p.getName()));
@@ -149,53 +166,16 @@ public class GameCallback implements IGameCallback {
      */
     @Override
     public void onRoundEnded(Game game, GameRound round) {
-        StringBuilder response = new StringBuilder("----------------ROUND ENDED----------------\n");
-
-        // Use new reference of winners collection using functional programming (lambdas)
-        // using a new reference, we can sort winners
-        // without the ConcurrentModificationException
-        // when we sort the original reference
-        List<Player> winners = round.getWinners().stream().filter(w -> w != null).collect(Collectors.toList());
-        winners.sort(new Comparator<Player>() {
-            @Override
-            public int compare(Player o1, Player o2) {
-                return o1.compareTo(o2);
-            }
-        });
-
-        // winners
-        response.append("WINNERS: \n");
-        if (round.getWinners().size() > 0) {
-            for (int i = 0; i < winners.size(); i++) {
-                response.append(String.format(" %d. %s (%d guesses)\n", i + 1, winners.get(i).getName(), winners.get(i).getNumGuesses()));
+        // the same results are sent to every player
+        respond(round.getResult().getResponse());
+
+        // a mass round does not list every player, so each is told how they did
+        if (round.isMassRound() && player != null) {
+            String result = RoundSummary.result(round, player);
+            if (!result.isEmpty()) {
+                respond(result);
             }
-        } else {
-            response = new StringBuilder(response.toString().concat(" * There are no winners for this round *\n"));
         }
-
-        // losers
-        response.append("LOSERS: \n");
-        if (round.getLosers().size() > 0) {
-            for (Player player : round.getLosers()) {
-                response.append(String.format(" - %s\n", player.getName()));
-            }
-        } else {
-            response.append(" * There are no losers for this round *\n");
-        }
-
-        // forfeiters
-        response.append("FORFEITED: \n");
-        if (round.getForfeiters().size() > 0) {
-            for (Player player : round.getForfeiters()) {
-                response.append(String.format("- %s\n", player.getName()));
-            }
-        } else {
-            response.append(" * There are no players forfeited for this round *");
-        }
-
-        response.append("\n");
-
-        respond(response.toString());
     }
 
     /**
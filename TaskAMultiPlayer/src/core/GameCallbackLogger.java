@@ -1,10 +1,8 @@
 package core;
 
-import java.util.Comparator;
-import java.util.List;
+import java.io.PrintStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 
 /**
@@ -20,13 +18,25 @@ import java.util.stream.Collectors;
 public class GameCallbackLogger implements IGameCallback {
 	
 	private Logger logger;
+	private PrintStream console;
 	
 	/**
 	 * Logger is required.
 	 * @param logger
 	 */
 	public GameCallbackLogger(Logger logger) {
+		this(logger, System.out);
+	}
+	
+	/**
+	 * Events are also printed to the console stream, 
+	 * eg. the console of an {@link server.AsyncLogHandler}
+	 * @param logger
+	 * @param console
+	 */
+	public GameCallbackLogger(Logger logger, PrintStream console) {
 		this.logger = logger;
+		this.console = console;
 	}
 	
 
@@ -38,7 +48,7 @@ public class GameCallbackLogger implements IGameCallback {
 		GAME_STARTED("Game started");
 	}
 	private void GAME_STARTED(String message) {
-		System.out.println("GAME STARTED - " + message);
+		console.println("GAME STARTED - " + message);
 		logger.log(Level.INFO, message);
 	}
 
@@ -51,7 +61,7 @@ public class GameCallbackLogger implements IGameCallback {
 		SECRET_CODE_GENERATED("Generated secret code is " + secretCode);
 	}
 	private void SECRET_CODE_GENERATED(String message) {
-		System.out.println("SECRET CODE GENERATED - " + message);
+		console.println("SECRET CODE GENERATED - " + message);
 		logger.log(Level.INFO, message);
 	}
 
@@ -61,6 +71,11 @@ public class GameCallbackLogger implements IGameCallback {
 	 */
 	@Override
 	public void onRoundStarted(Game game, GameRound round, Player player) {
+		if (round.isMassRound()) {
+			ROUND_STARTED(String.format("New round started with %d players.\n", round.getPlayers().size()));
+			return;
+		}
+		
 		String response = "New round started.\nPlayers:\n";
 		
 		for (int i = 0; i < round.getPlayers().size(); i++) {
@@ -70,7 +85,7 @@ public class GameCallbackLogger implements IGameCallback {
 		ROUND_STARTED(response);
 	}
 	private void ROUND_STARTED(String message) {
-		System.out.println("ROUND STARTED - " + message);
+		console.println("ROUND STARTED - " + message);
 		logger.log(Level.INFO, message);
 	}
 
@@ -83,7 +98,7 @@ public class GameCallbackLogger implements IGameCallback {
 		PLAYER_SIGNED_UP(String.format("Player %s signed up.\n", player.getName()));
 	}
 	private void PLAYER_SIGNED_UP(String message) {
-		System.out.println("PLAYER SIGNED UP - " + message);
+		console.println("PLAYER SIGNED UP - " + message);
 		logger.log(Level.INFO, message);
 	}
 	
@@ -111,7 +126,7 @@ public class GameCallbackLogger implements IGameCallback {
 	}
 
 	private void GUESS_ADDED(String message) {
-		System.out.println("GUESS ADDED - " +  message);
+		console.println("GUESS ADDED - " +  message);
 		logger.log(Level.INFO, message);
 	}
 
@@ -127,7 +142,7 @@ public class GameCallbackLogger implements IGameCallback {
 	}
 
 	private void INCORRECT_GUESS(String message) {
-		System.out.println("INCORRECT GUESS - " +  message);
+		console.println("INCORRECT GUESS - " +  message);
 		logger.log(Level.INFO, message);
 	}
 
@@ -140,7 +155,7 @@ public class GameCallbackLogger implements IGameCallback {
 		PLAYER_WON(String.format("Player %s won with %d attempts\n", player.getName(), numOfGuesses));
 	}
 	private void PLAYER_WON(String message) {
-		System.out.println("PLAYER WON - " +  message);
+		console.println("PLAYER WON - " +  message);
 		logger.log(Level.INFO, message);
 	}
 
@@ -154,7 +169,7 @@ public class GameCallbackLogger implements IGameCallback {
 			"Player %s lost the round. The secret code was %s\n", player.getName(), secretCode));
 	}
 	private void PLAYER_LOST(String message) {
-		System.out.println("PLAYER LOST - " +  message);
+		console.println("PLAYER LOST - " +  message);
 		logger.log(Level.INFO, message);
 	}
 
@@ -164,58 +179,10 @@ public class GameCallbackLogger implements IGameCallback {
 	 */
 	@Override
 	public void onRoundEnded(Game game, GameRound round) {
-		
-		String response = "Round ended. \n";
-		
-		// Use new reference of winners collection using functional programming (lambdas)
-		// using a new reference, we can sort winners 
-		// without the ConcurrentModificationException 
-		// when we sort the original reference
-		List<Player> winners = round.getWinners().stream().filter(w -> w != null).collect(Collectors.toList());
-		winners.sort(new Comparator<Player>() {
-			@Override
-			public int compare(Player o1, Player o2) {
-				return o1.compareTo(o2);
-			}
-		});
-		
-		// winners
-		response += "WINNERS: \n";
-		if (round.getWinners().size() > 0) {
-			for (int i = 0; i < winners.size(); i++) {
-				response += String.format(" %d. %s (%d guesses)\n", i + 1,  winners.get(i).getName(), winners.get(i).getNumGuesses());
-			}
-		} else {
-			response = response.concat(" * There are no winners for this round *\n");
-		}
-		
-		// losers
-		response += "LOSERS: \n";
-		if (round.getLosers().size() > 0) {
-			for (Player player : round.getLosers()) {
-				response += String.format(" - %s\n", player.getName());
-			}
-		} else {
-			response += " * There are no losers for this round *\n";
-		}
-		
-		// forfeiters
-		response += "FORFEITED: \n";
-		if (round.getForfeiters().size() > 0) {
-			for (Player player : round.getForfeiters()) {
-				response += String.format("- %s\n", player.getName());
-			}
-		} else {
-			response += " * There are no players forfeited for this round *";
-		}
-		
-		response += "\n";
-		
-		
-		ROUND_ENDED(response);
+		ROUND_ENDED("Round ended. \n" + round.getResult().getSummary());
 	}
 	private void ROUND_ENDED(String message) {
-		System.out.println("ROUND ENDED - " +  message);
+		console.println("ROUND ENDED - " +  message);
 		logger.log(Level.INFO, message);
 	}
 	
@@ -229,7 +196,7 @@ public class GameCallbackLogger implements IGameCallback {
 	}
 	
 	private void PLAYER_FORFEITED(String message) {
-		System.out.println("PLAYER FORFEITED - " +  message);
+		console.println("PLAYER FORFEITED - " +  message);
 		logger.log(Level.INFO, message);
 	}
 	
@@ -243,7 +210,7 @@ public class GameCallbackLogger implements IGameCallback {
 	}
 	
 	private void PLAYER_QUITED(String message) {
-		System.out.println("PLAYER QUITED - " +  message);
+		console.println("PLAYER QUITED - " +  message);
 		logger.log(Level.INFO, message);
 	}
 
@@ -1,5 +1,6 @@
 package core;
 
+import core.GameRound.GuessResult;
 import core.Player.PlayerStatus;
 
 import java.util.ArrayList;
@@ -118,6 +119,19 @@ public class GameManager {
 		cbs.forEach(c -> c.onPlayerSignedUp(game, null, player));
 	}
 
+	/**
+	 * Creates the current player without adding it to a game. 
+	 * The player is added to a game once the lobby has found other players for it. 
+	 * This will set off a onPlayerSignedUp() trigger (see {@link IGameCallback})
+	 * 
+	 * @param playerName
+	 */
+	public void signUpPlayer(String playerName) {
+		Player player = new Player(playerName);
+		setCurrentPlayer(player);
+		cbs.forEach(c -> c.onPlayerSignedUp(game, null, player));
+	}
+
 	/**
 	 * Check if the player managed by this class has forfeited
 	 * @return
@@ -141,12 +155,14 @@ public class GameManager {
 	 */
 	public void startNextRound() throws Exception {
 		GameRound round = game.getCurrentRound();
+		boolean created = false;
 		
 		// first round
 		if (round == null) {
 			round = game.startNextRound();
 			final String secretCode = round.getCode();
 			cbs.forEach(c -> c.onSecretCodeCreated(game, secretCode));
+			created = true;
 		}
 		
 		// previous round has ended
@@ -154,9 +170,17 @@ public class GameManager {
 			round = game.startNextRound();
 			final String nextSecretCode = round.getCode();
 			cbs.forEach(c -> c.onSecretCodeCreated(game, nextSecretCode));
+			created = true;
 		}
 		
-		game.getPlayers().forEach(p -> p.setStatus(PlayerStatus.STARTED));
+		// everyone starts a new round, a player joining the round only starts themselves. 
+		// Otherwise every player of a mass round would go through every other player
+		if (created) {
+			game.getPlayers().forEach(p -> p.setStatus(PlayerStatus.STARTED));
+		}
+		else if (currentPlayer != null) {
+			currentPlayer.setStatus(PlayerStatus.STARTED);
+		}
 		
 		for (IGameCallback c : cbs) {
 			c.onRoundStarted(game, round, currentPlayer);
@@ -180,6 +204,8 @@ public class GameManager {
 	 */
 	public void addGuess(String guess) {
 		GameRound round = game.getCurrentRound();
+		GuessEvent event = new GuessEvent();
+		event.begin();
 		
 		// player forfeits
 		if (guess.trim().equals("f")) {
@@ -189,25 +215,27 @@ public class GameManager {
 			
 			cbs.forEach(c -> c.onPlayerForfeited(game, round, currentPlayer));
 			checkRoundEnded(round);
+			commit(event, round, guess, "FORFEIT");
 			return;
 		}
 		
-		// add guess
+		// add guess, it is compared to the code once
 		currentPlayer.setStatus(PlayerStatus.PLAYING);
-		round.addGuess(currentPlayer, guess);
+		GuessResult result = round.addGuess(currentPlayer, guess);
 		cbs.forEach(c -> c.onGuessAdded(round, currentPlayer, guess));
 
-		if(!round.isInvalidRangeGuess(guess)){
-			// guess is incorrect
-			if (! round.isGuessMatch(guess)) {
-				if(round.isHigherGuess(guess)){
-					cbs.forEach(c -> c.onHigherIncorrectGuess(round, currentPlayer, guess));
-				}else if (round.isLowerGuess(guess)){
-					cbs.forEach(c -> c.onLowerIncorrectGuess(round, currentPlayer, guess));
-				}
-			}
-		}else{
-			cbs.forEach(c -> c.onisInvalidRangeGuess(round, currentPlayer, guess));
+		switch (result) {
+			case HIGHER:
+				cbs.forEach(c -> c.onHigherIncorrectGuess(round, currentPlayer, guess));
+				break;
+			case LOWER:
+				cbs.forEach(c -> c.onLowerIncorrectGuess(round, currentPlayer, guess));
+				break;
+			case INVALID:
+				cbs.forEach(c -> c.onisInvalidRangeGuess(round, currentPlayer, guess));
+				break;
+			case MATCH:
+				break;
 		}
 		
 		if (playerWins()) {
@@ -221,6 +249,22 @@ public class GameManager {
 		}
 		
 		checkRoundEnded(round);
+		commit(event, round, guess, result.toString());
+	}
+	
+	/**
+	 * Helper method that records the guess if a flight recording wants it
+	 */
+	private void commit(GuessEvent event, GameRound round, String guess, String result) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.player = currentPlayer.getName();
+			event.guess = guess;
+			event.result = result;
+			event.attempt = currentPlayer.getNumGuesses();
+			event.roundEnded = round.hasEnded();
+			event.commit();
+		}
 	}
 	
 	/**
@@ -229,19 +273,8 @@ public class GameManager {
 	 * @param round
 	 */
 	private void checkRoundEnded(GameRound round) {
-		boolean ended = true;
-		for (Player player : round.getPlayers()) {
-			if (player.hasWon(round) || player.hasLost(round)) {
-				continue;
-			}
-			
-			if (player.getNumGuesses() < GameRound.MAX_ATTEMPTS) {
-				ended = false;
-				break;
-			}
-		}
-		
-		if (ended) {
+		// the round keeps count of the players that have not won, lost or used all their attempts
+		if (round.getActivePlayers() == 0) {
 			round.end();
 		}
 	}
@@ -281,6 +314,25 @@ public class GameManager {
 	public void removeCurrentPlayer() {
 		game.removePlayer(currentPlayer);
 	}
+
+	/**
+	 * Forfeits the current player from the current round without firing any event,
+	 * so the round can end without them. Used when the player disconnects in the middle of a round
+	 */
+	public void leaveCurrentRound() {
+		GameRound round = game.getCurrentRound();
+		if (round == null || round.hasEnded() || ! round.hasPlayer(currentPlayer)) {
+			return;
+		}
+
+		if (playerWins() || playerLoses() || isCurrentPlayerForfeited()) {
+			return;
+		}
+
+		round.forfeit(currentPlayer);
+		currentPlayer.setStatus(PlayerStatus.FORFEITED);
+		checkRoundEnded(round);
+	}
 	
 	/**
 	 * Player has chosen to quit. This fires the onPlayerQuited() event
@@ -366,7 +418,7 @@ public class GameManager {
 		
 		// if player is not in current round, join player
 		GameRound round = game.getCurrentRound();
-		if (! round.getPlayers().contains(currentPlayer)) {
+		if (! round.hasPlayer(currentPlayer)) {
 			currentPlayer.resetGuesses();
 			game.getCurrentRound().addPlayer(currentPlayer);
 		}
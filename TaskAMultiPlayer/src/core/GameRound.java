@@ -1,7 +1,10 @@
 package core;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class that represents the game round. One game can have many rounds. 
@@ -13,10 +16,34 @@ public class GameRound {
 	
 	public static final int MAX_ATTEMPTS = 4;
 	
+	/**
+	 * Largest guess that is in range. Negative guesses are in range, they are lower than the code
+	 */
+	public static final int MAX_GUESS = 10;
+	
+	// parseGuess() never reads more than 9 digits, so no guess has this value
+	static final int NOT_A_NUMBER = Integer.MIN_VALUE;
+	
+	/**
+	 * What a guess is compared to the code (see {@link GameRound#evaluate(String)})
+	 */
+	public enum GuessResult {
+		/**
+		 * Not a number, or larger than {@link GameRound#MAX_GUESS}
+		 */
+		INVALID,
+		LOWER,
+		HIGHER,
+		MATCH
+	}
+	
 	/**
 	 * Store generated code here. Each round will have 1 unique generated code
 	 */
 	private String code;
+	
+	// the code as a number, so guesses are compared without parsing it again
+	private int codeValue;
 
 	/**
 	 * For this round there will be multiple players
@@ -27,13 +54,33 @@ public class GameRound {
 	List<Player> losers = new ArrayList<>();
 	List<Player> forfeited = new ArrayList<>();
 	
-	List<String> guesses = new ArrayList<>();
+	/**
+	 * Each player's place in players. The outcomes are kept in bitsets 
+	 * by place as well, so checking a player does not go through the lists
+	 */
+	private Map<Player, Integer> slots = new HashMap<>();
+	private BitSet winnerSlots = new BitSet();
+	private BitSet loserSlots = new BitSet();
+	private BitSet forfeitedSlots = new BitSet();
+	
+	// players that have won, lost or used all their attempts
+	private BitSet finishedSlots = new BitSet();
+	private int activePlayers = 0;
+	
+	/**
+	 * Every guess of the round, sized for a full round of guesses
+	 */
+	GuessList guesses = new GuessList(MAX_ATTEMPTS * Game.MAX_PLAYERS);
 	
 	private boolean hasEnded = false;
 	
+	// written when it is first asked for, after the round has ended
+	private RoundResult result;
+	
 	
 	public GameRound(String code) {
 		this.code = code;
+		this.codeValue = parseGuess(code);
 	}
 	
 	/**
@@ -45,7 +92,40 @@ public class GameRound {
 	 */
 	public void addPlayer(Player player) {
 		player.clearAllGuesses();
+		if (slots.containsKey(player)) {
+			return;
+		}
+		
+		slots.put(player, players.size());
 		players.add(player);
+		activePlayers++;
+	}
+	
+	/**
+	 * Checks if the player plays this round
+	 * @param player
+	 * @return
+	 */
+	public boolean hasPlayer(Player player) {
+		return slots.containsKey(player);
+	}
+	
+	/**
+	 * Checks if this is a mass round, with more players than a room of {@link Game#MAX_PLAYERS}. 
+	 * Mass rounds are announced with a summary instead of every player's name
+	 * @return
+	 */
+	public boolean isMassRound() {
+		return players.size() > Game.MAX_PLAYERS;
+	}
+	
+	/**
+	 * Gets the number of players that have not won, lost or used all their attempts. 
+	 * The round can end when there are none
+	 * @return
+	 */
+	public int getActivePlayers() {
+		return activePlayers;
 	}
 	
 	/**
@@ -82,30 +162,76 @@ public class GameRound {
 	 * 
 	 * @param player
 	 * @param guess
+	 * @return what the guess is compared to the code
 	 */
-	public void addGuess(Player player, String guess) {
+	public GuessResult addGuess(Player player, String guess) {
+		GuessResult result = evaluate(guess);
+		
 		// if player won, no need to add guess
 		if (hasWinner(player) || hasLoser(player)) {
-			return;
+			return result;
 		}
 		
 		// add guess
-		if (players.contains(player) && player.getNumGuesses() < MAX_ATTEMPTS) {
+		if (hasPlayer(player) && player.getNumGuesses() < MAX_ATTEMPTS) {
 			player.addGuess(guess);
 			guesses.add(guess);
 		}
 		
 		// if guess if correct, player won
-		if (isGuessMatch(guess)) {
+		if (result == GuessResult.MATCH) {
 			addWinner(player);
-			return;
+			return result;
 		}
 		
 		// if the 4th (this guess) is incorrect, player lost
-		if (player.getNumGuesses() >= MAX_ATTEMPTS && isGuessMatch(guess) == false) {
+		if (player.getNumGuesses() >= MAX_ATTEMPTS) {
 			addLoser(player);
-			return;
 		}
+		return result;
+	}
+	
+	/**
+	 * Compares the guess to the code. The guess is read once, 
+	 * a guess that is not a number is invalid
+	 * 
+	 * @param guess
+	 * @return
+	 */
+	public GuessResult evaluate(String guess) {
+		int value = parseGuess(guess);
+		if (value == NOT_A_NUMBER || value > MAX_GUESS) {
+			return GuessResult.INVALID;
+		}
+		if (value == codeValue) {
+			return GuessResult.MATCH;
+		}
+		return value > codeValue ? GuessResult.HIGHER : GuessResult.LOWER;
+	}
+	
+	/**
+	 * Reads a guess made of digits, with an optional leading '-'
+	 * 
+	 * @param guess
+	 * @return the value, or {@link #NOT_A_NUMBER} if the guess is not a number
+	 */
+	static int parseGuess(String guess) {
+		boolean negative = guess.startsWith("-");
+		int start = negative ? 1 : 0;
+		int length = guess.length();
+		if (length == start || length - start > 9) {
+			return NOT_A_NUMBER;
+		}
+		
+		int value = 0;
+		for (int i = start; i < length; i++) {
+			char c = guess.charAt(i);
+			if (c < '0' || c > '9') {
+				return NOT_A_NUMBER;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return negative ? -value : value;
 	}
 	
 	/**
@@ -117,8 +243,11 @@ public class GameRound {
 		// - player is registered in this round
 		// - player has not yet won
 		// - player has not yet lost
-		if (players.contains(player) && winners.contains(player) == false && losers.contains(player) == false) {
+		int slot = getSlot(player);
+		if (slot >= 0 && winnerSlots.get(slot) == false && loserSlots.get(slot) == false) {
+			winnerSlots.set(slot);
 			winners.add(player);
+			finish(slot);
 		}
 	}
 	
@@ -131,8 +260,11 @@ public class GameRound {
 		// - player is registered in this round
 		// - player has not yet won
 		// - player has not yet lost
-		if (players.contains(player) && losers.contains(player) == false && losers.contains(player) == false) {
+		int slot = getSlot(player);
+		if (slot >= 0 && loserSlots.get(slot) == false && winnerSlots.get(slot) == false) {
+			loserSlots.set(slot);
 			losers.add(player);
+			finish(slot);
 		}
 	}
 	
@@ -143,7 +275,8 @@ public class GameRound {
 	 * @return
 	 */
 	public boolean hasWinner(Player player) {
-		return winners.contains(player);
+		int slot = getSlot(player);
+		return slot >= 0 && winnerSlots.get(slot);
 	}
 	
 	
@@ -153,7 +286,8 @@ public class GameRound {
 	 * @return
 	 */
 	public boolean hasLoser(Player player) {
-		return losers.contains(player);
+		int slot = getSlot(player);
+		return slot >= 0 && loserSlots.get(slot);
 	}
 	
 	
@@ -163,7 +297,7 @@ public class GameRound {
 	 * @return
 	 */
 	public boolean isGuessMatch(String guess) {
-		return code.equals(guess);
+		return evaluate(guess) == GuessResult.MATCH;
 	}
 	
 	/**
@@ -187,7 +321,9 @@ public class GameRound {
 	 * @param player
 	 */
 	private void addForfeiter(Player player) {
-		if (players.contains(player) && !losers.contains(player) && !winners.contains(player)) {
+		int slot = getSlot(player);
+		if (slot >= 0 && !loserSlots.get(slot) && !winnerSlots.get(slot) && !forfeitedSlots.get(slot)) {
+			forfeitedSlots.set(slot);
 			forfeited.add(player);
 		}
 	}
@@ -199,7 +335,8 @@ public class GameRound {
 	 * @return
 	 */
 	public boolean hasForfeited(Player player) {
-		return forfeited.contains(player);
+		int slot = getSlot(player);
+		return slot >= 0 && forfeitedSlots.get(slot);
 	}
 	
 	/**
@@ -212,17 +349,90 @@ public class GameRound {
 			player.addGuess("");
 		}
 		addForfeiter(player);
+		
+		// all the attempts are used up now
+		int slot = getSlot(player);
+		if (slot >= 0) {
+			finish(slot);
+		}
+	}
+	
+	/**
+	 * Gets the player's place in players
+	 * 
+	 * @param player
+	 * @return the place, or -1 if the player does not play this round
+	 */
+	private int getSlot(Player player) {
+		Integer slot = slots.get(player);
+		return slot == null ? -1 : slot;
+	}
+	
+	/**
+	 * Counts the player at the slot as no longer active
+	 * @param slot
+	 */
+	private void finish(int slot) {
+		if ( ! finishedSlots.get(slot)) {
+			finishedSlots.set(slot);
+			activePlayers--;
+		}
 	}
+	
+	/**
+	 * Rebuilds the places and bitsets from the lists and the players' guesses, 
+	 * after {@link GameSnapshot} has filled the lists directly
+	 */
+	void reindex() {
+		slots.clear();
+		winnerSlots.clear();
+		loserSlots.clear();
+		forfeitedSlots.clear();
+		finishedSlots.clear();
+		
+		for (int i = 0; i < players.size(); i++) {
+			slots.put(players.get(i), i);
+		}
+		activePlayers = players.size();
+		
+		// players that are not in the round are left out, as the lists would have left them out
+		for (Player player : winners) {
+			int slot = getSlot(player);
+			if (slot >= 0) {
+				winnerSlots.set(slot);
+				finish(slot);
+			}
+		}
+		for (Player player : losers) {
+			int slot = getSlot(player);
+			if (slot >= 0) {
+				loserSlots.set(slot);
+				finish(slot);
+			}
+		}
+		for (Player player : forfeited) {
+			int slot = getSlot(player);
+			if (slot >= 0) {
+				forfeitedSlots.set(slot);
+			}
+		}
+		for (int i = 0; i < players.size(); i++) {
+			if (players.get(i).getNumGuesses() >= MAX_ATTEMPTS) {
+				finish(i);
+			}
+		}
+	}
+	
 	public boolean isHigherGuess(String guess) {
-		return Integer.parseInt(guess) > Integer.parseInt(code);
+		return evaluate(guess) == GuessResult.HIGHER;
 	}
 
 	public boolean isInvalidRangeGuess(String guess) {
-		return Integer.parseInt(guess) >10 || Integer.parseInt(code) <0;
+		return evaluate(guess) == GuessResult.INVALID;
 	}
 
 	public boolean isLowerGuess(String guess) {
-		return Integer.parseInt(guess) < Integer.parseInt(code);
+		return evaluate(guess) == GuessResult.LOWER;
 	}
 
 	/**
@@ -257,6 +467,22 @@ public class GameRound {
 		return hasEnded;
 	}
 	
+	/**
+	 * Gets the results of the round. They are written the first time they are asked for 
+	 * and shared by every player, as the outcomes do not change once the round has ended
+	 * 
+	 * @return the results, or null if the round has not ended
+	 */
+	public synchronized RoundResult getResult() {
+		if ( ! hasEnded) {
+			return null;
+		}
+		if (result == null) {
+			result = RoundResult.of(this);
+		}
+		return result;
+	}
+	
 	/**
 	 * End the game manually. All non-winner players will lose automatically.
 	 */
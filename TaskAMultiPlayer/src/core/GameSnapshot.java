@@ -0,0 +1,172 @@
+package core;
+
+import core.Player.PlayerStatus;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the state of a {@link Game} and reads it back: the players with their guesses and
+ * {@link PlayerStatus}, every {@link GameRound} with its winners, losers and forfeiters,
+ * and which round is the current one.
+ *
+ * <p>Players are written once in a table and the game and its rounds refer to them by their
+ * place in the table, so a player that is in several lists is still one {@link Player} when
+ * read back. The table is given by the caller and must hold every player of the game and its rounds.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class GameSnapshot {
+
+	/**
+	 * Longer strings are cut to this many characters, so they always fit writeUTF()
+	 */
+	public static final int MAX_STRING_LENGTH = 16 * 1024;
+
+	private GameSnapshot() {
+	}
+
+
+	/**
+	 * Writes the game
+	 *
+	 * @param game
+	 * @param players every player of the game and its rounds
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void write(Game game, List<Player> players, DataOutput out) throws IOException {
+		out.writeShort(players.size());
+		for (Player player : players) {
+			writeString(out, player.getName());
+			out.writeByte(player.getStatus().ordinal());
+			writeStrings(out, player.getGuesses());
+		}
+
+		writePlayers(out, players, game.getPlayers());
+
+		out.writeShort(game.rounds.size());
+		for (GameRound round : game.rounds) {
+			writeString(out, round.getCode());
+			out.writeBoolean(round.hasEnded());
+			writePlayers(out, players, round.players);
+			writePlayers(out, players, round.winners);
+			writePlayers(out, players, round.losers);
+			writePlayers(out, players, round.forfeited);
+			writeStrings(out, round.guesses);
+		}
+		out.writeShort(game.rounds.indexOf(game.getCurrentRound()));
+	}
+
+	/**
+	 * Reads a game written by {@link #write(Game, List, DataOutput)}
+	 *
+	 * @param in
+	 * @param players filled with the players of the table, in the same order
+	 * @return
+	 * @throws IOException
+	 */
+	public static Game read(DataInput in, List<Player> players) throws IOException {
+		int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			Player player = new Player(in.readUTF());
+			player.setStatus(PlayerStatus.values()[in.readUnsignedByte()]);
+			for (String guess : readStrings(in)) {
+				player.addGuess(guess);
+			}
+			players.add(player);
+		}
+
+		Game game = new Game();
+		for (Player player : readPlayers(in, players)) {
+			game.addPlayer(player);
+		}
+
+		int rounds = in.readUnsignedShort();
+		for (int i = 0; i < rounds; i++) {
+			// the lists are filled directly, addPlayer() would clear the guesses again
+			GameRound round = new GameRound(in.readUTF());
+			boolean ended = in.readBoolean();
+			round.players.addAll(readPlayers(in, players));
+			round.winners.addAll(readPlayers(in, players));
+			round.losers.addAll(readPlayers(in, players));
+			round.forfeited.addAll(readPlayers(in, players));
+			round.guesses.addAll(readStrings(in));
+			round.reindex();
+			if (ended) {
+				round.end();
+			}
+			game.rounds.add(round);
+		}
+
+		int current = in.readShort();
+		if (current >= rounds) {
+			throw new StreamCorruptedException("Current round " + current + " of " + rounds + " rounds");
+		}
+		game.setCurrentRound(current >= 0 ? game.rounds.get(current) : null);
+		return game;
+	}
+
+
+	/**
+	 * Writes a string with writeUTF(), cut to {@link #MAX_STRING_LENGTH}. Null is written as an empty string
+	 *
+	 * @param out
+	 * @param value
+	 * @throws IOException
+	 */
+	public static void writeString(DataOutput out, String value) throws IOException {
+		if (value == null) {
+			value = "";
+		}
+		out.writeUTF(value.length() <= MAX_STRING_LENGTH ? value : value.substring(0, MAX_STRING_LENGTH));
+	}
+
+	private static void writeStrings(DataOutput out, List<String> values) throws IOException {
+		out.writeShort(values.size());
+		for (String value : values) {
+			writeString(out, value);
+		}
+	}
+
+	private static List<String> readStrings(DataInput in) throws IOException {
+		int count = in.readUnsignedShort();
+		List<String> values = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			values.add(in.readUTF());
+		}
+		return values;
+	}
+
+	/**
+	 * Writes the places of the players in the table
+	 */
+	private static void writePlayers(DataOutput out, List<Player> table, List<Player> players) throws IOException {
+		out.writeShort(players.size());
+		for (Player player : players) {
+			int index = table.indexOf(player);
+			if (index < 0) {
+				throw new IllegalArgumentException(player.getName() + " is not in the table of players");
+			}
+			out.writeShort(index);
+		}
+	}
+
+	private static List<Player> readPlayers(DataInput in, List<Player> table) throws IOException {
+		int count = in.readUnsignedShort();
+		List<Player> players = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int index = in.readUnsignedShort();
+			if (index >= table.size()) {
+				throw new StreamCorruptedException("Player " + index + " of " + table.size() + " players");
+			}
+			players.add(table.get(index));
+		}
+		return players;
+	}
+}
@@ -0,0 +1,41 @@
+package core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a guess being evaluated by {@link GameManager#addGuess(String)}, 
+ * including the events fired for it.
+ * 
+ * <p>Events cost next to nothing unless a recording is running, eg. 
+ * <pre>jcmd &lt;pid&gt; JFR.start name=game duration=60s filename=game.jfr</pre>
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+@Name("guessing.Guess")
+@Label("Guess")
+@Category({"Guessing Game", "Round"})
+@Description("A player's guess being checked against the secret code")
+@StackTrace(false)
+public class GuessEvent extends jdk.jfr.Event {
+	
+	@Label("Player")
+	public String player;
+	
+	@Label("Guess")
+	public String guess;
+	
+	@Label("Result")
+	@Description("HIGHER, LOWER, INVALID, MATCH or FORFEIT")
+	public String result;
+	
+	@Label("Attempt")
+	public int attempt;
+	
+	@Label("Round Ended")
+	public boolean roundEnded;
+}
@@ -0,0 +1,128 @@
+package core;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Guesses kept in a byte array instead of a list of strings. Guesses are small numbers,
+ * so each one is stored as its value and read back as a shared string,
+ * adding and clearing guesses allocates nothing once the array is big enough.
+ *
+ * <p>Any other guess (eg. "07", "abc", or the empty guesses a forfeit adds) is kept as it is,
+ * at the same place in a string array, so the list always reads back the strings that were added
+ * however many of them there are.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+final class GuessList extends AbstractList<String> implements RandomAccess {
+
+	/**
+	 * Largest guess stored as a number
+	 */
+	static final int MAX_NUMBER = Byte.MAX_VALUE;
+
+	private static final String[] NUMBERS = new String[MAX_NUMBER + 1];
+	static {
+		for (int i = 0; i <= MAX_NUMBER; i++) {
+			NUMBERS[i] = Integer.toString(i);
+		}
+	}
+
+	/**
+	 * The number, or -1 if the guess is in others
+	 */
+	private byte[] values;
+	private int size = 0;
+
+	// guesses that are not numbers, at their place in the list. Only created when there is one
+	private String[] others;
+
+
+	GuessList(int capacity) {
+		values = new byte[capacity];
+	}
+
+	@Override
+	public boolean add(String guess) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, Math.max(4, size * 2));
+		}
+
+		int number = toNumber(guess);
+		if (number >= 0) {
+			values[size++] = (byte) number;
+		}
+		else {
+			if (others == null) {
+				others = new String[values.length];
+			}
+			else if (others.length < values.length) {
+				others = Arrays.copyOf(others, values.length);
+			}
+			others[size] = guess;
+			values[size++] = -1;
+		}
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public String get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		byte value = values[index];
+		return value >= 0 ? NUMBERS[value] : others[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes every guess and keeps the array for the next ones
+	 */
+	@Override
+	public void clear() {
+		if (others != null) {
+			Arrays.fill(others, 0, Math.min(size, others.length), null);
+		}
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Gets the last guess
+	 * @return the guess, or null if there are no guesses
+	 */
+	String getLast() {
+		return size == 0 ? null : get(size - 1);
+	}
+
+	/**
+	 * Gets the value of a guess written the way {@link Integer#toString(int)} writes it
+	 *
+	 * @param guess
+	 * @return the value, or -1 if the guess is not stored as a number
+	 */
+	static int toNumber(String guess) {
+		int length = guess.length();
+		if (length == 0 || length > 3 || (length > 1 && guess.charAt(0) == '0')) {
+			return -1;
+		}
+
+		int number = 0;
+		for (int i = 0; i < length; i++) {
+			char c = guess.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			number = number * 10 + (c - '0');
+		}
+		return number <= MAX_NUMBER ? number : -1;
+	}
+}
@@ -0,0 +1,17 @@
+package core;
+
+/**
+ * Where a {@link Game} sends the rounds it no longer keeps in memory (see {@link Game#setRetention(int, IRoundArchive)}).
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public interface IRoundArchive {
+
+	/**
+	 * Keeps the round. The round is not changed any more once it is archived
+	 *
+	 * @param round
+	 */
+	void archive(GameRound round);
+}
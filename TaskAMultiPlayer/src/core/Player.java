@@ -1,6 +1,5 @@
 package core;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -23,8 +22,8 @@ public class Player implements Comparable<Player> {
 	}
 	
 	private String name;
-	private List<String> guesses = new ArrayList<>();
-	private String lastGuess = null;
+	// one guess per attempt, and the empty guess a forfeit adds. Reused every round
+	private GuessList guesses = new GuessList(GameRound.MAX_ATTEMPTS + 1);
 	private PlayerStatus status = PlayerStatus.NOT_STARTED;
 	
 	public Player(String name) {
@@ -36,8 +35,7 @@ public class Player implements Comparable<Player> {
 	 * before each round starts, including the first round
 	 */
 	public void resetGuesses() {
-		guesses = new ArrayList<>();
-		lastGuess = null;
+		guesses.clear();
 	}
 	
 	public PlayerStatus getStatus() {
@@ -52,12 +50,16 @@ public class Player implements Comparable<Player> {
 		return name;
 	}
 	
+	/**
+	 * Gets the guesses of the current round. The list is reused by the next round
+	 * @return
+	 */
 	public List<String> getGuesses() {
 		return guesses;
 	}
 	
 	public String getLastGuess() {
-		return lastGuess;
+		return guesses.getLast();
 	}
 	
 	/**
@@ -68,7 +70,6 @@ public class Player implements Comparable<Player> {
 	 */
 	public void addGuess(String guess) {
 		guesses.add(guess);
-		lastGuess = guess;
 	}
 	
 	public int getNumGuesses() {
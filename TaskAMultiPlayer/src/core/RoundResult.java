@@ -0,0 +1,117 @@
+package core;
+
+import server.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The results of a round that has ended: the winners, the losers and the players that forfeited.
+ * They are written once per round by {@link GameRound#getResult()} and the same text and
+ * {@link Response} go to every player and to the log, instead of each of them sorting and
+ * formatting the lists again.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public final class RoundResult {
+
+	public static final String HEADER = "----------------ROUND ENDED----------------\n";
+
+	private final String summary;
+	private final Response response;
+
+	private RoundResult(String summary, Response response) {
+		this.summary = summary;
+		this.response = response;
+	}
+
+
+	/**
+	 * Gets the winners, losers and forfeiters, without a header
+	 * @return
+	 */
+	public String getSummary() {
+		return summary;
+	}
+
+	/**
+	 * Gets the response that tells the players the results.
+	 * The same response is sent to every player of the round
+	 * @return
+	 */
+	public Response getResponse() {
+		return response;
+	}
+
+
+	/**
+	 * Writes the results of the round
+	 *
+	 * @param round a round that has ended
+	 * @return
+	 */
+	static RoundResult of(GameRound round) {
+		// a mass round only lists the best winners,
+		// the players are told how they did in a message of their own
+		if (round.isMassRound()) {
+			String summary = RoundSummary.results(round);
+			return new RoundResult(summary, Response.shared(HEADER + summary.substring(0, summary.length() - 1)));
+		}
+
+		String summary = summarize(round);
+		return new RoundResult(summary, Response.shared(HEADER + summary));
+	}
+
+	/**
+	 * Lists every winner by the number of guesses, then the losers and forfeiters
+	 *
+	 * @param round
+	 * @return
+	 */
+	private static String summarize(GameRound round) {
+		// sort a copy so the round's list is left in the order the players won
+		List<Player> winners = new ArrayList<>(round.getWinners().size());
+		for (Player winner : round.getWinners()) {
+			if (winner != null) {
+				winners.add(winner);
+			}
+		}
+		winners.sort(Player::compareTo);
+
+		StringBuilder response = new StringBuilder();
+
+		// winners
+		response.append("WINNERS: \n");
+		if (winners.size() > 0) {
+			for (int i = 0; i < winners.size(); i++) {
+				response.append(String.format(" %d. %s (%d guesses)\n", i + 1, winners.get(i).getName(), winners.get(i).getNumGuesses()));
+			}
+		} else {
+			response.append(" * There are no winners for this round *\n");
+		}
+
+		// losers
+		response.append("LOSERS: \n");
+		if (round.getLosers().size() > 0) {
+			for (Player player : round.getLosers()) {
+				response.append(" - ").append(player.getName()).append("\n");
+			}
+		} else {
+			response.append(" * There are no losers for this round *\n");
+		}
+
+		// forfeiters
+		response.append("FORFEITED: \n");
+		if (round.getForfeiters().size() > 0) {
+			for (Player player : round.getForfeiters()) {
+				response.append("- ").append(player.getName()).append("\n");
+			}
+		} else {
+			response.append(" * There are no players forfeited for this round *");
+		}
+
+		response.append("\n");
+		return response.toString();
+	}
+}
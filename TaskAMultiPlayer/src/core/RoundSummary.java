@@ -0,0 +1,116 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Messages for mass rounds (see {@link GameRound#isMassRound()}). Instead of every player's name,
+ * they give the number of players and list the first few, so a message does not grow with the round.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+final class RoundSummary {
+
+	/**
+	 * Most players listed by name in a summary
+	 */
+	static final int LISTED_PLAYERS = 10;
+
+	private RoundSummary() {
+	}
+
+
+	/**
+	 * Announces the round with the number of players and the first players
+	 *
+	 * @param round
+	 * @param you the player the message is for, may be null
+	 * @return
+	 */
+	static String roster(GameRound round, Player you) {
+		List<Player> players = round.getPlayers();
+
+		StringBuilder response = new StringBuilder("----------------ROUND STARTED----------------\n");
+		response.append(String.format(" %d players are guessing the same code", players.size()));
+		response.append(you != null && round.hasPlayer(you) ? ", you are one of them.\n" : ".\n");
+
+		int listed = Math.min(LISTED_PLAYERS, players.size());
+		for (int i = 0; i < listed; i++) {
+			response.append(" - ").append(players.get(i).getName()).append("\n");
+		}
+		if (players.size() > listed) {
+			response.append(String.format(" ... and %d more\n", players.size() - listed));
+		}
+		response.append("\n");
+		return response.toString();
+	}
+
+	/**
+	 * Gives the number of winners, losers and forfeiters, and the best winners
+	 *
+	 * @param round
+	 * @return
+	 */
+	static String results(GameRound round) {
+		List<Player> winners = bestWinners(round);
+
+		StringBuilder response = new StringBuilder();
+		response.append(String.format("WINNERS: %d of %d players\n", round.getWinners().size(), round.getPlayers().size()));
+		if (winners.isEmpty()) {
+			response.append(" * There are no winners for this round *\n");
+		}
+		for (int i = 0; i < winners.size(); i++) {
+			response.append(String.format(" %d. %s (%d guesses)\n", i + 1, winners.get(i).getName(), winners.get(i).getNumGuesses()));
+		}
+		if (round.getWinners().size() > winners.size()) {
+			response.append(String.format(" ... and %d more\n", round.getWinners().size() - winners.size()));
+		}
+
+		response.append(String.format("LOSERS: %d\n", round.getLosers().size()));
+		response.append(String.format("FORFEITED: %d\n", round.getForfeiters().size()));
+		return response.toString();
+	}
+
+	/**
+	 * Tells the player how the round went for them, as they are not likely to be listed
+	 *
+	 * @param round
+	 * @param you
+	 * @return
+	 */
+	static String result(GameRound round, Player you) {
+		if (round.hasWinner(you)) {
+			return String.format("YOU: won with %d guesses\n", you.getNumGuesses());
+		}
+		if (round.hasForfeited(you)) {
+			return "YOU: forfeited\n";
+		}
+		if (round.hasLoser(you)) {
+			return "YOU: lost\n";
+		}
+		return "";
+	}
+
+	/**
+	 * Gets the winners with the fewest guesses, in the order they won.
+	 * The winners are gone through once per number of guesses instead of sorted
+	 *
+	 * @param round
+	 * @return at most {@link #LISTED_PLAYERS} winners
+	 */
+	static List<Player> bestWinners(GameRound round) {
+		List<Player> best = new ArrayList<>();
+		for (int guesses = 1; guesses <= GameRound.MAX_ATTEMPTS && best.size() < LISTED_PLAYERS; guesses++) {
+			for (Player winner : round.getWinners()) {
+				if (winner.getNumGuesses() == guesses) {
+					best.add(winner);
+					if (best.size() == LISTED_PLAYERS) {
+						break;
+					}
+				}
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,29 @@
+package server;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a client connection being accepted and handed to a {@link ServerProcess}.
+ * The duration is the time from accept() returning to the process being started.
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+@Name("guessing.SessionAccept")
+@Label("Session Accept")
+@Category({"Guessing Game", "Session"})
+@Description("A client connection being accepted")
+@StackTrace(false)
+public class AcceptEvent extends jdk.jfr.Event {
+	
+	@Label("Client")
+	public String client;
+	
+	@Label("Mode")
+	@Description("How the connection is served, see MultiPlayerServer.ConnectionMode")
+	public String mode;
+}
@@ -0,0 +1,135 @@
+package server;
+
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A round read back from the {@link RoundArchive}. The lists of the round are kept as they were,
+ * with player names instead of {@link core.Player} objects.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class ArchivedRound {
+
+	public enum Result {
+		WON,
+		LOST,
+		FORFEITED,
+
+		/**
+		 * The round was archived before the player finished it
+		 */
+		UNFINISHED
+	}
+
+	private long time;
+	private String code;
+	private boolean ended;
+
+	private List<String> players;
+	private List<String> winners;
+	private List<String> losers;
+	private List<String> forfeited;
+	private List<String> guesses;
+
+	public ArchivedRound(long time, String code, boolean ended, List<String> players, List<String> winners,
+			List<String> losers, List<String> forfeited, List<String> guesses) {
+		this.time = time;
+		this.code = code;
+		this.ended = ended;
+		this.players = players;
+		this.winners = winners;
+		this.losers = losers;
+		this.forfeited = forfeited;
+		this.guesses = guesses;
+	}
+
+	/**
+	 * Gets the time the round was archived in milliseconds since the epoch
+	 * @return
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public boolean hasEnded() {
+		return ended;
+	}
+
+	public List<String> getPlayers() {
+		return Collections.unmodifiableList(players);
+	}
+
+	public List<String> getWinners() {
+		return Collections.unmodifiableList(winners);
+	}
+
+	public List<String> getLosers() {
+		return Collections.unmodifiableList(losers);
+	}
+
+	public List<String> getForfeiters() {
+		return Collections.unmodifiableList(forfeited);
+	}
+
+	/**
+	 * Gets every guess of the round, in the order they were made
+	 * @return
+	 */
+	public List<String> getGuesses() {
+		return Collections.unmodifiableList(guesses);
+	}
+
+	/**
+	 * Checks if the player played this round
+	 * @param name
+	 * @return
+	 */
+	public boolean hasPlayer(String name) {
+		return players.contains(name);
+	}
+
+	/**
+	 * Gets how the round went for the player
+	 *
+	 * @param name
+	 * @return the result, or null if the player did not play the round
+	 */
+	public Result getResult(String name) {
+		if ( ! players.contains(name)) {
+			return null;
+		}
+		if (winners.contains(name)) {
+			return Result.WON;
+		}
+		if (forfeited.contains(name)) {
+			return Result.FORFEITED;
+		}
+		if (losers.contains(name)) {
+			return Result.LOST;
+		}
+		return Result.UNFINISHED;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder line = new StringBuilder();
+		line.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(time)));
+		line.append(" code=").append(code);
+		if ( ! ended) {
+			line.append(" (not ended)");
+		}
+		for (String player : players) {
+			line.append(' ').append(player).append('=').append(getResult(player));
+		}
+		line.append(" guesses=").append(guesses);
+		return line.toString();
+	}
+}
@@ -0,0 +1,307 @@
+package server;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Log handler that writes in the background, in batches.
+ *
+ * <p>A {@link java.util.logging.FileHandler} formats, writes and flushes every record on the thread
+ * that logs it, while holding the handler's lock. This handler only puts the record into a
+ * {@link RingBuffer} and returns. A writer thread takes the records out, formats them and writes
+ * the whole batch to the file with one write and one flush. The console lines that the callbacks
+ * print go through the same buffer (see {@link #getConsole()}).
+ *
+ * <p>When the buffer is full the {@link OverflowPolicy} decides what happens to the event.
+ * Warnings and errors are never dropped. How many events were dropped is written to the log.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class AsyncLogHandler extends Handler {
+
+	/**
+	 * What to do with an event when the buffer is full
+	 * <ul>
+	 * <li>BLOCK - wait until the writer has made space. Nothing is lost but the game slows down to the disk</li>
+	 * <li>DROP - drop the event. The game never waits for the log</li>
+	 * <li>SAMPLE - wait for space for one in every {@link AsyncLogHandler#SAMPLE_RATE} events and drop the others,
+	 * so a burst still leaves a trace in the log</li>
+	 * </ul>
+	 */
+	public enum OverflowPolicy {
+		BLOCK,
+		DROP,
+		SAMPLE
+	}
+
+	public static final int DEFAULT_CAPACITY = 8192;
+	public static final int BATCH_SIZE = 256;
+	public static final int SAMPLE_RATE = 16;
+
+	// the writer wakes up at least this often, and earlier once the buffer is half full
+	public static final long FLUSH_INTERVAL_MILLIS = 50;
+
+	// how long a blocked event waits before trying again
+	private static final long BACK_OFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	private RingBuffer<Object> buffer;
+	private OverflowPolicy policy;
+	private OutputStream out;
+	private PrintStream consoleOut;
+	private PrintStream console;
+
+	private Thread writer;
+	private volatile boolean sleeping = false;
+	private volatile boolean closed = false;
+
+	// used by the writer only
+	private StringBuilder fileBatch = new StringBuilder();
+	private StringBuilder consoleBatch = new StringBuilder();
+	private long droppedReported = 0;
+
+	private AtomicLong overflows = new AtomicLong();
+	private AtomicLong dropped = new AtomicLong();
+
+
+	/**
+	 * Appends to the log file and prints console lines to {@link System#out}
+	 *
+	 * @param fileName
+	 * @param policy
+	 * @throws IOException
+	 */
+	public AsyncLogHandler(String fileName, OverflowPolicy policy) throws IOException {
+		this(new FileOutputStream(fileName, true), System.out, policy, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param out where the log records are written, closed with the handler
+	 * @param consoleOut where the console lines are printed
+	 * @param policy
+	 * @param capacity number of events the buffer holds
+	 */
+	public AsyncLogHandler(OutputStream out, PrintStream consoleOut, OverflowPolicy policy, int capacity) {
+		this.out = out;
+		this.consoleOut = consoleOut;
+		this.policy = policy;
+		this.buffer = new RingBuffer<>(capacity);
+
+		setLevel(Level.INFO);
+		setFormatter(new SimpleFormatter());
+
+		// only println(String) is used by the callbacks, everything else is printed straight away
+		this.console = new PrintStream(consoleOut, true) {
+			@Override
+			public void println(String line) {
+				enqueue(line, false);
+			}
+		};
+
+		writer = new Thread(this::write, "async-log-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+
+	/**
+	 * Gets a stream for the console lines of the callbacks.
+	 * Lines printed with println(String) are written by the writer thread
+	 * @return
+	 */
+	public PrintStream getConsole() {
+		return console;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Gets the number of events that found the buffer full
+	 * @return
+	 */
+	public long getOverflows() {
+		return overflows.get();
+	}
+
+	/**
+	 * Gets the number of events that were dropped because the buffer was full
+	 * @return
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Gets the number of events waiting to be written
+	 * @return
+	 */
+	public int getQueued() {
+		return buffer.size();
+	}
+
+
+	@Override
+	public void publish(LogRecord record) {
+		if ( ! isLoggable(record)) {
+			return;
+		}
+
+		// the formatter prints the method that logged the record,
+		// which can only be found on the thread that logged it
+		record.getSourceMethodName();
+
+		enqueue(record, record.getLevel().intValue() >= Level.WARNING.intValue());
+	}
+
+	/**
+	 * Puts the event into the buffer, or applies the overflow policy if the buffer is full
+	 *
+	 * @param event a LogRecord or a console line
+	 * @param important events that are never dropped
+	 */
+	private void enqueue(Object event, boolean important) {
+		if (closed) {
+			return;
+		}
+
+		if (buffer.offer(event)) {
+			if (sleeping && buffer.size() >= buffer.capacity() / 2) {
+				LockSupport.unpark(writer);
+			}
+			return;
+		}
+
+		long overflow = overflows.incrementAndGet();
+		boolean keep = important
+				|| policy == OverflowPolicy.BLOCK
+				|| (policy == OverflowPolicy.SAMPLE && overflow % SAMPLE_RATE == 0);
+		if ( ! keep) {
+			dropped.incrementAndGet();
+			return;
+		}
+
+		while ( ! buffer.offer(event)) {
+			LockSupport.unpark(writer);
+			if (closed) {
+				return;
+			}
+			LockSupport.parkNanos(this, BACK_OFF_NANOS);
+		}
+	}
+
+	/**
+	 * Wakes the writer. The records are written in the background,
+	 * use {@link #close()} to wait until everything is written
+	 */
+	@Override
+	public void flush() {
+		LockSupport.unpark(writer);
+	}
+
+	/**
+	 * Writes whatever is still in the buffer and closes the log file
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		LockSupport.unpark(writer);
+
+		try {
+			writer.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		try {
+			out.close();
+		}
+		catch (IOException e) {
+			reportError("Cannot close the log", e, ErrorManager.CLOSE_FAILURE);
+		}
+	}
+
+
+	/**
+	 * Writer loop. Takes everything out of the buffer and sleeps until there is more
+	 */
+	private void write() {
+		while (true) {
+			drain();
+			if (closed && buffer.isEmpty()) {
+				return;
+			}
+
+			sleeping = true;
+			if ( ! closed && buffer.size() < buffer.capacity() / 2) {
+				LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS));
+			}
+			sleeping = false;
+		}
+	}
+
+	private void drain() {
+		Object event;
+		int count = 0;
+		while ((event = buffer.poll()) != null) {
+			if (event instanceof LogRecord) {
+				fileBatch.append(getFormatter().format((LogRecord) event));
+			}
+			else {
+				consoleBatch.append(event).append(System.lineSeparator());
+			}
+
+			if (++count % BATCH_SIZE == 0) {
+				writeBatch();
+			}
+		}
+
+		long lost = dropped.get();
+		if (lost > droppedReported) {
+			LogRecord record = new LogRecord(Level.WARNING, (lost - droppedReported) + " log events dropped, the log buffer was full");
+			record.setSourceClassName(getClass().getName());
+			record.setSourceMethodName("drain");
+			fileBatch.append(getFormatter().format(record));
+			droppedReported = lost;
+		}
+
+		writeBatch();
+	}
+
+	private void writeBatch() {
+		if (fileBatch.length() > 0) {
+			try {
+				String encoding = getEncoding();
+				Charset charset = encoding != null ? Charset.forName(encoding) : Charset.defaultCharset();
+				out.write(fileBatch.toString().getBytes(charset));
+				out.flush();
+			}
+			catch (IOException e) {
+				reportError("Cannot write to the log", e, ErrorManager.WRITE_FAILURE);
+			}
+			fileBatch.setLength(0);
+		}
+
+		if (consoleBatch.length() > 0) {
+			consoleOut.print(consoleBatch);
+			consoleOut.flush();
+			consoleBatch.setLength(0);
+		}
+	}
+}
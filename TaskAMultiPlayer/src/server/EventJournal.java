@@ -0,0 +1,267 @@
+package server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Binary, append-only journal of game and server events.
+ *
+ * <p>Events are written into memory-mapped segment files in a directory. Appending an event is a
+ * copy into the mapped memory, without formatting and without a system call, and the operating
+ * system writes the pages to the file. When a segment is full the next one is started. Segments
+ * are never written again once they are finished, and a new journal always starts a new segment.
+ *
+ * <p>Each segment starts with the {@link #MAGIC} bytes and the {@link #VERSION}, followed by the events:
+ * <pre>
+ * +------------+------+---------------+---------------------------------------+
+ * | length (4) | type | time (8)      | fields: length (2) + UTF-8 bytes, ... |
+ * +------------+------+---------------+---------------------------------------+
+ * </pre>
+ * The length counts the bytes after it. The type is a {@link JournalEvent.Type} code and the time
+ * is in milliseconds since the epoch. The length is written last, so a length of 0 marks the end
+ * of the events even if the program stopped in the middle of writing one.
+ * See {@link JournalReader} to read the journal back.
+ *
+ * <p>The segment is only forced to the disk when it is finished, so the events survive the server
+ * crashing but not the machine.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class EventJournal implements Closeable {
+
+	public static final byte[] MAGIC = { 'G', 'G', 'J' };
+	public static final int VERSION = 1;
+	public static final int HEADER_LENGTH = MAGIC.length + 1;
+
+	public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * Longer fields are cut to this many bytes
+	 */
+	public static final int MAX_FIELD_LENGTH = 0xFFFF;
+
+	static final String SEGMENT_PREFIX = "events-";
+	static final String SEGMENT_SUFFIX = ".journal";
+
+	private File dir;
+	private int segmentSize;
+
+	// a ReentrantLock so virtual threads do not pin their carrier thread (see GameRoom)
+	private ReentrantLock lock = new ReentrantLock();
+
+	// guarded by the lock
+	private int segmentIndex;
+	private RandomAccessFile file;
+	private MappedByteBuffer buffer;
+	private long events = 0;
+	private boolean closed = false;
+
+
+	public EventJournal(File dir) throws IOException {
+		this(dir, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Opens a new segment after the existing segments of the directory
+	 *
+	 * @param dir created if it does not exist
+	 * @param segmentSize bytes per segment file
+	 * @throws IOException
+	 */
+	public EventJournal(File dir, int segmentSize) throws IOException {
+		if ( ! dir.isDirectory() && ! dir.mkdirs()) {
+			throw new IOException("Cannot create journal directory " + dir);
+		}
+
+		this.dir = dir;
+		this.segmentSize = segmentSize;
+
+		List<File> segments = segments(dir);
+		segmentIndex = segments.isEmpty() ? 0 : index(segments.get(segments.size() - 1));
+		roll();
+	}
+
+
+	/**
+	 * Appends an event. If the journal cannot be written it is closed
+	 * and the error is printed, the game goes on without it.
+	 *
+	 * @param type
+	 * @param fields values of the type's fields, null values are written as empty strings
+	 */
+	public void append(JournalEvent.Type type, String... fields) {
+		byte[][] encoded = new byte[fields.length][];
+		int length = 1 + 8;
+		for (int i = 0; i < fields.length; i++) {
+			encoded[i] = encode(fields[i]);
+			length += 2 + encoded[i].length;
+		}
+
+		if (HEADER_LENGTH + 4 + length > segmentSize) {
+			throw new IllegalArgumentException("Event of " + length + " bytes does not fit in a segment");
+		}
+
+		long time = System.currentTimeMillis();
+
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			if (buffer.remaining() < 4 + length) {
+				roll();
+			}
+
+			// the body first and the length last, see the class comment
+			int start = buffer.position();
+			buffer.position(start + 4);
+			buffer.put((byte) type.getCode());
+			buffer.putLong(time);
+			for (byte[] field : encoded) {
+				buffer.putShort((short) field.length);
+				buffer.put(field);
+			}
+			buffer.putInt(start, length);
+			events++;
+		}
+		catch (IOException e) {
+			System.err.println("Event journal stopped: " + e.getMessage());
+			closeQuietly();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private static byte[] encode(String field) {
+		if (field == null) {
+			return new byte[0];
+		}
+		byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+		return bytes.length <= MAX_FIELD_LENGTH ? bytes : Arrays.copyOf(bytes, MAX_FIELD_LENGTH);
+	}
+
+	/**
+	 * Finishes the current segment and starts the next one.
+	 * Must be called while holding the lock
+	 *
+	 * @throws IOException
+	 */
+	private void roll() throws IOException {
+		finish();
+
+		segmentIndex++;
+		file = new RandomAccessFile(segmentFile(dir, segmentIndex), "rw");
+		buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		buffer.put(MAGIC);
+		buffer.put((byte) VERSION);
+	}
+
+	/**
+	 * Forces the current segment to the disk and cuts the file after the last event
+	 *
+	 * @throws IOException
+	 */
+	private void finish() throws IOException {
+		if (file == null) {
+			return;
+		}
+		buffer.force();
+		file.setLength(buffer.position());
+		file.close();
+		file = null;
+	}
+
+
+	/**
+	 * Gets the number of events appended since the journal was opened
+	 * @return
+	 */
+	public long getEvents() {
+		lock.lock();
+		try {
+			return events;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	public File getDirectory() {
+		return dir;
+	}
+
+	/**
+	 * Finishes the current segment. Events appended later are ignored
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			finish();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void closeQuietly() {
+		closed = true;
+		try {
+			if (file != null) file.close();
+		}
+		catch (IOException e) {
+			// already failing
+		}
+		file = null;
+	}
+
+
+	static File segmentFile(File dir, int index) {
+		return new File(dir, String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+	}
+
+	/**
+	 * Gets the segment files of the directory in the order they were written
+	 *
+	 * @param dir
+	 * @return
+	 */
+	static List<File> segments(File dir) {
+		List<File> segments = new ArrayList<>();
+		File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+		if (files != null) {
+			for (File file : files) {
+				if (index(file) > 0) {
+					segments.add(file);
+				}
+			}
+		}
+		segments.sort((a, b) -> Integer.compare(index(a), index(b)));
+		return segments;
+	}
+
+	private static int index(File segment) {
+		String name = segment.getName();
+		try {
+			return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+		}
+		catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+}
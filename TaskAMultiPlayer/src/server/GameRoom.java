@@ -0,0 +1,173 @@
+package server;
+
+import core.Game;
+import core.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Game} and the players sharing it. Rooms are created and retired by the {@link RoomRegistry}.
+ *
+ * <p>Each room has its own lock, so players in different rooms never wait for each other.
+ * A {@link ReentrantLock} is used instead of a monitor so virtual threads
+ * waiting for other players do not pin their carrier thread. The players wait for each other
+ * through the room's {@link RoundCoordinator}.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class GameRoom {
+
+	private int id;
+	private Game game;
+
+	private ReentrantLock lock = new ReentrantLock();
+	private RoundCoordinator coordinator;
+	// shared with the other rooms of the registry
+	private LockStats lockStats = new LockStats();
+
+	// players that joined and have not left yet, guarded by the registry
+	private int seats = 0;
+
+	// players the room was opened with, in the order they were seated
+	private List<Player> seated;
+	// each player's seat, so finding a seat does not go through the list
+	private Map<Player, Integer> seatIndex = new HashMap<>();
+
+	// restored players that have not come back yet, guarded by the registry (see GameStateStore)
+	private List<Player> vacant = new ArrayList<>();
+
+	// guarded by the lock
+	private IRoomCallback callback;
+	private long sequence = 0;
+	private boolean retired = false;
+
+
+	public GameRoom(int id, Game game) {
+		this(id, game, game.getPlayers());
+	}
+
+	/**
+	 * @param id
+	 * @param game
+	 * @param seated every player that has played in the game, see {@link #getSeated()}
+	 */
+	public GameRoom(int id, Game game, List<Player> seated) {
+		this.id = id;
+		this.game = game;
+		this.seated = Collections.unmodifiableList(new ArrayList<>(seated));
+		for (int i = 0; i < this.seated.size(); i++) {
+			seatIndex.putIfAbsent(this.seated.get(i), i);
+		}
+		this.coordinator = new RoundCoordinator(this, lock);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public Game getGame() {
+		return game;
+	}
+
+	/**
+	 * Lock that guards the room's game. Take it before using the coordinator
+	 * @return
+	 */
+	public ReentrantLock getLock() {
+		return lock;
+	}
+
+	public RoundCoordinator getCoordinator() {
+		return coordinator;
+	}
+
+	/**
+	 * Gets the contention of the lock, see {@link LockStats}
+	 * @return
+	 */
+	public LockStats getLockStats() {
+		return lockStats;
+	}
+
+	void setLockStats(LockStats lockStats) {
+		this.lockStats = lockStats;
+	}
+
+	/**
+	 * Gets the number of players in the room
+	 * @return
+	 */
+	public int getSeats() {
+		return seats;
+	}
+
+	void setSeats(int seats) {
+		this.seats = seats;
+	}
+
+	/**
+	 * Gets the players the room was opened with, including the players that have left. 
+	 * A player's place in this list is their seat
+	 * @return
+	 */
+	public List<Player> getSeated() {
+		return seated;
+	}
+
+	/**
+	 * Gets the seat of the player
+	 * 
+	 * @param player
+	 * @return the seat, or -1 if the player was not seated in this room
+	 */
+	public int getSeat(Player player) {
+		Integer seat = seatIndex.get(player);
+		return seat == null ? -1 : seat;
+	}
+
+	List<Player> getVacant() {
+		return vacant;
+	}
+
+	IRoomCallback getCallback() {
+		return callback;
+	}
+
+	void setCallback(IRoomCallback callback) {
+		this.callback = callback;
+	}
+
+	/**
+	 * Gets the sequence number of the last event logged for this room (see {@link GameStateStore})
+	 * @return
+	 */
+	long getSequence() {
+		return sequence;
+	}
+
+	void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+
+	/**
+	 * @return true once the last player has left the room
+	 */
+	boolean isRetired() {
+		return retired;
+	}
+
+	void setRetired(boolean retired) {
+		this.retired = retired;
+	}
+
+	@Override
+	public String toString() {
+		return "room " + id;
+	}
+}
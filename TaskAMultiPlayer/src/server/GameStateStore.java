@@ -0,0 +1,648 @@
+package server;
+
+import core.Game;
+import core.GameManager;
+import core.GameRound;
+import core.GameSnapshot;
+import core.Player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the state of the open {@link GameRoom}s in a directory, so a restarted server can
+ * restore the rooms and let their players resume their round.
+ *
+ * <p>Every change of a room (see {@link IRoomCallback}) is appended to a short write-ahead log
+ * before it is made, and a snapshot of every room is written periodically. Snapshots are
+ * incremental: a room is only written again if it has changed since the last snapshot, the
+ * others are copied from the last snapshot as they are. Each snapshot starts a new log file and
+ * the older log files are deleted once the snapshot is written, so the log only holds the changes
+ * since the last snapshot.
+ *
+ * <p>Log records have a sequence number. The snapshot of a room remembers the last record it
+ * contains, so records that are in the snapshot already are skipped when the log is replayed.
+ *
+ * <p>Every record is written to the file before the room changes, so nothing is lost when the
+ * server process dies. The log is not forced to the disk, so a crash of the machine can lose
+ * the last records. Snapshots are forced before they replace the last one.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class GameStateStore implements IRoomCallback, Runnable, Closeable {
+
+	public static final byte[] MAGIC = { 'G', 'G', 'S' };
+	public static final int VERSION = 1;
+
+	public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+	/**
+	 * How long restored rooms keep the seats of players that have not come back
+	 */
+	public static final long RESUME_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(ServerProcess.WAITING_TIME_SECONDS * 3);
+
+	static final String SNAPSHOT = "rooms.snapshot";
+	static final String LOG_PREFIX = "changes-";
+	static final String LOG_SUFFIX = ".log";
+
+	// record types of the log
+	private static final int OPENED = 1;
+	private static final int ROUND_STARTED = 2;
+	private static final int GUESS_ADDED = 3;
+	private static final int PLAYER_LEFT = 4;
+	private static final int RETIRED = 5;
+
+	/**
+	 * A room as it was written to the last snapshot
+	 */
+	private static final class Encoded {
+		long sequence;
+		byte[] bytes;
+
+		Encoded(long sequence, byte[] bytes) {
+			this.sequence = sequence;
+			this.bytes = bytes;
+		}
+	}
+
+
+	private File dir;
+	private long intervalMillis;
+	private RoomRegistry rooms;
+
+	// a ReentrantLock so virtual threads do not pin their carrier thread (see GameRoom)
+	private ReentrantLock lock = new ReentrantLock();
+
+	// guarded by the lock
+	private DataOutputStream log;
+	private int logIndex = 0;
+	private long sequence = 0;
+	private boolean closed = false;
+
+	// rooms of the last snapshot, guarded by this
+	private Map<GameRoom, Encoded> encoded = new HashMap<>();
+
+	private volatile Thread thread;
+	private volatile boolean running = false;
+	private long resumeDeadline = 0;
+
+	// highest room id found while recovering, new rooms must not use the ids of the log again
+	private int lastRoomId = 0;
+
+	// metrics, guarded by this
+	private long snapshots = 0;
+	private long roomsWritten = 0;
+	private long roomsCopied = 0;
+	private long lastSnapshotBytes = 0;
+	private long totalSnapshotNanos = 0;
+
+
+	public GameStateStore(File dir, RoomRegistry rooms) throws IOException {
+		this(dir, rooms, DEFAULT_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * @param dir created if it does not exist
+	 * @param rooms the rooms to keep
+	 * @param intervalMillis time between snapshots
+	 * @throws IOException
+	 */
+	public GameStateStore(File dir, RoomRegistry rooms, long intervalMillis) throws IOException {
+		if ( ! dir.isDirectory() && ! dir.mkdirs()) {
+			throw new IOException("Cannot create state directory " + dir);
+		}
+
+		this.dir = dir;
+		this.rooms = rooms;
+		this.intervalMillis = intervalMillis;
+	}
+
+
+	/**
+	 * Restores the rooms of the last snapshot and replays the changes logged after it.
+	 * The rooms are added to the registry, and the rooms opened from now on are kept by this store.
+	 * Must be called once, before the lobby starts
+	 *
+	 * @return the restored rooms
+	 * @throws IOException
+	 */
+	public List<GameRoom> recover() throws IOException {
+		Map<Integer, GameRoom> restored = new LinkedHashMap<>();
+		int firstLog = 0;
+
+		File snapshot = new File(dir, SNAPSHOT);
+		if (snapshot.exists()) {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot)))) {
+				firstLog = readSnapshot(in, restored);
+			}
+		}
+
+		List<File> logs = logs(dir);
+		for (File file : logs) {
+			if (index(file) >= firstLog) {
+				replay(file, restored);
+			}
+		}
+
+		// rooms that had finished their round, or that every player had left, are not restored
+		List<GameRoom> playing = new ArrayList<>();
+		for (GameRoom room : restored.values()) {
+			if (room.getCoordinator().getPhase() != RoundCoordinator.Phase.RESULTS && ! room.getGame().getPlayers().isEmpty()) {
+				playing.add(room);
+			}
+		}
+
+		lock.lock();
+		try {
+			logIndex = logs.isEmpty() ? firstLog : Math.max(firstLog, index(logs.get(logs.size() - 1)));
+			roll();
+		}
+		finally {
+			lock.unlock();
+		}
+
+		rooms.restore(playing, lastRoomId + 1);
+		rooms.setCallback(this);
+		resumeDeadline = playing.isEmpty() ? 0 : System.currentTimeMillis() + RESUME_TIMEOUT_MILLIS;
+		return playing;
+	}
+
+	/**
+	 * Reads the rooms of a snapshot
+	 *
+	 * @return the index of the first log file that is not in the snapshot
+	 */
+	private int readSnapshot(DataInputStream in, Map<Integer, GameRoom> restored) throws IOException {
+		for (byte b : MAGIC) {
+			if (in.readByte() != b) {
+				throw new StreamCorruptedException(SNAPSHOT + " is not a snapshot");
+			}
+		}
+		int version = in.readUnsignedByte();
+		if (version > VERSION) {
+			throw new StreamCorruptedException(SNAPSHOT + " was written by a newer version " + version);
+		}
+
+		int firstLog = in.readInt();
+		sequence = in.readLong();
+
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			int id = in.readInt();
+			lastRoomId = Math.max(lastRoomId, id);
+			long roomSequence = in.readLong();
+			RoundCoordinator.Phase phase = RoundCoordinator.Phase.values()[in.readUnsignedByte()];
+
+			List<Player> seated = new ArrayList<>();
+			Game game = GameSnapshot.read(in, seated);
+
+			GameRoom room = new GameRoom(id, game, seated);
+			room.getCoordinator().restore(phase);
+			room.setSequence(roomSequence);
+			restored.put(id, room);
+		}
+		return firstLog;
+	}
+
+	/**
+	 * Applies the changes of a log file to the restored rooms.
+	 * A record that was not finished when the server stopped ends the log
+	 */
+	private void replay(File file, Map<Integer, GameRoom> restored) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			while (true) {
+				long seq = in.readLong();
+				int type = in.readUnsignedByte();
+				int id = in.readInt();
+				int seat = in.readInt();
+				String[] values = new String[in.readUnsignedShort()];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = in.readUTF();
+				}
+				sequence = Math.max(sequence, seq);
+				lastRoomId = Math.max(lastRoomId, id);
+
+				GameRoom room = restored.get(id);
+				if (type == OPENED) {
+					if (room == null) {
+						restored.put(id, open(id, seq, values));
+					}
+					continue;
+				}
+
+				// rooms that were retired before the snapshot, or records in the snapshot already
+				if (room == null || seq <= room.getSequence()) {
+					continue;
+				}
+				room.setSequence(seq);
+				apply(room, type, seat, values, restored);
+			}
+		}
+		catch (EOFException e) {
+			// end of the log
+		}
+	}
+
+	private static GameRoom open(int id, long seq, String[] names) {
+		Game game = new Game();
+		game.start();
+		for (String name : names) {
+			game.addPlayer(new Player(name));
+		}
+
+		GameRoom room = new GameRoom(id, game);
+		room.setSequence(seq);
+		return room;
+	}
+
+	private static void apply(GameRoom room, int type, int seat, String[] values, Map<Integer, GameRoom> restored) {
+		RoundCoordinator coordinator = room.getCoordinator();
+		GameManager manager = new GameManager(room.getGame());
+		if (seat >= 0 && seat < room.getSeated().size()) {
+			manager.setCurrentPlayer(room.getSeated().get(seat));
+		}
+
+		// a change that failed before the restart fails the same way again, and is skipped
+		try {
+			switch (type) {
+				case ROUND_STARTED:
+					coordinator.restoreRound(values[0]);
+					break;
+				case GUESS_ADDED:
+					coordinator.addGuess(manager, values[0]);
+					break;
+				case PLAYER_LEFT:
+					coordinator.leave(manager);
+					break;
+				case RETIRED:
+					restored.remove(room.getId());
+					break;
+				default:
+					break;
+			}
+		}
+		catch (Exception e) {
+			System.err.printf("Cannot replay change %d of %s: %s\n", type, room, e);
+		}
+	}
+
+
+	/**
+	 * Starts writing snapshots in the background
+	 */
+	public void start() {
+		running = true;
+		thread = new Thread(this, "state-store");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				snapshot();
+
+				if (resumeDeadline > 0 && System.currentTimeMillis() >= resumeDeadline) {
+					resumeDeadline = 0;
+					rooms.releaseVacantSeats();
+				}
+
+				Thread.sleep(intervalMillis);
+			}
+			catch (InterruptedException e) {
+				break;
+			}
+			catch (IOException e) {
+				System.err.println("Cannot write the snapshot: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the open rooms. Only rooms that have changed since the last snapshot
+	 * are written again. Log files that are older than the snapshot are deleted
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void snapshot() throws IOException {
+		long start = System.nanoTime();
+
+		// changes from now on go to the next log file. The rooms are read after that,
+		// so every change in the older files is in the snapshot
+		int firstLog;
+		long lastSequence;
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			roll();
+			firstLog = logIndex;
+			lastSequence = sequence;
+		}
+		finally {
+			lock.unlock();
+		}
+
+		List<GameRoom> open = rooms.getRooms();
+		List<Encoded> snapshot = new ArrayList<>();
+		for (GameRoom room : open) {
+			room.getLock().lock();
+			try {
+				// rooms that are done with their round are not restored
+				if (room.isRetired() || room.getCoordinator().getPhase() == RoundCoordinator.Phase.RESULTS) {
+					encoded.remove(room);
+					continue;
+				}
+
+				Encoded last = encoded.get(room);
+				if (last == null || last.sequence != room.getSequence()) {
+					last = encode(room);
+					encoded.put(room, last);
+					roomsWritten++;
+				}
+				else {
+					roomsCopied++;
+				}
+				snapshot.add(last);
+			}
+			finally {
+				room.getLock().unlock();
+			}
+		}
+		encoded.keySet().retainAll(new HashSet<>(open));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.write(MAGIC);
+		out.writeByte(VERSION);
+		out.writeInt(firstLog);
+		out.writeLong(lastSequence);
+		out.writeInt(snapshot.size());
+		for (Encoded room : snapshot) {
+			out.write(room.bytes);
+		}
+
+		// the last snapshot is only replaced once the new one is on the disk
+		File file = new File(dir, SNAPSHOT);
+		File temp = new File(dir, SNAPSHOT + ".tmp");
+		try (FileOutputStream stream = new FileOutputStream(temp)) {
+			bytes.writeTo(stream);
+			stream.getFD().sync();
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		for (File log : logs(dir)) {
+			if (index(log) < firstLog) {
+				log.delete();
+			}
+		}
+
+		snapshots++;
+		lastSnapshotBytes = bytes.size();
+		totalSnapshotNanos += System.nanoTime() - start;
+	}
+
+	/**
+	 * Must be called while holding the room's lock
+	 */
+	private static Encoded encode(GameRoom room) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(room.getId());
+		out.writeLong(room.getSequence());
+		out.writeByte(room.getCoordinator().getPhase().ordinal());
+		GameSnapshot.write(room.getGame(), room.getSeated(), out);
+		return new Encoded(room.getSequence(), bytes.toByteArray());
+	}
+
+
+	@Override
+	public void onRoomOpened(GameRoom room) {
+		String[] names = new String[room.getSeated().size()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = room.getSeated().get(i).getName();
+		}
+		append(OPENED, room, -1, names);
+	}
+
+	@Override
+	public void onRoundStarted(GameRoom room, GameRound round) {
+		append(ROUND_STARTED, room, -1, round.getCode());
+	}
+
+	@Override
+	public void onGuessAdded(GameRoom room, int seat, String guess) {
+		append(GUESS_ADDED, room, seat, guess);
+	}
+
+	@Override
+	public void onPlayerLeft(GameRoom room, int seat) {
+		append(PLAYER_LEFT, room, seat);
+	}
+
+	@Override
+	public void onRoomRetired(GameRoom room) {
+		append(RETIRED, room, -1);
+	}
+
+	/**
+	 * Appends a change of the room to the log. If the log cannot be written the store is
+	 * closed and the error is printed, the game goes on without it.
+	 * Must be called while holding the room's lock
+	 *
+	 * @param type
+	 * @param room
+	 * @param seat the player's seat, or -1
+	 * @param values
+	 */
+	private void append(int type, GameRoom room, int seat, String... values) {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+
+			long seq = ++sequence;
+			log.writeLong(seq);
+			log.writeByte(type);
+			log.writeInt(room.getId());
+			log.writeInt(seat);
+			log.writeShort(values.length);
+			for (String value : values) {
+				GameSnapshot.writeString(log, value);
+			}
+			log.flush();
+
+			room.setSequence(seq);
+		}
+		catch (IOException e) {
+			System.err.println("Game state store stopped: " + e.getMessage());
+			closeQuietly();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes the log file and starts the next one.
+	 * Must be called while holding the lock
+	 *
+	 * @throws IOException
+	 */
+	private void roll() throws IOException {
+		if (log != null) {
+			log.close();
+		}
+		logIndex++;
+		log = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(logFile(dir, logIndex))));
+	}
+
+
+	/**
+	 * Gets the number of snapshots written
+	 * @return
+	 */
+	public synchronized long getSnapshots() {
+		return snapshots;
+	}
+
+	/**
+	 * Gets the number of rooms written to snapshots because they had changed
+	 * @return
+	 */
+	public synchronized long getRoomsWritten() {
+		return roomsWritten;
+	}
+
+	/**
+	 * Gets the number of rooms copied from the last snapshot because they had not changed
+	 * @return
+	 */
+	public synchronized long getRoomsCopied() {
+		return roomsCopied;
+	}
+
+	/**
+	 * Gets the size of the last snapshot in bytes
+	 * @return
+	 */
+	public synchronized long getLastSnapshotBytes() {
+		return lastSnapshotBytes;
+	}
+
+	public synchronized double getAverageSnapshotMillis() {
+		return snapshots == 0 ? 0 : totalSnapshotNanos / 1e6 / snapshots;
+	}
+
+	public File getDirectory() {
+		return dir;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("snapshots: %d, average snapshot: %.2f ms, last snapshot: %d bytes, rooms written: %d, rooms copied: %d",
+				snapshots, getAverageSnapshotMillis(), lastSnapshotBytes, roomsWritten, roomsCopied);
+	}
+
+	/**
+	 * Stops the snapshots, waiting for the snapshot being written, and closes the log. 
+	 * Changes made later are not kept
+	 */
+	@Override
+	public void close() throws IOException {
+		running = false;
+		Thread thread = this.thread;
+		if (thread != null && thread != Thread.currentThread()) {
+			thread.interrupt();
+			try {
+				thread.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (log != null) {
+				log.close();
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void closeQuietly() {
+		closed = true;
+		try {
+			if (log != null) log.close();
+		}
+		catch (IOException e) {
+			// already failing
+		}
+	}
+
+
+	static File logFile(File dir, int index) {
+		return new File(dir, String.format("%s%06d%s", LOG_PREFIX, index, LOG_SUFFIX));
+	}
+
+	/**
+	 * Gets the log files of the directory in the order they were written
+	 *
+	 * @param dir
+	 * @return
+	 */
+	static List<File> logs(File dir) {
+		List<File> logs = new ArrayList<>();
+		File[] files = dir.listFiles((d, name) -> name.startsWith(LOG_PREFIX) && name.endsWith(LOG_SUFFIX));
+		if (files != null) {
+			for (File file : files) {
+				if (index(file) > 0) {
+					logs.add(file);
+				}
+			}
+		}
+		logs.sort((a, b) -> Integer.compare(index(a), index(b)));
+		return logs;
+	}
+
+	private static int index(File log) {
+		String name = log.getName();
+		try {
+			return Integer.parseInt(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()));
+		}
+		catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of positive values, eg. durations in nanoseconds.
+ *
+ * <p>Bucket i counts the values from 2^(i-1) + 1 to 2^i, so a value is recorded with one atomic
+ * increment and percentiles are accurate to a factor of two. Any number of threads may record
+ * while others read. A reader may see a value in the count before it is in its bucket.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class Histogram {
+
+	public static final int BUCKETS = 64;
+
+	private AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private LongAdder count = new LongAdder();
+	private LongAdder sum = new LongAdder();
+	private AtomicLong max = new AtomicLong();
+
+
+	/**
+	 * Records the value, negative values count as 0
+	 * @param value
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		buckets.incrementAndGet(bucket(value));
+		count.increment();
+		sum.add(value);
+		if (value > max.get()) {
+			max.accumulateAndGet(value, Math::max);
+		}
+	}
+
+	private static int bucket(long value) {
+		return value <= 1 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value - 1));
+	}
+
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public double getMean() {
+		long values = count.sum();
+		return values == 0 ? 0 : sum.sum() / (double) values;
+	}
+
+	/**
+	 * Gets the sum of the values, for the mean over a period
+	 * @return
+	 */
+	public long getSum() {
+		return sum.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Gets the upper bound of the bucket the percentile falls in
+	 *
+	 * @param p from 0 to 1
+	 * @return at most the largest value, 0 if nothing was recorded
+	 */
+	public long getPercentile(double p) {
+		return Math.min(percentile(getBuckets(), p), max.get());
+	}
+
+	/**
+	 * Gets the upper bound of the bucket the percentile falls in, eg. of the counts recorded over a period
+	 *
+	 * @param counts bucket counts, see {@link #getBuckets()}
+	 * @param p from 0 to 1
+	 * @return 0 if the counts are all 0
+	 */
+	public static long percentile(long[] counts, double p) {
+		long total = count(counts);
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(total * p));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Gets the number of values in the bucket counts
+	 * @param counts
+	 * @return
+	 */
+	public static long count(long[] counts) {
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * Gets the count of every bucket, bucket i ends at 2^i
+	 * @return
+	 */
+	public long[] getBuckets() {
+		long[] counts = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+		}
+		return counts;
+	}
+}
@@ -0,0 +1,29 @@
+package server;
+
+import java.io.IOException;
+
+/**
+ * Sends {@link Response} objects to a client. 
+ * <p>Which implementation a client gets depends on the protocol version agreed 
+ * when it connected (see {@link Protocol}).
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public interface IResponseWriter {
+	
+	/**
+	 * Writes the response and makes sure it is sent to the client
+	 * 
+	 * @param response
+	 * @throws IOException
+	 */
+	void write(Response response) throws IOException;
+	
+	/**
+	 * Closes the underlying stream
+	 * 
+	 * @throws IOException
+	 */
+	void close() throws IOException;
+}
@@ -0,0 +1,51 @@
+package server;
+
+import core.GameRound;
+
+/**
+ * Series of room events, everything that changes the state of a {@link GameRoom}.
+ * These methods will be called by the {@link RoomRegistry} and the room's {@link RoundCoordinator}
+ * while holding the room's lock, or before the room is seen by anyone else,
+ * so the events of one room arrive in order.
+ *
+ * <p>Players are identified by their seat, their place in {@link GameRoom#getSeated()}.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public interface IRoomCallback {
+
+	/**
+	 * Callback when the lobby has opened a room for the seated players
+	 * @param room
+	 */
+	void onRoomOpened(GameRoom room);
+
+	/**
+	 * Callback when the round of the room has started
+	 * @param room
+	 * @param round
+	 */
+	void onRoundStarted(GameRoom room, GameRound round);
+
+	/**
+	 * Callback before a guess is added to the round, so a guess that fails is known too
+	 * @param room
+	 * @param seat
+	 * @param guess
+	 */
+	void onGuessAdded(GameRoom room, int seat, String guess);
+
+	/**
+	 * Callback when a player has left the room
+	 * @param room
+	 * @param seat
+	 */
+	void onPlayerLeft(GameRoom room, int seat);
+
+	/**
+	 * Callback when the last player has left and the room is retired
+	 * @param room
+	 */
+	void onRoomRetired(GameRoom room);
+}
@@ -0,0 +1,74 @@
+package server;
+
+import javax.management.MXBean;
+
+/**
+ * Metrics of a running server, as seen by JMX clients such as jconsole (see {@link ServerMetrics}).
+ * Times are in milliseconds
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+@MXBean
+public interface IServerMetrics {
+
+	int getConnectedClients();
+
+	long getConnections();
+
+	long getSignUps();
+
+	double getSignUpsPerSecond();
+
+	long getGuesses();
+
+	double getGuessesPerSecond();
+
+	long getClientReplies();
+
+	long getWins();
+
+	long getLosses();
+
+	long getForfeits();
+
+	int getActiveRounds();
+
+	long getRoundsStarted();
+
+	long getRoundsEnded();
+
+	double getRoundDurationMeanMillis();
+
+	double getRoundDurationP99Millis();
+
+	double getRoundDurationMaxMillis();
+
+	int getLobbyQueueDepth();
+
+	double getLobbyWaitMeanMillis();
+
+	double getLobbyWaitP99Millis();
+
+	double getLobbyWaitMaxMillis();
+
+	long getExceptions();
+
+	long getOutboundOverflows();
+
+	long getOutboundDisconnects();
+
+	long getLockAcquisitions();
+
+	long getLockContended();
+
+	double getLockWaitP99Millis();
+
+	double getLockHoldP99Millis();
+
+	double getRoundWaitP99Millis();
+
+	long getRoundWakeUps();
+
+	long getRoundWakeUpsWithoutProgress();
+}
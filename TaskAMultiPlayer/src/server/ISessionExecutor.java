@@ -0,0 +1,33 @@
+package server;
+
+/**
+ * Decides which thread runs each {@link ServerProcess}.
+ * <p>The server hands every accepted client to {@link #execute(ServerProcess)} and 
+ * calls {@link #shutdown()} when it closes.
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public interface ISessionExecutor {
+	
+	/**
+	 * Runs the process. Must not block the caller (the accept loop)
+	 * 
+	 * @param process
+	 */
+	void execute(ServerProcess process);
+	
+	/**
+	 * Runs the writer of a process's {@link OutboundQueue} on the same kind of thread as the processes. 
+	 * Must not block the caller
+	 * 
+	 * @param writer
+	 */
+	void executeWriter(Runnable writer);
+	
+	/**
+	 * Stops accepting processes. Processes that are still running are not interrupted, 
+	 * they end when their sockets are closed.
+	 */
+	void shutdown();
+}
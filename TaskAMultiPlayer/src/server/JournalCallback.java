@@ -0,0 +1,170 @@
+package server;
+
+import core.Game;
+import core.GameRound;
+import core.IGameCallback;
+import core.Player;
+
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * Callback that records every game and server event in an {@link EventJournal}.
+ *
+ * <p>Only the values of the event are written, nothing is formatted. Clients are identified by
+ * their address and port, so the events of one connection can be told apart when reading back.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class JournalCallback implements IGameCallback, IServerCallback {
+
+	private EventJournal journal;
+
+	public JournalCallback(EventJournal journal) {
+		this.journal = journal;
+	}
+
+	public EventJournal getJournal() {
+		return journal;
+	}
+
+
+	@Override
+	public void onStart(Game game) {
+		journal.append(JournalEvent.Type.GAME_STARTED);
+	}
+
+	@Override
+	public void onSecretCodeCreated(Game game, String secretCode) {
+		journal.append(JournalEvent.Type.SECRET_CODE_CREATED, secretCode);
+	}
+
+	@Override
+	public void onRoundStarted(Game game, GameRound round, Player player) {
+		journal.append(JournalEvent.Type.ROUND_STARTED, name(player), names(round));
+	}
+
+	@Override
+	public void onPlayerSignedUp(Game game, GameRound round, Player player) {
+		journal.append(JournalEvent.Type.PLAYER_SIGNED_UP, name(player));
+	}
+
+	@Override
+	public void onGuessAdded(GameRound round, Player player, String guess) {
+		journal.append(JournalEvent.Type.GUESS_ADDED, name(player), guess);
+	}
+
+	@Override
+	public void onHigherIncorrectGuess(GameRound round, Player player, String guess) {
+		journal.append(JournalEvent.Type.HIGHER_INCORRECT_GUESS, name(player), guess);
+	}
+
+	@Override
+	public void onLowerIncorrectGuess(GameRound round, Player player, String guess) {
+		journal.append(JournalEvent.Type.LOWER_INCORRECT_GUESS, name(player), guess);
+	}
+
+	@Override
+	public void onisInvalidRangeGuess(GameRound round, Player player, String guess) {
+		journal.append(JournalEvent.Type.INVALID_RANGE_GUESS, name(player), guess);
+	}
+
+	@Override
+	public void onPlayerWon(GameRound round, Player player, int numOfGuesses) {
+		journal.append(JournalEvent.Type.PLAYER_WON, name(player), Integer.toString(numOfGuesses));
+	}
+
+	@Override
+	public void onPlayerLost(GameRound round, Player player, String secretCode) {
+		journal.append(JournalEvent.Type.PLAYER_LOST, name(player), secretCode);
+	}
+
+	@Override
+	public void onRoundEnded(Game game, GameRound round) {
+		journal.append(JournalEvent.Type.ROUND_ENDED, names(round));
+	}
+
+	@Override
+	public void onPlayerForfeited(Game game, GameRound round, Player player) {
+		journal.append(JournalEvent.Type.PLAYER_FORFEITED, name(player));
+	}
+
+	@Override
+	public void onPlayerQuited(Game game, Player player) {
+		journal.append(JournalEvent.Type.PLAYER_QUITED, name(player));
+	}
+
+
+	@Override
+	public void onServerStarted(MultiPlayerServer server, int port) {
+		journal.append(JournalEvent.Type.SERVER_STARTED, Integer.toString(port));
+	}
+
+	@Override
+	public void onClientConnected(MultiPlayerServer server, Socket socket) {
+		journal.append(JournalEvent.Type.CLIENT_CONNECTED, address(socket));
+	}
+
+	@Override
+	public void onSendResponse(ServerProcess process, Response response) {
+		journal.append(JournalEvent.Type.SERVER_RESPONDED, address(process),
+				Integer.toString(response.getType()), response.getMessage());
+	}
+
+	@Override
+	public void onClientReply(ServerProcess process, String clientReply) {
+		journal.append(JournalEvent.Type.CLIENT_REPLIED, address(process), clientReply);
+	}
+
+	@Override
+	public void onClientDisconnected(MultiPlayerServer server, Socket socket, ServerProcess process) {
+		journal.append(JournalEvent.Type.CLIENT_DISCONNECTED, address(socket));
+	}
+
+	@Override
+	public void onException(ServerProcess process, Exception e) {
+		journal.append(JournalEvent.Type.EXCEPTION_THROWN, e.getClass().getName(), e.getMessage());
+	}
+
+
+	private static String name(Player player) {
+		return player != null ? player.getName() : null;
+	}
+
+	/**
+	 * Gets the names of the round's players. Every player of a round records its start and end, 
+	 * so a mass round records the number of players instead
+	 */
+	private static String names(GameRound round) {
+		if (round.isMassRound()) {
+			return round.getPlayers().size() + " players";
+		}
+		return names(round.getPlayers());
+	}
+
+	/**
+	 * Player names separated by commas
+	 */
+	private static String names(List<Player> players) {
+		StringBuilder names = new StringBuilder();
+		for (Player player : players) {
+			if (names.length() > 0) {
+				names.append(',');
+			}
+			names.append(player.getName());
+		}
+		return names.toString();
+	}
+
+	private static String address(ServerProcess process) {
+		return process != null ? address(process.getSocket()) : null;
+	}
+
+	private static String address(Socket socket) {
+		if (socket == null || socket.getRemoteSocketAddress() == null) {
+			return null;
+		}
+		return socket.getRemoteSocketAddress().toString();
+	}
+}
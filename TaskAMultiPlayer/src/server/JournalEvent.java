@@ -0,0 +1,129 @@
+package server;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * An event read back from the {@link EventJournal}.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class JournalEvent {
+
+	/**
+	 * Every event of {@link core.IGameCallback} and {@link IServerCallback}, with the names of its fields.
+	 * The codes are written to the journal, so they must never change.
+	 */
+	public enum Type {
+		GAME_STARTED(1),
+		SECRET_CODE_CREATED(2, "code"),
+		ROUND_STARTED(3, "player", "players"),
+		PLAYER_SIGNED_UP(4, "player"),
+		GUESS_ADDED(5, "player", "guess"),
+		HIGHER_INCORRECT_GUESS(6, "player", "guess"),
+		LOWER_INCORRECT_GUESS(7, "player", "guess"),
+		INVALID_RANGE_GUESS(8, "player", "guess"),
+		PLAYER_WON(9, "player", "guesses"),
+		PLAYER_LOST(10, "player", "code"),
+		ROUND_ENDED(11, "players"),
+		PLAYER_FORFEITED(12, "player"),
+		PLAYER_QUITED(13, "player"),
+
+		SERVER_STARTED(64, "port"),
+		CLIENT_CONNECTED(65, "address"),
+		SERVER_RESPONDED(66, "address", "type", "message"),
+		CLIENT_REPLIED(67, "address", "reply"),
+		CLIENT_DISCONNECTED(68, "address"),
+		EXCEPTION_THROWN(69, "exception", "message");
+
+		private static final Type[] BY_CODE = new Type[128];
+		static {
+			for (Type type : values()) {
+				BY_CODE[type.code] = type;
+			}
+		}
+
+		private final int code;
+		private final String[] fields;
+
+		Type(int code, String... fields) {
+			this.code = code;
+			this.fields = fields;
+		}
+
+		public int getCode() {
+			return code;
+		}
+
+		public String[] getFields() {
+			return fields.clone();
+		}
+
+		public int getFieldCount() {
+			return fields.length;
+		}
+
+		/**
+		 * @param code
+		 * @return the type, or null if the code is unknown
+		 */
+		public static Type fromCode(int code) {
+			return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+		}
+	}
+
+
+	private Type type;
+	private long time;
+	private String[] values;
+
+	public JournalEvent(Type type, long time, String[] values) {
+		this.type = type;
+		this.time = time;
+		this.values = values;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the time of the event in milliseconds since the epoch
+	 * @return
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Gets the value of a field of the event
+	 *
+	 * @param field one of the names in {@link Type#getFields()}
+	 * @return the value, or null if the event has no such field
+	 */
+	public String get(String field) {
+		for (int i = 0; i < type.fields.length && i < values.length; i++) {
+			if (type.fields[i].equals(field)) {
+				return values[i];
+			}
+		}
+		return null;
+	}
+
+	public String[] getValues() {
+		return values.clone();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder line = new StringBuilder();
+		line.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(time)));
+		line.append(' ').append(type);
+		for (int i = 0; i < values.length; i++) {
+			String name = i < type.fields.length ? type.fields[i] : "field" + i;
+			line.append(' ').append(name).append('=').append(values[i]);
+		}
+		return line.toString();
+	}
+}
@@ -0,0 +1,148 @@
+package server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads the events of an {@link EventJournal} back, segment by segment.
+ *
+ * <p>Each segment is mapped into memory and decoded in one pass, so reading is mostly copying the
+ * strings out. The segment that is still being written can be read too, reading stops at
+ * the last complete event.
+ *
+ * <p>Can be run to print a journal: <pre>java -cp bin server.JournalReader [directory]</pre>
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class JournalReader {
+
+	private File dir;
+
+	// reused for every string, used by one read at a time
+	private byte[] scratch = new byte[256];
+
+
+	public JournalReader(File dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * Gets the segment files in the order they were written
+	 * @return
+	 */
+	public List<File> getSegments() {
+		return EventJournal.segments(dir);
+	}
+
+	/**
+	 * Passes every event of the journal to the consumer, oldest first
+	 *
+	 * @param consumer
+	 * @return the number of events read
+	 * @throws IOException if a segment is not a journal segment
+	 */
+	public long read(Consumer<JournalEvent> consumer) throws IOException {
+		long count = 0;
+		for (File segment : getSegments()) {
+			count += read(segment, consumer);
+		}
+		return count;
+	}
+
+	/**
+	 * Passes every event of one segment to the consumer
+	 *
+	 * @param segment
+	 * @param consumer
+	 * @return the number of events read
+	 * @throws IOException
+	 */
+	public long read(File segment, Consumer<JournalEvent> consumer) throws IOException {
+		MappedByteBuffer buffer;
+		try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+		}
+
+		checkHeader(segment, buffer);
+
+		long count = 0;
+		while (buffer.remaining() >= 4) {
+			int start = buffer.position();
+			int length = buffer.getInt();
+
+			// end of the events, or an event that was not finished
+			if (length <= 0 || length > buffer.remaining()) {
+				break;
+			}
+
+			JournalEvent.Type type = JournalEvent.Type.fromCode(buffer.get());
+			long time = buffer.getLong();
+
+			int end = start + 4 + length;
+			String[] values = new String[type != null ? type.getFieldCount() : 0];
+			int i = 0;
+			while (buffer.position() < end) {
+				String value = readString(buffer);
+				if (i < values.length) {
+					values[i++] = value;
+				}
+			}
+
+			// events written by a newer version are skipped
+			if (type != null) {
+				consumer.accept(new JournalEvent(type, time, values));
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private void checkHeader(File segment, MappedByteBuffer buffer) throws IOException {
+		if (buffer.remaining() < EventJournal.HEADER_LENGTH) {
+			throw new StreamCorruptedException(segment + " is not a journal segment");
+		}
+		for (byte b : EventJournal.MAGIC) {
+			if (buffer.get() != b) {
+				throw new StreamCorruptedException(segment + " is not a journal segment");
+			}
+		}
+		int version = buffer.get();
+		if (version > EventJournal.VERSION) {
+			throw new StreamCorruptedException(segment + " was written by a newer version " + version);
+		}
+	}
+
+	private String readString(MappedByteBuffer buffer) {
+		int length = buffer.getShort() & 0xFFFF;
+		if (length > scratch.length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		buffer.get(scratch, 0, length);
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Prints the journal, one event per line
+	 *
+	 * @param args the journal directory, defaults to {@link MultiPlayerServer#DEFAULT_JOURNAL}
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		File dir = new File(args.length > 0 ? args[0] : MultiPlayerServer.DEFAULT_JOURNAL);
+
+		long start = System.nanoTime();
+		long count = new JournalReader(dir).read(System.out::println);
+		long elapsed = System.nanoTime() - start;
+
+		System.err.printf("%d events in %.1f ms%n", count, elapsed / 1e6);
+	}
+}
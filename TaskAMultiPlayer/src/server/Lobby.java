@@ -0,0 +1,367 @@
+package server;
+
+import core.Game;
+import core.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Queue of players waiting for a round.
+ *
+ * <p>Players join the end of the queue with {@link #enqueue(Player, Runnable)}, when they sign up
+ * and again every time they choose to continue. A single matchmaker thread takes the first
+ * {@link #getMatchSize()} players from the head of the queue, opens a {@link GameRoom} for them
+ * and starts on the next players straight away, so a deep queue plays several rounds at once.
+ *
+ * <p>Fairness: players are matched in the order they joined the queue, and nobody waits longer
+ * than the maximum wait. When the player at the head has waited that long, the round starts with
+ * the players there are, like the old 20 second lobby did.
+ *
+ * <p>Joining and leaving the queue are O(1) and never take a lock. A player that leaves the
+ * queue is only marked, and the matchmaker skips them when they reach the head.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class Lobby implements Runnable {
+
+	public static final int DEFAULT_MATCH_SIZE = Game.MIN_PLAYERS;
+
+	private static final int WAITING = 0;
+	private static final int CLAIMED = 1;
+	private static final int MATCHED = 2;
+	private static final int CANCELLED = 3;
+
+	/**
+	 * A player's place in the queue
+	 */
+	public static final class Ticket {
+
+		private Player player;
+		private Runnable listener;
+		private long enqueuedAt = System.nanoTime();
+
+		private AtomicInteger state = new AtomicInteger(WAITING);
+		private CountDownLatch done = new CountDownLatch(1);
+		private volatile GameRoom room;
+
+		private Ticket(Player player, Runnable listener) {
+			this.player = player;
+			this.listener = listener;
+		}
+
+		public Player getPlayer() {
+			return player;
+		}
+
+		/**
+		 * Gets the room the player was matched to.
+		 * This returns null until the player is matched, or if the lobby was closed
+		 * @return
+		 */
+		public GameRoom getRoom() {
+			return room;
+		}
+
+		/**
+		 * @return true once the player is matched or the lobby is closed
+		 */
+		public boolean isDone() {
+			return done.getCount() == 0;
+		}
+
+		/**
+		 * Waits until the player is matched
+		 *
+		 * @return the room, or null if the lobby was closed
+		 * @throws InterruptedException
+		 */
+		public GameRoom awaitMatch() throws InterruptedException {
+			done.await();
+			return room;
+		}
+
+		private void complete(GameRoom room) {
+			this.room = room;
+			done.countDown();
+			if (listener != null) {
+				listener.run();
+			}
+		}
+	}
+
+
+	private RoomRegistry rooms;
+	private int matchSize;
+	private long maxWaitNanos;
+
+	private Queue<Ticket> queue = new ConcurrentLinkedQueue<>();
+
+	// players taken from the head for the next match, used by the matchmaker thread only
+	private List<Ticket> forming = new ArrayList<>();
+
+	private volatile Thread matchmaker;
+	private volatile boolean running = false;
+	private volatile boolean closed = false;
+
+	// metrics
+	private AtomicInteger depth = new AtomicInteger();
+	private AtomicInteger maxDepth = new AtomicInteger();
+	private AtomicLong matches = new AtomicLong();
+	private AtomicLong matchedPlayers = new AtomicLong();
+	private AtomicLong totalTimeToMatch = new AtomicLong();
+	private AtomicLong maxTimeToMatch = new AtomicLong();
+	private Histogram timeToMatchHistogram = new Histogram();
+
+
+	public Lobby(RoomRegistry rooms) {
+		this(rooms, DEFAULT_MATCH_SIZE, ServerProcess.WAITING_TIME_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @param rooms opens a room for every match
+	 * @param matchSize players per round
+	 * @param maxWait longest a player waits before the round starts with fewer players
+	 * @param unit
+	 */
+	public Lobby(RoomRegistry rooms, int matchSize, long maxWait, TimeUnit unit) {
+		this.rooms = rooms;
+		this.matchSize = matchSize;
+		this.maxWaitNanos = unit.toNanos(maxWait);
+	}
+
+
+	/**
+	 * Starts the matchmaker thread
+	 */
+	public void start() {
+		running = true;
+		matchmaker = new Thread(this, "lobby-matchmaker");
+		matchmaker.setDaemon(true);
+		matchmaker.start();
+	}
+
+	/**
+	 * Stops the matchmaker. Players still in the queue are released without a room
+	 */
+	public void close() {
+		closed = true;
+		running = false;
+		Thread thread = matchmaker;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+
+	/**
+	 * Adds the player to the end of the queue.
+	 * If the lobby is closed the ticket is released straight away, without a room
+	 *
+	 * @param player
+	 * @param listener called on the matchmaker thread once the player is matched,
+	 * or on the caller's thread if the lobby is closed. May be null
+	 * @return the player's ticket
+	 */
+	public Ticket enqueue(Player player, Runnable listener) {
+		Ticket ticket = new Ticket(player, listener);
+		queue.add(ticket);
+
+		int waiting = depth.incrementAndGet();
+		maxDepth.accumulateAndGet(waiting, Math::max);
+
+		// the matchmaker may have released the queue already, whoever claims the ticket first releases it
+		if (closed) {
+			if (queue.remove(ticket) && ticket.state.compareAndSet(WAITING, CLAIMED)) {
+				release(ticket);
+			}
+			return ticket;
+		}
+
+		Thread thread = matchmaker;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+		return ticket;
+	}
+
+	/**
+	 * Takes the player out of the queue.
+	 *
+	 * @param ticket
+	 * @return false if the player is already being matched. The ticket will then get its room
+	 */
+	public boolean cancel(Ticket ticket) {
+		if (ticket.state.compareAndSet(WAITING, CANCELLED)) {
+			depth.decrementAndGet();
+			ticket.done.countDown();
+			return true;
+		}
+		return false;
+	}
+
+
+	/**
+	 * Matchmaker loop. Forms a match as soon as there are enough players,
+	 * or when the oldest player has waited too long.
+	 */
+	@Override
+	public void run() {
+		while (running) {
+			claim();
+
+			if (forming.size() >= matchSize || ( ! forming.isEmpty() && remainingWait() <= 0)) {
+				match();
+				continue;
+			}
+
+			if (forming.isEmpty()) {
+				LockSupport.park(this);
+			}
+			else {
+				LockSupport.parkNanos(this, remainingWait());
+			}
+		}
+
+		// release everyone still waiting
+		for (Ticket ticket : forming) {
+			release(ticket);
+		}
+		forming.clear();
+
+		Ticket ticket;
+		while ((ticket = queue.poll()) != null) {
+			if (ticket.state.compareAndSet(WAITING, CLAIMED)) {
+				release(ticket);
+			}
+		}
+	}
+
+	/**
+	 * Moves players from the head of the queue to the match being formed
+	 */
+	private void claim() {
+		while (forming.size() < matchSize) {
+			Ticket ticket = queue.poll();
+			if (ticket == null) {
+				return;
+			}
+			// players that left the queue are skipped
+			if (ticket.state.compareAndSet(WAITING, CLAIMED)) {
+				forming.add(ticket);
+			}
+		}
+	}
+
+	/**
+	 * @return nanoseconds the oldest player of the forming match can still wait
+	 */
+	private long remainingWait() {
+		return forming.get(0).enqueuedAt + maxWaitNanos - System.nanoTime();
+	}
+
+	private void match() {
+		List<Player> players = new ArrayList<>();
+		for (Ticket ticket : forming) {
+			players.add(ticket.player);
+		}
+		GameRoom room = rooms.open(players);
+
+		long now = System.nanoTime();
+		for (Ticket ticket : forming) {
+			long timeToMatch = now - ticket.enqueuedAt;
+			totalTimeToMatch.addAndGet(timeToMatch);
+			maxTimeToMatch.accumulateAndGet(timeToMatch, Math::max);
+			timeToMatchHistogram.record(timeToMatch);
+
+			ticket.state.set(MATCHED);
+			depth.decrementAndGet();
+			ticket.complete(room);
+		}
+
+		matches.incrementAndGet();
+		matchedPlayers.addAndGet(forming.size());
+		forming.clear();
+	}
+
+	private void release(Ticket ticket) {
+		ticket.state.set(CANCELLED);
+		depth.decrementAndGet();
+		ticket.complete(null);
+	}
+
+
+	public RoomRegistry getRooms() {
+		return rooms;
+	}
+
+	public int getMatchSize() {
+		return matchSize;
+	}
+
+	/**
+	 * Gets the number of players waiting for a round
+	 * @return
+	 */
+	public int getQueueDepth() {
+		return depth.get();
+	}
+
+	/**
+	 * Gets the highest number of players that have waited at the same time
+	 * @return
+	 */
+	public int getMaxQueueDepth() {
+		return maxDepth.get();
+	}
+
+	/**
+	 * Gets the number of rounds formed
+	 * @return
+	 */
+	public long getMatches() {
+		return matches.get();
+	}
+
+	/**
+	 * Gets the average time players waited in the queue for a round
+	 * @return
+	 */
+	public double getAverageTimeToMatchMillis() {
+		long players = matchedPlayers.get();
+		if (players == 0) {
+			return 0;
+		}
+		return totalTimeToMatch.get() / (double) players / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * Gets the longest time a player waited in the queue for a round
+	 * @return
+	 */
+	public double getMaxTimeToMatchMillis() {
+		return maxTimeToMatch.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * Gets the times players waited in the queue for a round, in nanoseconds
+	 * @return
+	 */
+	public Histogram getTimeToMatch() {
+		return timeToMatchHistogram;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("queue depth %d (max %d), %d rounds formed, time to match %.1f ms average, %.1f ms max",
+				getQueueDepth(), getMaxQueueDepth(), getMatches(), getAverageTimeToMatchMillis(), getMaxTimeToMatchMillis());
+	}
+}
@@ -0,0 +1,29 @@
+package server;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a player waiting in the {@link Lobby}, from joining the queue 
+ * to being matched to a room.
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+@Name("guessing.LobbyWait")
+@Label("Lobby Wait")
+@Category({"Guessing Game", "Session"})
+@Description("A player waiting in the lobby to be matched")
+@StackTrace(false)
+public class LobbyWaitEvent extends jdk.jfr.Event {
+	
+	@Label("Player")
+	public String player;
+	
+	@Label("Room")
+	@Description("Room the player was matched to, 0 if the lobby was closed")
+	public int room;
+}
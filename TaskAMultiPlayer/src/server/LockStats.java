@@ -0,0 +1,261 @@
+package server;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Contention of the rooms' locks (see {@link GameRoom#getLock()}), shared by every room of a {@link RoomRegistry}.
+ *
+ * <p>Each section of a player's session that takes the lock records how long it waited to get the lock
+ * and how long it held it. Players that finished their guesses wait for the round to end on the room's
+ * condition, the time they spend there is recorded apart and is not counted as holding the lock.
+ * A player woken before their round has ended makes no progress and goes back to waiting, those wake-ups
+ * are counted too.
+ *
+ * <p>Everything is recorded in {@link Histogram}s and counters, so recording does not add any locking of its own.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class LockStats {
+
+	/**
+	 * The sections of a session that take the room's lock.
+	 * CANCEL is a NIO process taking itself out of the round's waiters when it closes, before it leaves
+	 */
+	public enum Section {
+		JOIN,
+		GUESS,
+		ROUND_END,
+		CONTINUE,
+		LEAVE,
+		CANCEL
+	}
+
+	private Map<Section, Histogram> acquire = new EnumMap<>(Section.class);
+	private Map<Section, Histogram> hold = new EnumMap<>(Section.class);
+	private LongAdder contended = new LongAdder();
+
+	private Histogram roundWaits = new Histogram();
+	private LongAdder wakeUps = new LongAdder();
+	private LongAdder wakeUpsWithoutProgress = new LongAdder();
+
+	// counts at the last summary, see summary()
+	private long[][] lastAcquire = new long[Section.values().length][];
+	private long[][] lastHold = new long[Section.values().length][];
+	private long[] lastRoundWaits = new long[Histogram.BUCKETS];
+	private long lastWakeUps = 0;
+	private long lastWakeUpsWithoutProgress = 0;
+	private long lastContended = 0;
+
+
+	public LockStats() {
+		for (Section section : Section.values()) {
+			acquire.put(section, new Histogram());
+			hold.put(section, new Histogram());
+			lastAcquire[section.ordinal()] = new long[Histogram.BUCKETS];
+			lastHold[section.ordinal()] = new long[Histogram.BUCKETS];
+		}
+	}
+
+
+	/**
+	 * Takes the lock and records how long it took
+	 *
+	 * @param lock
+	 * @param section
+	 * @return the time the lock was taken, to pass to {@link #unlock(ReentrantLock, Section, long)}
+	 */
+	public long lock(ReentrantLock lock, Section section) {
+		long start = System.nanoTime();
+		if ( ! lock.tryLock()) {
+			contended.increment();
+			lock.lock();
+		}
+		long acquired = System.nanoTime();
+		acquire.get(section).record(acquired - start);
+		return acquired;
+	}
+
+	/**
+	 * Releases the lock and records how long it was held
+	 *
+	 * @param lock
+	 * @param section
+	 * @param acquired the time returned by {@link #lock(ReentrantLock, Section)}, plus the time spent
+	 * waiting on a condition of the lock as it is released while waiting
+	 */
+	public void unlock(ReentrantLock lock, Section section, long acquired) {
+		long held = System.nanoTime() - acquired;
+		lock.unlock();
+		hold.get(section).record(held);
+	}
+
+	/**
+	 * Records a player waking up while waiting for their round to end
+	 * @param progress true if the round has ended, false if the player goes back to waiting
+	 */
+	public void wokenUp(boolean progress) {
+		wakeUps.increment();
+		if ( ! progress) {
+			wakeUpsWithoutProgress.increment();
+		}
+	}
+
+	/**
+	 * Records how long a player waited for their round to end
+	 * @param nanos
+	 */
+	public void waited(long nanos) {
+		roundWaits.record(nanos);
+	}
+
+
+	/**
+	 * Gets the time the section waited to get the lock, in nanoseconds
+	 * @param section
+	 * @return
+	 */
+	public Histogram getAcquire(Section section) {
+		return acquire.get(section);
+	}
+
+	/**
+	 * Gets the time the section held the lock, in nanoseconds
+	 * @param section
+	 * @return
+	 */
+	public Histogram getHold(Section section) {
+		return hold.get(section);
+	}
+
+	/**
+	 * Gets the time players waited for their round to end, in nanoseconds
+	 * @return
+	 */
+	public Histogram getRoundWaits() {
+		return roundWaits;
+	}
+
+	/**
+	 * Gets the number of times the lock was already held by another thread when a section tried to take it
+	 * @return
+	 */
+	public long getContended() {
+		return contended.sum();
+	}
+
+	public long getWakeUps() {
+		return wakeUps.sum();
+	}
+
+	public long getWakeUpsWithoutProgress() {
+		return wakeUpsWithoutProgress.sum();
+	}
+
+	/**
+	 * Gets the number of times the lock was taken by every section
+	 * @return
+	 */
+	public long getAcquisitions() {
+		long count = 0;
+		for (Histogram histogram : acquire.values()) {
+			count += histogram.getCount();
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the largest percentile of the time to get the lock of all the sections
+	 * @param p from 0 to 1
+	 * @return nanoseconds
+	 */
+	public long getAcquirePercentile(double p) {
+		long value = 0;
+		for (Histogram histogram : acquire.values()) {
+			value = Math.max(value, histogram.getPercentile(p));
+		}
+		return value;
+	}
+
+	/**
+	 * Gets the largest percentile of the time the lock was held of all the sections
+	 * @param p from 0 to 1
+	 * @return nanoseconds
+	 */
+	public long getHoldPercentile(double p) {
+		long value = 0;
+		for (Histogram histogram : hold.values()) {
+			value = Math.max(value, histogram.getPercentile(p));
+		}
+		return value;
+	}
+
+
+	/**
+	 * Describes the contention since the last summary on one line, for the periodic summary of the server.
+	 * Percentiles are the upper bound of their bucket
+	 *
+	 * @return
+	 */
+	public synchronized String summary() {
+		StringBuilder line = new StringBuilder("locks:");
+
+		long acquisitions = 0;
+		for (Section section : Section.values()) {
+			long[] acquireCounts = since(acquire.get(section), lastAcquire[section.ordinal()]);
+			long[] holdCounts = since(hold.get(section), lastHold[section.ordinal()]);
+			long count = Histogram.count(acquireCounts);
+			acquisitions += count;
+			if (count == 0) {
+				continue;
+			}
+			line.append(String.format(" %s %d (wait p99 %s, hold p99 %s),", section.toString().toLowerCase(), count,
+					format(Histogram.percentile(acquireCounts, 0.99)), format(Histogram.percentile(holdCounts, 0.99))));
+		}
+
+		long contendedNow = contended.sum();
+		long wakeUpsNow = wakeUps.sum();
+		long withoutProgressNow = wakeUpsWithoutProgress.sum();
+		long[] waitCounts = since(roundWaits, lastRoundWaits);
+
+		line.append(String.format(" %d of %d contended, %d round waits (p99 %s), %d wake-ups (%d without progress)",
+				contendedNow - lastContended, acquisitions, Histogram.count(waitCounts), format(Histogram.percentile(waitCounts, 0.99)),
+				wakeUpsNow - lastWakeUps, withoutProgressNow - lastWakeUpsWithoutProgress));
+
+		lastContended = contendedNow;
+		lastWakeUps = wakeUpsNow;
+		lastWakeUpsWithoutProgress = withoutProgressNow;
+		return line.toString();
+	}
+
+	/**
+	 * Gets the bucket counts recorded since the last ones and keeps the new ones
+	 */
+	private static long[] since(Histogram histogram, long[] last) {
+		long[] counts = histogram.getBuckets();
+		long[] delta = new long[counts.length];
+		for (int i = 0; i < counts.length; i++) {
+			delta[i] = counts[i] - last[i];
+			last[i] = counts[i];
+		}
+		return delta;
+	}
+
+	private static String format(long nanos) {
+		if (nanos < TimeUnit.MICROSECONDS.toNanos(1000)) {
+			return String.format("%.1f us", nanos / 1e3);
+		}
+		return String.format("%.1f ms", nanos / 1e6);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d lock acquisitions (%d contended), wait p99 %s, hold p99 %s, %d wake-ups (%d without progress)",
+				getAcquisitions(), getContended(), format(getAcquirePercentile(0.99)), format(getHoldPercentile(0.99)),
+				getWakeUps(), getWakeUpsWithoutProgress());
+	}
+}
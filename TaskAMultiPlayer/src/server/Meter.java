@@ -0,0 +1,76 @@
+package server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events and their rate over the last seconds.
+ *
+ * <p>The total is a striped counter, so threads marking events at the same time do not wait
+ * for each other. The rate comes from one counter per second, kept for {@link #SLOTS} seconds
+ * and reused after that. Marking is lock-free; an event marked as a second turns over may be
+ * counted in the next one.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class Meter {
+
+	public static final int SLOTS = 16;
+
+	/**
+	 * Seconds the rate is the average of, the second that is not over yet is left out
+	 */
+	public static final int RATE_SECONDS = 10;
+
+	private LongAdder total = new LongAdder();
+	private LongAdder[] seconds = new LongAdder[SLOTS];
+	// the second each slot counts
+	private AtomicLongArray stamps = new AtomicLongArray(SLOTS);
+
+
+	public Meter() {
+		for (int i = 0; i < SLOTS; i++) {
+			seconds[i] = new LongAdder();
+			stamps.set(i, Long.MIN_VALUE);
+		}
+	}
+
+	public void mark() {
+		total.increment();
+
+		long second = now();
+		int slot = (int) Math.floorMod(second, (long) SLOTS);
+		long stamp = stamps.get(slot);
+		if (stamp != second && stamps.compareAndSet(slot, stamp, second)) {
+			seconds[slot].reset();
+		}
+		seconds[slot].increment();
+	}
+
+	private static long now() {
+		return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+	}
+
+
+	public long getCount() {
+		return total.sum();
+	}
+
+	/**
+	 * Gets the events per second over the last {@link #RATE_SECONDS} seconds
+	 * @return
+	 */
+	public double getRate() {
+		long second = now();
+		long events = 0;
+		for (long s = second - RATE_SECONDS; s < second; s++) {
+			int slot = (int) Math.floorMod(s, (long) SLOTS);
+			if (stamps.get(slot) == s) {
+				events += seconds[slot].sum();
+			}
+		}
+		return events / (double) RATE_SECONDS;
+	}
+}
@@ -0,0 +1,221 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Local HTTP listener that serves the server's metrics in the Prometheus text format, on /metrics.
+ *
+ * <p>Everything is read from counters that are updated without locks ({@link ServerMetrics}, the
+ * {@link Lobby} and the {@link OutboundQueue.Stats}) and from a copy of the open rooms, so a scrape
+ * never takes the lock of a room or a game. Values that change during a scrape may be a moment apart.
+ * It only listens on the loopback address, eg. <pre>curl http://127.0.0.1:9095/metrics</pre>
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class MetricsEndpoint {
+
+	public static final String PATH = "/metrics";
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	/**
+	 * Histogram buckets that are written, from about a millisecond (2^20 ns) to about 68 seconds (2^36 ns)
+	 */
+	public static final int FIRST_BUCKET = 20;
+	public static final int LAST_BUCKET = 36;
+
+	/**
+	 * Buckets of the lock histograms, from about a microsecond (2^10 ns) to about a second (2^30 ns)
+	 */
+	public static final int FIRST_LOCK_BUCKET = 10;
+	public static final int LAST_LOCK_BUCKET = 30;
+
+	private ServerMetrics metrics;
+	private RoomRegistry rooms;
+	private HttpServer http;
+
+
+	public MetricsEndpoint(ServerMetrics metrics, RoomRegistry rooms) {
+		this.metrics = metrics;
+		this.rooms = rooms;
+	}
+
+
+	/**
+	 * Starts listening on the loopback address. Requests are answered one at a time by the listener's thread
+	 *
+	 * @param port
+	 * @throws IOException
+	 */
+	public void start(int port) throws IOException {
+		http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		http.createContext(PATH, this::handle);
+		http.start();
+	}
+
+	public int getPort() {
+		return http.getAddress().getPort();
+	}
+
+	public void close() {
+		if (http != null) {
+			http.stop(0);
+		}
+	}
+
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			if ( ! exchange.getRequestMethod().equals("GET") && ! exchange.getRequestMethod().equals("HEAD")) {
+				exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			if (exchange.getRequestMethod().equals("HEAD")) {
+				exchange.sendResponseHeaders(200, -1);
+				return;
+			}
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+
+	/**
+	 * Writes the metrics in the Prometheus text format
+	 * @return
+	 */
+	public String scrape() {
+		StringBuilder text = new StringBuilder(4096);
+
+		// server and sessions
+		gauge(text, "guessing_clients_connected", "Clients connected now", metrics.getConnectedClients());
+		counter(text, "guessing_connections_total", "Clients that have connected", metrics.getConnections());
+		counter(text, "guessing_client_replies_total", "Lines the clients have sent", metrics.getClientReplies());
+		counter(text, "guessing_exceptions_total", "Exceptions reported by the server", metrics.getExceptions());
+
+		OutboundQueue.Stats outbound = metrics.getOutboundStats();
+		gauge(text, "guessing_outbound_queue_depth", "Responses waiting in the clients' outbound queues", outbound.getDepth());
+		gauge(text, "guessing_outbound_queue_max_depth", "Deepest a client's outbound queue has been", outbound.getMaxDepth());
+		counter(text, "guessing_outbound_queued_total", "Responses queued for the clients", outbound.getQueued());
+		counter(text, "guessing_outbound_overflows_total", "Responses that found their queue full", outbound.getOverflows());
+		counter(text, "guessing_outbound_dropped_total", "Responses dropped for slow clients", outbound.getDropped());
+		counter(text, "guessing_outbound_coalesced_total", "Responses merged for slow clients", outbound.getCoalesced());
+		counter(text, "guessing_outbound_disconnects_total", "Slow clients disconnected", outbound.getDisconnects());
+
+		// games
+		counter(text, "guessing_sign_ups_total", "Players that have signed up", metrics.getSignUps());
+		counter(text, "guessing_guesses_total", "Guesses made", metrics.getGuesses());
+		header(text, "guessing_player_outcomes_total", "Players that have won, lost or forfeited a round", "counter");
+		sample(text, "guessing_player_outcomes_total{outcome=\"won\"}", metrics.getWins());
+		sample(text, "guessing_player_outcomes_total{outcome=\"lost\"}", metrics.getLosses());
+		sample(text, "guessing_player_outcomes_total{outcome=\"forfeited\"}", metrics.getForfeits());
+
+		// rounds
+		gauge(text, "guessing_rounds_active", "Rounds that have started and not ended", metrics.getActiveRounds());
+		counter(text, "guessing_rounds_started_total", "Rounds started", metrics.getRoundsStarted());
+		counter(text, "guessing_rounds_ended_total", "Rounds ended", metrics.getRoundsEnded());
+		histogram(text, "guessing_round_duration_seconds", "Time from the start of a round to its end", metrics.getRoundDurations());
+
+		// lobby and rooms
+		Lobby lobby = metrics.getLobby();
+		gauge(text, "guessing_lobby_queue_depth", "Players waiting for a round", lobby.getQueueDepth());
+		counter(text, "guessing_lobby_matches_total", "Rounds the lobby has formed", lobby.getMatches());
+		histogram(text, "guessing_lobby_wait_seconds", "Time players waited in the lobby", lobby.getTimeToMatch());
+
+		List<GameRoom> open = rooms.getRooms();
+		int players = 0;
+		for (GameRoom room : open) {
+			players += room.getSeats();
+		}
+		gauge(text, "guessing_rooms_open", "Rooms with players in them", open.size());
+		gauge(text, "guessing_room_players", "Players in the open rooms", players);
+
+		// locks of the rooms
+		LockStats locks = metrics.getLockStats();
+		header(text, "guessing_lock_wait_seconds", "Time waited to get the lock of a room, by the section that took it", "histogram");
+		for (LockStats.Section section : LockStats.Section.values()) {
+			buckets(text, "guessing_lock_wait_seconds", label(section), locks.getAcquire(section), FIRST_LOCK_BUCKET, LAST_LOCK_BUCKET);
+		}
+		header(text, "guessing_lock_hold_seconds", "Time the lock of a room was held, by the section that took it", "histogram");
+		for (LockStats.Section section : LockStats.Section.values()) {
+			buckets(text, "guessing_lock_hold_seconds", label(section), locks.getHold(section), FIRST_LOCK_BUCKET, LAST_LOCK_BUCKET);
+		}
+		counter(text, "guessing_lock_contended_total", "Times the lock of a room was held by another thread", locks.getContended());
+		histogram(text, "guessing_round_wait_seconds", "Time players waited for the others to finish the round", locks.getRoundWaits());
+		header(text, "guessing_round_wake_ups_total", "Times players waiting for the round to end were woken", "counter");
+		sample(text, "guessing_round_wake_ups_total{progress=\"true\"}", locks.getWakeUps() - locks.getWakeUpsWithoutProgress());
+		sample(text, "guessing_round_wake_ups_total{progress=\"false\"}", locks.getWakeUpsWithoutProgress());
+
+		return text.toString();
+	}
+
+	private static void header(StringBuilder text, String name, String help, String type) {
+		text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void sample(StringBuilder text, String name, long value) {
+		text.append(name).append(' ').append(value).append('\n');
+	}
+
+	private static void gauge(StringBuilder text, String name, String help, long value) {
+		header(text, name, help, "gauge");
+		sample(text, name, value);
+	}
+
+	private static void counter(StringBuilder text, String name, String help, long value) {
+		header(text, name, help, "counter");
+		sample(text, name, value);
+	}
+
+	/**
+	 * Writes a histogram of nanoseconds in seconds. Its buckets are cumulative, the ones before
+	 * {@link #FIRST_BUCKET} are counted in the first one and the ones after {@link #LAST_BUCKET} in +Inf
+	 */
+	private static void histogram(StringBuilder text, String name, String help, Histogram histogram) {
+		header(text, name, help, "histogram");
+		buckets(text, name, "", histogram, FIRST_BUCKET, LAST_BUCKET);
+	}
+
+	/**
+	 * Writes the samples of a histogram, with the labels if there are any, eg. section="guess"
+	 */
+	private static void buckets(StringBuilder text, String name, String labels, Histogram histogram, int first, int last) {
+		String separator = labels.isEmpty() ? "" : ",";
+
+		long[] buckets = histogram.getBuckets();
+		long count = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			count += buckets[i];
+			if (i >= first && i <= last) {
+				text.append(name).append("_bucket{").append(labels).append(separator)
+						.append("le=\"").append((1L << i) / 1e9).append("\"} ").append(count).append('\n');
+			}
+		}
+		text.append(name).append("_bucket{").append(labels).append(separator).append("le=\"+Inf\"} ").append(count).append('\n');
+		String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+		text.append(name).append("_sum").append(suffix).append(' ').append(histogram.getSum() / 1e9).append('\n');
+		text.append(name).append("_count").append(suffix).append(' ').append(count).append('\n');
+	}
+
+	private static String label(LockStats.Section section) {
+		return "section=\"" + section.toString().toLowerCase() + "\"";
+	}
+}
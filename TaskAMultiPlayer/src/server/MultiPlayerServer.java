@@ -4,17 +4,23 @@ import core.Game;
 import core.GameCallbackLogger;
 import core.IGameCallback;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+import javax.management.JMException;
+
 /**
  * Controls the logic and server operations of the Simple Guessing Game.
  *
@@ -29,34 +35,256 @@ public class MultiPlayerServer {
 	public static final int DEFAULT_PORT = 61995;
 	public static final String GAME_LOG = "game.log";
 	public static final String COMMUNICATIONS_LOG = "communications.log";
+	
+	/**
+	 * System property for the serialization stream reset interval, 
+	 * eg. -Dguessing.resetInterval=1 (see {@link ObjectResponseWriter})
+	 */
+	public static final String RESET_INTERVAL_PROPERTY = "guessing.resetInterval";
+	
+	/**
+	 * System property that makes the logs asynchronous, eg. -Dguessing.asyncLog=drop. 
+	 * The value is what happens when the log buffer is full: block, drop or sample (see {@link AsyncLogHandler})
+	 */
+	public static final String ASYNC_LOG_PROPERTY = "guessing.asyncLog";
+	
+	/**
+	 * System property that turns on the binary event journal, eg. -Dguessing.journal=journal. 
+	 * The value is the journal directory (see {@link EventJournal})
+	 */
+	public static final String JOURNAL_PROPERTY = "guessing.journal";
+	
+	/**
+	 * Journal directory used by {@link JournalReader} when none is given
+	 */
+	public static final String DEFAULT_JOURNAL = "journal";
+	
+	/**
+	 * System property that keeps the state of the rooms so they survive a restart, eg. -Dguessing.state=state. 
+	 * The value is the state directory (see {@link GameStateStore})
+	 */
+	public static final String STATE_PROPERTY = "guessing.state";
+	
+	/**
+	 * System property for the time between snapshots of the rooms in milliseconds, 
+	 * eg. -Dguessing.snapshotInterval=1000
+	 */
+	public static final String SNAPSHOT_INTERVAL_PROPERTY = "guessing.snapshotInterval";
+	
+	/**
+	 * System property that archives the rounds games no longer keep in memory, eg. -Dguessing.archive=archive. 
+	 * The value is the archive directory (see {@link RoundArchive})
+	 */
+	public static final String ARCHIVE_PROPERTY = "guessing.archive";
+	
+	/**
+	 * Archive directory used by {@link RoundArchive} when none is given
+	 */
+	public static final String DEFAULT_ARCHIVE = "archive";
+	
+	/**
+	 * System property for the number of rounds each game keeps in memory, eg. -Dguessing.retainedRounds=16
+	 */
+	public static final String RETAINED_ROUNDS_PROPERTY = "guessing.retainedRounds";
+	
+	/**
+	 * System property for the number of players per round, eg. -Dguessing.roundSize=1000. 
+	 * Rounds of more than {@link Game#MAX_PLAYERS} players are mass rounds
+	 */
+	public static final String ROUND_SIZE_PROPERTY = "guessing.roundSize";
+	
+	/**
+	 * System property for the number of messages queued for each client, eg. -Dguessing.outboundQueue=256. 
+	 * 0 writes the responses on the game threads, or does not bound them in NIO mode (see {@link OutboundQueue})
+	 */
+	public static final String OUTBOUND_QUEUE_PROPERTY = "guessing.outboundQueue";
+	
+	/**
+	 * System property for what happens when a client's queue is full, eg. -Dguessing.slowClient=disconnect. 
+	 * The value is drop, coalesce or disconnect (see {@link OutboundQueue.SlowClientPolicy})
+	 */
+	public static final String SLOW_CLIENT_PROPERTY = "guessing.slowClient";
+	
+	/**
+	 * System property for the port of the metrics endpoint, eg. -Dguessing.metricsPort=9095. 
+	 * The endpoint only listens on the loopback address (see {@link MetricsEndpoint})
+	 */
+	public static final String METRICS_PORT_PROPERTY = "guessing.metricsPort";
+	
+	/**
+	 * System property for how often the contention of the rooms' locks is summarised, in seconds, 
+	 * eg. -Dguessing.lockSummary=10. There is no summary unless it is set (see {@link LockStats#summary()})
+	 */
+	public static final String LOCK_SUMMARY_PROPERTY = "guessing.lockSummary";
+	
+	/**
+	 * Number of archived rounds the 'h' console command shows
+	 */
+	public static final int HISTORY_ROUNDS = 10;
+	
+	/**
+	 * How client connections are served. Selected with the first command line argument.
+	 * <ul>
+	 * <li>THREAD - one blocking {@link ServerProcess} thread per client (default)</li>
+	 * <li>VIRTUAL - one blocking {@link ServerProcess} virtual thread per client (Java 21 or later)</li>
+	 * <li>NIO - a few I/O threads drive every client (see {@link NioServerEngine})</li>
+	 * </ul>
+	 */
+	public enum ConnectionMode {
+		THREAD,
+		VIRTUAL,
+		NIO
+	}
 
 	private int port;
-	private Game game;
+	// null to listen on every interface
+	private InetAddress bindAddress;
+	private Lobby lobby;
+	private ConnectionMode mode = ConnectionMode.THREAD;
 	
 	// multiple callbacks needed,  not just one
-	private List<IServerCallback> serverCallbacks = new ArrayList<>();
-	private List<IGameCallback> gameCallbacks = new ArrayList<>();
+	private List<IServerCallback> serverCallbacks = new CopyOnWriteArrayList<>();
+	private List<IGameCallback> gameCallbacks = new CopyOnWriteArrayList<>();
+	
+	// passes every event on to all the server callbacks (see getServerCallback())
+	private IServerCallback dispatcher = new IServerCallback() {
+		
+		@Override
+		public void onServerStarted(MultiPlayerServer server, int port) {
+			serverCallbacks.forEach(c -> c.onServerStarted(server, port));
+		}
+		
+		@Override
+		public void onClientConnected(MultiPlayerServer server, Socket socket) {
+			serverCallbacks.forEach(c -> c.onClientConnected(server, socket));
+		}
+		
+		@Override
+		public void onSendResponse(ServerProcess process, Response response) {
+			serverCallbacks.forEach(c -> c.onSendResponse(process, response));
+		}
+		
+		@Override
+		public void onClientReply(ServerProcess process, String clientReply) {
+			serverCallbacks.forEach(c -> c.onClientReply(process, clientReply));
+		}
+		
+		@Override
+		public void onClientDisconnected(MultiPlayerServer server, Socket socket, ServerProcess process) {
+			serverCallbacks.forEach(c -> c.onClientDisconnected(server, socket, process));
+		}
+		
+		@Override
+		public void onException(ServerProcess process, Exception e) {
+			serverCallbacks.forEach(c -> c.onException(process, e));
+		}
+	};
 	
 	// This will not be populated until you call the start() method
 	private ServerSocket serverSocket;
 	
 	
-	public MultiPlayerServer(int port, Game game) {
+	// Only used in NIO mode
+	private NioServerEngine engine;
+	
+	// null unless rounds are archived
+	private RoundArchive roundArchive;
+	
+	// each client's responses are queued unless the capacity is 0, not used in NIO mode
+	private int outboundCapacity = 0;
+	private OutboundQueue.SlowClientPolicy slowClientPolicy = OutboundQueue.SlowClientPolicy.COALESCE;
+	
+	// counters of the clients' outbound queues
+	private OutboundQueue.Stats outboundStats = new OutboundQueue.Stats();
+	
+	// null unless metrics are kept
+	private ServerMetrics metrics;
+	
+	// null unless the metrics are served over HTTP
+	private MetricsEndpoint metricsEndpoint;
+	
+	
+	public MultiPlayerServer(int port, Lobby lobby) {
 		this.port = port;
-		this.game = game;
+		this.lobby = lobby;
+	}
+	
+	public MultiPlayerServer(int port, Lobby lobby, ConnectionMode mode) {
+		this(port, lobby);
+		this.mode = mode;
 	}
 	
 	
 	/**
 	 * Starts the server. Behind the scenes it will launch a new instance of 
-	 * ServerSocket
+	 * ServerSocket and start the lobby's matchmaker
 	 * @throws IOException
 	 */
 	public void start() throws IOException {
-		serverSocket = new ServerSocket(port);
+		serverSocket = new ServerSocket(port, 0, bindAddress);
+		lobby.start();
+		serverCallbacks.forEach(c -> c.onServerStarted(this, port));
+	}
+	
+	/**
+	 * Starts the server in NIO mode. The server socket will belong to the engine's 
+	 * server channel, so {@link #getServerSocket()} and {@link #close()} work the same way.
+	 * 
+	 * @param engine
+	 * @throws IOException
+	 */
+	public void start(NioServerEngine engine) throws IOException {
+		this.engine = engine;
+		serverSocket = engine.start(new InetSocketAddress(bindAddress, port)).socket();
+		lobby.start();
 		serverCallbacks.forEach(c -> c.onServerStarted(this, port));
 	}
 	
+	/**
+	 * Accepts clients until the server socket is closed. Each client is served by a {@link ServerProcess} 
+	 * run by the executor, and its process is saved in the map
+	 * 
+	 * @param executor
+	 * @param resetInterval serialization stream reset interval (see {@link ObjectResponseWriter})
+	 * @param gameCallbackLogger
+	 * @param processes
+	 * @throws IOException a SocketException once the server socket is closed
+	 */
+	public void acceptClients(ISessionExecutor executor, int resetInterval, GameCallbackLogger gameCallbackLogger, 
+			Map<Socket, ServerProcess> processes) throws IOException {
+		do {
+			// listen for new connections
+			Socket socket = serverSocket.accept();
+			AcceptEvent event = new AcceptEvent();
+			event.begin();
+			
+			// keep alive
+			socket.setKeepAlive(true);
+			
+			dispatcher.onClientConnected(this, socket);
+			
+			// process the game in its own thread per client connected
+			ServerProcess process = new ServerProcess(lobby, socket, dispatcher, gameCallbackLogger);
+			process.setResetInterval(resetInterval);
+			if (outboundCapacity > 0) {
+				process.setOutboundQueue(outboundCapacity, slowClientPolicy, outboundStats, executor);
+			}
+			gameCallbacks.forEach(process::addGameCallback);
+			executor.execute(process);
+			
+			// save this process for future reference
+			processes.put(socket, process);
+			
+			event.end();
+			if (event.shouldCommit()) {
+				event.client = String.valueOf(socket.getRemoteSocketAddress());
+				event.mode = mode.toString();
+				event.commit();
+			}
+		} 
+		while (true);
+	}
+	
 	/**
 	 * Adds a new server callback
 	 * @param callback
@@ -65,6 +293,15 @@ public class MultiPlayerServer {
 		serverCallbacks.add(callback);
 	}
 	
+	/**
+	 * Adds a game callback. Every client's game manager gets the callback 
+	 * (see {@link ServerProcess#addGameCallback(IGameCallback)})
+	 * @param callback
+	 */
+	public void addGameCallback(IGameCallback callback) {
+		gameCallbacks.add(callback);
+	}
+	
 	
 	/**
 	 * Get the server socket. 
@@ -76,11 +313,27 @@ public class MultiPlayerServer {
 	}
 	
 	/**
-	 * Get the game instance
+	 * Get the lobby where players wait for a round
+	 * @return
+	 */
+	public Lobby getLobby() {
+		return lobby;
+	}
+	
+	/**
+	 * Get the rooms. Every room plays its own game
+	 * @return
+	 */
+	public RoomRegistry getRooms() {
+		return lobby.getRooms();
+	}
+	
+	/**
+	 * Get the connection mode
 	 * @return
 	 */
-	public Game getGame() {
-		return game;
+	public ConnectionMode getConnectionMode() {
+		return mode;
 	}
 	
 	
@@ -101,6 +354,89 @@ public class MultiPlayerServer {
 		return serverCallbacks;
 	}
 	
+	/**
+	 * Get a single callback that passes every event on to all the server callbacks. 
+	 * This is the callback the client processes use
+	 * @return
+	 */
+	public IServerCallback getServerCallback() {
+		return dispatcher;
+	}
+	
+	
+	public void setRoundArchive(RoundArchive roundArchive) {
+		this.roundArchive = roundArchive;
+	}
+	
+	public RoundArchive getRoundArchive() {
+		return roundArchive;
+	}
+	
+	/**
+	 * Queues each client's responses, written by a thread of its own (see {@link OutboundQueue})
+	 * 
+	 * @param capacity messages per client, 0 writes the responses on the game threads
+	 * @param slowClientPolicy what happens when a client's queue is full
+	 */
+	public void setOutboundQueue(int capacity, OutboundQueue.SlowClientPolicy slowClientPolicy) {
+		this.outboundCapacity = capacity;
+		this.slowClientPolicy = slowClientPolicy;
+	}
+	
+	public int getOutboundCapacity() {
+		return outboundCapacity;
+	}
+	
+	public OutboundQueue.Stats getOutboundStats() {
+		return outboundStats;
+	}
+	
+	public void setMetrics(ServerMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	public ServerMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Sets the metrics endpoint, it is closed with the server
+	 * @param metricsEndpoint
+	 */
+	public void setMetricsEndpoint(MetricsEndpoint metricsEndpoint) {
+		this.metricsEndpoint = metricsEndpoint;
+	}
+	
+	/**
+	 * Listens on the address only, eg. the loopback address. Must be set before the server starts
+	 * @param bindAddress null for every interface
+	 */
+	public void setBindAddress(InetAddress bindAddress) {
+		this.bindAddress = bindAddress;
+	}
+	
+	/**
+	 * Prints the player's last archived rounds
+	 * 
+	 * @param name
+	 */
+	public void printHistory(String name) {
+		if (roundArchive == null) {
+			System.out.printf("Rounds are not archived, start the server with -D%s=%s\n", ARCHIVE_PROPERTY, DEFAULT_ARCHIVE);
+			return;
+		}
+		
+		try {
+			List<ArchivedRound> history = roundArchive.findByPlayer(name, HISTORY_ROUNDS);
+			for (ArchivedRound round : history) {
+				System.out.println(round);
+			}
+			System.out.printf("%d archived rounds of %s.\n", history.size(), name);
+		}
+		catch (IOException e) {
+			System.err.println("Cannot read the round archive: " + e.getMessage());
+		}
+	}
 	
 	/**
 	 * Close the server. 
@@ -113,84 +449,218 @@ public class MultiPlayerServer {
 		} catch (IOException e) {
 			serverCallbacks.forEach(c -> c.onException(null, e));
 		}
+		
+		if (engine != null) engine.close();
+		if (metricsEndpoint != null) metricsEndpoint.close();
+		lobby.close();
 	}
 
 	
+	/**
+	 * Program entry point
+	 * 
+	 * @param args You can pass the connection mode ("thread", "virtual" or "nio") as the first parameter 
+	 * and the number of I/O threads for NIO mode as the second parameter.
+	 * @throws IOException
+	 */
 	public static void main(String[] args) throws IOException {
 		
-		// Create new game. 
+		ConnectionMode mode = getConnectionMode(args);
+		int resetInterval = getResetInterval();
+		
+		// Rounds games no longer keep in memory are archived
+		int retainedRounds = getRetainedRounds();
+		String archiveDir = System.getProperty(ARCHIVE_PROPERTY);
+		RoundArchive archive = archiveDir == null ? null : new RoundArchive(new File(archiveDir));
+		
+		// Every room gets a new game from this factory. 
 		// Game should never be created inside other classes
-		Game game = new Game();
-
-        // Setup server logs
-        Logger commLog = Utility.createLogger(COMMUNICATIONS_LOG, ServerCallback.class);
-        IServerCallback serverCallback = new ServerCallback(commLog);
+		int roundSize = getRoundSize();
+		RoomRegistry rooms = new RoomRegistry(() -> {
+			Game game = new Game();
+			game.setRetention(retainedRounds, archive);
+			game.setMaxPlayers(Math.max(Game.MAX_PLAYERS, roundSize));
+			return game;
+		});
+		
+		// players wait here until there are enough of them for a round
+		Lobby lobby = new Lobby(rooms, roundSize, ServerProcess.WAITING_TIME_SECONDS, TimeUnit.SECONDS);
+		if (roundSize > Game.MAX_PLAYERS) {
+			System.out.printf("Playing mass rounds of %d players.\n", roundSize);
+		}
+		
+		// Rooms that were playing when the server stopped are restored
+		String stateDir = System.getProperty(STATE_PROPERTY);
+		if (stateDir != null) {
+			GameStateStore store = new GameStateStore(new File(stateDir), rooms, getSnapshotInterval());
+			List<GameRoom> restored = store.recover();
+			for (GameRoom room : restored) {
+				room.getGame().setRetention(retainedRounds, archive);
+			}
+			store.start();
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					store.close();
+				}
+				catch (IOException e) {
+					System.err.println("Cannot close the game state store: " + e.getMessage());
+				}
+			}));
+			System.out.printf("Keeping the game state in %s, %d rooms restored.\n", store.getDirectory(), restored.size());
+		}
 
-        // Game log
-        Logger gameLog = Utility.createLogger(GAME_LOG, GameCallbackLogger.class);
-        GameCallbackLogger gameCallbackLogger = new GameCallbackLogger(gameLog);
+		IServerCallback serverCallback;
+		GameCallbackLogger gameCallbackLogger;
+		
+		AsyncLogHandler.OverflowPolicy logPolicy = getAsyncLogPolicy();
+		if (logPolicy == null) {
+			// Setup server logs
+			Logger commLog = Utility.createLogger(COMMUNICATIONS_LOG, ServerCallback.class);
+			serverCallback = new ServerCallback(commLog);
+	
+			// Game log
+			Logger gameLog = Utility.createLogger(GAME_LOG, GameCallbackLogger.class);
+			gameCallbackLogger = new GameCallbackLogger(gameLog);
+		}
+		else {
+			// both logs and their console lines are written by background threads
+			AsyncLogHandler commHandler = Utility.createAsyncLogHandler(COMMUNICATIONS_LOG, logPolicy);
+			serverCallback = new ServerCallback(Utility.createLogger(commHandler, ServerCallback.class), commHandler.getConsole());
+			
+			AsyncLogHandler gameHandler = Utility.createAsyncLogHandler(GAME_LOG, logPolicy);
+			gameCallbackLogger = new GameCallbackLogger(Utility.createLogger(gameHandler, GameCallbackLogger.class), gameHandler.getConsole());
+			
+			System.out.printf("Logging in the background, %s events when the log buffer is full.\n", logPolicy.toString().toLowerCase());
+		}
 		
 
 		// Client processes are saved here
 		Map<Socket, ServerProcess> processes = new ConcurrentHashMap<>();
 		
 		// Create the server
-		MultiPlayerServer multiPlayerServer = new MultiPlayerServer(DEFAULT_PORT, game);
+		MultiPlayerServer multiPlayerServer = new MultiPlayerServer(DEFAULT_PORT, lobby, mode);
 		multiPlayerServer.addServerCallback(serverCallback);
 		
+		if (archive != null) {
+			multiPlayerServer.setRoundArchive(archive);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					archive.close();
+				}
+				catch (IOException e) {
+					System.err.println("Cannot close the round archive: " + e.getMessage());
+				}
+			}));
+			System.out.printf("Archiving rounds in %s, %d kept in memory per game.\n", archive.getDirectory(), retainedRounds);
+		}
+		
+		// Binary journal of every event
+		String journalDir = System.getProperty(JOURNAL_PROPERTY);
+		if (journalDir != null) {
+			EventJournal journal = new EventJournal(new File(journalDir));
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					journal.close();
+				}
+				catch (IOException e) {
+					System.err.println("Cannot close the event journal: " + e.getMessage());
+				}
+			}));
+			
+			JournalCallback journalCallback = new JournalCallback(journal);
+			multiPlayerServer.addServerCallback(journalCallback);
+			multiPlayerServer.addGameCallback(journalCallback);
+			System.out.printf("Recording events in %s.\n", journal.getDirectory());
+		}
+		
+		// metrics for jconsole
+		ServerMetrics metrics = new ServerMetrics(lobby, multiPlayerServer.getOutboundStats());
+		multiPlayerServer.addServerCallback(metrics);
+		multiPlayerServer.addGameCallback(metrics);
+		multiPlayerServer.setMetrics(metrics);
+		try {
+			metrics.register();
+		}
+		catch (JMException e) {
+			System.err.println("Cannot register the metrics MBean: " + e.getMessage());
+		}
+		
+		// and for Prometheus
+		int metricsPort = getMetricsPort();
+		if (metricsPort > 0) {
+			MetricsEndpoint endpoint = new MetricsEndpoint(metrics, rooms);
+			try {
+				endpoint.start(metricsPort);
+				multiPlayerServer.setMetricsEndpoint(endpoint);
+				System.out.printf("Serving metrics on http://127.0.0.1:%d%s\n", endpoint.getPort(), MetricsEndpoint.PATH);
+			}
+			catch (IOException e) {
+				System.err.printf("Cannot serve metrics on port %d: %s\n", metricsPort, e.getMessage());
+			}
+		}
+		
+		// and a line on the locks every few seconds
+		int lockSummarySeconds = getLockSummaryInterval();
+		if (lockSummarySeconds > 0) {
+			LockStats lockStats = rooms.getLockStats();
+			Thread lockSummary = new Thread(() -> {
+				try {
+					while (true) {
+						Thread.sleep(TimeUnit.SECONDS.toMillis(lockSummarySeconds));
+						System.out.println(lockStats.summary());
+					}
+				}
+				catch (InterruptedException e) {
+					// the server is exiting
+				}
+			}, "lock-summary");
+			lockSummary.setDaemon(true);
+			lockSummary.start();
+		}
+		
+		IServerCallback callbacks = multiPlayerServer.getServerCallback();
+		
+		if (mode == ConnectionMode.NIO) {
+			runNio(multiPlayerServer, getIoThreads(args), resetInterval, callbacks, gameCallbackLogger);
+			return;
+		}
+		
+		// Threads that will run each client process
+		ISessionExecutor executor = createSessionExecutor(mode);
+		
+		// Each client's responses are written by a thread of its own, unless the queues are turned off
+		int outboundCapacity = getOutboundQueueCapacity();
+		OutboundQueue.SlowClientPolicy slowClientPolicy = getSlowClientPolicy();
+		if (outboundCapacity > 0) {
+			multiPlayerServer.setOutboundQueue(outboundCapacity, slowClientPolicy);
+			System.out.printf("Queueing up to %d messages per client, slow clients are handled with %s.\n", 
+					outboundCapacity, slowClientPolicy.toString().toLowerCase());
+		}
+		
 		try {
 			// start the server
 			multiPlayerServer.start();
 			ServerSocket serverSocket = multiPlayerServer.getServerSocket();
-			game.start();
 
 			// close the server using 'q'
-			Thread background = new Thread(() -> {
-				Scanner scanner = new Scanner(System.in);
-				String line = "";
-				System.out.println("Press 'q' to exit the server.");
-				do {
-					line = scanner.nextLine();
-				} while (!line.equals("q"));
-				
+			runConsole(multiPlayerServer, outboundCapacity > 0, () -> {
 				try {
 					for (ServerProcess process : processes.values()) {
 						try {
 							Socket socket = process.getSocket();
 							socket.close();
-							serverCallback.onClientDisconnected(multiPlayerServer, socket, process);
+							callbacks.onClientDisconnected(multiPlayerServer, socket, process);
 						} catch (IOException e) {
-							serverCallback.onException(process, e);
+							callbacks.onException(process, e);
 						}
 					}
 					serverSocket.close();
 				} catch (IOException e) {
-					serverCallback.onException(null, e);
+					callbacks.onException(null, e);
 				}
-				scanner.close();
 			});
-			background.start();
 			
-			
-			do {
-				// listen for new connections
-				Socket socket = serverSocket.accept();
-				
-				// keep alive
-				socket.setKeepAlive(true);
-				
-				serverCallback.onClientConnected(multiPlayerServer, socket);
-				
-				// process the game in a new thread per client connected
-				ServerProcess process = new ServerProcess(game, socket, serverCallback, gameCallbackLogger);
-				Thread thread = new Thread(process);
-				thread.start();
-				
-				// save this process for future reference
-				processes.put(socket, process);
-
-			} 
-			while (true);
+			multiPlayerServer.acceptClients(executor, resetInterval, gameCallbackLogger, processes);
 		}
 		// server operator closed the server
 		catch (SocketException e) {
@@ -198,12 +668,268 @@ public class MultiPlayerServer {
 		}
 		// when something wrong happens, trigger an onException() event
 		catch (IOException e) {
-			serverCallback.onException(null, e);
+			callbacks.onException(null, e);
 		}
 		// close the server
+		finally {
+			executor.shutdown();
+			multiPlayerServer.close();
+		}
+	}
+	
+	
+	/**
+	 * Creates the executor for the blocking connection modes. 
+	 * Falls back to platform threads if virtual threads are not available.
+	 * 
+	 * @param mode
+	 * @return
+	 */
+	public static ISessionExecutor createSessionExecutor(ConnectionMode mode) {
+		if (mode == ConnectionMode.VIRTUAL) {
+			if (VirtualThreadSessionExecutor.isSupported()) {
+				return new VirtualThreadSessionExecutor();
+			}
+			System.err.printf("Virtual threads need Java 21 or later, using %s\n", ConnectionMode.THREAD);
+		}
+		return new ThreadPerSessionExecutor();
+	}
+	
+	
+	/**
+	 * Runs the server in NIO mode. The calling thread accepts connections 
+	 * until the server operator closes the server using 'q'.
+	 * 
+	 * @param multiPlayerServer
+	 * @param ioThreads
+	 * @param resetInterval
+	 * @param serverCallback
+	 * @param gameCallbackLogger
+	 */
+	private static void runNio(MultiPlayerServer multiPlayerServer, int ioThreads, int resetInterval,
+			IServerCallback serverCallback, GameCallbackLogger gameCallbackLogger) {
+		
+		NioServerEngine engine = new NioServerEngine(multiPlayerServer, multiPlayerServer.getLobby(), 
+				serverCallback, gameCallbackLogger, ioThreads);
+		engine.setResetInterval(resetInterval);
+		
+		// each client's responses wait in a bounded queue until the channel takes them
+		int outboundCapacity = getOutboundQueueCapacity();
+		OutboundQueue.SlowClientPolicy slowClientPolicy = getSlowClientPolicy();
+		engine.setOutboundQueue(outboundCapacity, slowClientPolicy, multiPlayerServer.getOutboundStats());
+		
+		try {
+			multiPlayerServer.start(engine);
+			System.out.printf("Serving clients with %d I/O threads.\n", ioThreads);
+			if (outboundCapacity > 0) {
+				System.out.printf("Queueing up to %d messages per client, slow clients are handled with %s.\n", 
+						outboundCapacity, slowClientPolicy.toString().toLowerCase());
+			}
+			
+			// close the server using 'q'
+			runConsole(multiPlayerServer, outboundCapacity > 0, multiPlayerServer::close);
+			
+			engine.run();
+			System.out.println("Server closed.");
+		}
+		catch (IOException e) {
+			serverCallback.onException(null, e);
+		}
 		finally {
 			multiPlayerServer.close();
 		}
 	}
+	
+	
+	/**
+	 * Starts the thread that reads the server operator's commands: 
+	 * 's' shows the statistics, 'h &lt;name&gt;' a player's archived rounds and 'q' exits the server.
+	 * 
+	 * @param multiPlayerServer
+	 * @param showOutbound whether 's' also shows the outbound queues
+	 * @param onExit closes the server after 'q'
+	 */
+	private static void runConsole(MultiPlayerServer multiPlayerServer, boolean showOutbound, Runnable onExit) {
+		Thread background = new Thread(() -> {
+			Scanner scanner = new Scanner(System.in);
+			String line = "";
+			System.out.println("Press 's' to show the statistics, 'h <name>' to show a player's archived rounds, or 'q' to exit the server.");
+			do {
+				line = scanner.nextLine();
+				if (line.equals("s")) {
+					System.out.println(multiPlayerServer.getLobby());
+					System.out.println(multiPlayerServer.getMetrics());
+					System.out.println(multiPlayerServer.getLobby().getRooms().getLockStats());
+					if (showOutbound) {
+						System.out.println(multiPlayerServer.getOutboundStats());
+					}
+				}
+				else if (line.startsWith("h ")) {
+					multiPlayerServer.printHistory(line.substring(2).trim());
+				}
+			} while (!line.equals("q"));
+			
+			onExit.run();
+			scanner.close();
+		});
+		background.start();
+	}
+	
+	
+	/**
+	 * Gets the connection mode from command line arguments. 
+	 * The mode must be the first command line argument and defaults to THREAD
+	 * 
+	 * @param args
+	 * @return
+	 */
+	public static ConnectionMode getConnectionMode(String[] args) {
+		if (args.length < 1) {
+			return ConnectionMode.THREAD;
+		}
+		
+		try {
+			return ConnectionMode.valueOf(args[0].trim().toUpperCase());
+		}
+		catch (IllegalArgumentException e) {
+			System.err.printf("%s is not a valid connection mode, using %s\n", args[0], ConnectionMode.THREAD);
+			return ConnectionMode.THREAD;
+		}
+	}
+	
+	/**
+	 * Gets the serialization stream reset interval from the {@link #RESET_INTERVAL_PROPERTY} 
+	 * system property. Defaults to {@link ObjectResponseWriter#DEFAULT_RESET_INTERVAL}
+	 * 
+	 * @return
+	 */
+	public static int getResetInterval() {
+		return Integer.getInteger(RESET_INTERVAL_PROPERTY, ObjectResponseWriter.DEFAULT_RESET_INTERVAL);
+	}
+	
+	/**
+	 * Gets the time between snapshots from the {@link #SNAPSHOT_INTERVAL_PROPERTY} 
+	 * system property. Defaults to {@link GameStateStore#DEFAULT_INTERVAL_MILLIS}
+	 * 
+	 * @return
+	 */
+	public static long getSnapshotInterval() {
+		return Math.max(1, Long.getLong(SNAPSHOT_INTERVAL_PROPERTY, GameStateStore.DEFAULT_INTERVAL_MILLIS));
+	}
+	
+	/**
+	 * Gets the number of players per round from the {@link #ROUND_SIZE_PROPERTY} 
+	 * system property. Defaults to {@link Lobby#DEFAULT_MATCH_SIZE}
+	 * 
+	 * @return from {@link Game#MIN_PLAYERS} to {@link Game#MAX_MASS_PLAYERS}
+	 */
+	public static int getRoundSize() {
+		int size = Integer.getInteger(ROUND_SIZE_PROPERTY, Lobby.DEFAULT_MATCH_SIZE);
+		return Math.max(Game.MIN_PLAYERS, Math.min(Game.MAX_MASS_PLAYERS, size));
+	}
+	
+	/**
+	 * Gets the number of messages queued for each client from the {@link #OUTBOUND_QUEUE_PROPERTY} 
+	 * system property. Defaults to {@link OutboundQueue#DEFAULT_CAPACITY}
+	 * 
+	 * @return the capacity, or 0 to write on the game threads
+	 */
+	public static int getOutboundQueueCapacity() {
+		return Math.max(0, Integer.getInteger(OUTBOUND_QUEUE_PROPERTY, OutboundQueue.DEFAULT_CAPACITY));
+	}
+	
+	/**
+	 * Gets what happens when a client's queue is full from the {@link #SLOW_CLIENT_PROPERTY} 
+	 * system property. Defaults to {@link OutboundQueue.SlowClientPolicy#COALESCE}
+	 * 
+	 * @return
+	 */
+	public static OutboundQueue.SlowClientPolicy getSlowClientPolicy() {
+		String policy = System.getProperty(SLOW_CLIENT_PROPERTY);
+		if (policy == null) {
+			return OutboundQueue.SlowClientPolicy.COALESCE;
+		}
+		
+		try {
+			return OutboundQueue.SlowClientPolicy.valueOf(policy.trim().toUpperCase());
+		}
+		catch (IllegalArgumentException e) {
+			System.err.printf("%s is not a valid slow client policy, using %s\n", policy, OutboundQueue.SlowClientPolicy.COALESCE);
+			return OutboundQueue.SlowClientPolicy.COALESCE;
+		}
+	}
+	
+	/**
+	 * Gets the port of the metrics endpoint from the {@link #METRICS_PORT_PROPERTY} system property
+	 * 
+	 * @return the port, or 0 if metrics are not served over HTTP
+	 */
+	public static int getMetricsPort() {
+		return Math.max(0, Integer.getInteger(METRICS_PORT_PROPERTY, 0));
+	}
+	
+	/**
+	 * Gets how often the locks are summarised from the {@link #LOCK_SUMMARY_PROPERTY} system property
+	 * 
+	 * @return seconds, or 0 if there is no summary
+	 */
+	public static int getLockSummaryInterval() {
+		return Math.max(0, Integer.getInteger(LOCK_SUMMARY_PROPERTY, 0));
+	}
+	
+	/**
+	 * Gets the number of rounds each game keeps in memory from the {@link #RETAINED_ROUNDS_PROPERTY} 
+	 * system property. Defaults to {@link Game#DEFAULT_RETAINED_ROUNDS}
+	 * 
+	 * @return
+	 */
+	public static int getRetainedRounds() {
+		return Math.max(1, Integer.getInteger(RETAINED_ROUNDS_PROPERTY, Game.DEFAULT_RETAINED_ROUNDS));
+	}
+	
+	/**
+	 * Gets the overflow policy of asynchronous logging from the {@link #ASYNC_LOG_PROPERTY} 
+	 * system property
+	 * 
+	 * @return the policy, or null to log on the calling thread
+	 */
+	public static AsyncLogHandler.OverflowPolicy getAsyncLogPolicy() {
+		String policy = System.getProperty(ASYNC_LOG_PROPERTY);
+		if (policy == null) {
+			return null;
+		}
+		
+		try {
+			return AsyncLogHandler.OverflowPolicy.valueOf(policy.trim().toUpperCase());
+		}
+		catch (IllegalArgumentException e) {
+			System.err.printf("%s is not a valid overflow policy, using %s\n", policy, AsyncLogHandler.OverflowPolicy.BLOCK);
+			return AsyncLogHandler.OverflowPolicy.BLOCK;
+		}
+	}
+	
+	/**
+	 * Gets the number of I/O threads for NIO mode from command line arguments. 
+	 * It must be the second command line argument
+	 * 
+	 * @param args
+	 * @return
+	 */
+	public static int getIoThreads(String[] args) {
+		int ioThreads = NioServerEngine.DEFAULT_IO_THREADS;
+		
+		if (args.length < 2) {
+			return ioThreads;
+		}
+		
+		try {
+			ioThreads = Math.max(1, Integer.parseInt(args[1]));
+		}
+		catch (NumberFormatException numFormatEx) {
+			System.err.printf("%s is not a valid number of I/O threads\n", args[1]);
+		}
+		
+		return ioThreads;
+	}
 
 }
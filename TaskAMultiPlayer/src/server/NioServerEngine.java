@@ -0,0 +1,383 @@
+package server;
+
+import core.GameCallbackLogger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Connection engine that serves every client from a small fixed number of I/O threads.
+ *
+ * <p>The thread calling {@link #run()} accepts new connections and hands them out to the
+ * workers in turn. Each worker owns a {@link Selector} and runs the {@link NioServerProcess}
+ * of every client registered with it. A process is only ever touched by its own worker.
+ *
+ * <p>Processes never block. Where {@link ServerProcess} waits on its room's {@link RoundCoordinator}
+ * a {@link NioServerProcess} calls {@link #await(NioServerProcess)} and returns. The coordinator
+ * runs the process again on its own worker when the round ends. Players waiting in the {@link Lobby}
+ * are run again the same way once they are matched.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class NioServerEngine implements Runnable {
+
+	public static final int DEFAULT_IO_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	private static final int READ_BUFFER_SIZE = 4096;
+
+	private MultiPlayerServer server;
+	private Lobby lobby;
+	private IServerCallback serverCallback;
+	private GameCallbackLogger gameCallbackLogger;
+
+	private ServerSocketChannel serverChannel;
+	private Worker[] workers;
+	private int nextWorker = 0;
+	private int resetInterval = ObjectResponseWriter.DEFAULT_RESET_INTERVAL;
+	private int outboundCapacity = OutboundQueue.DEFAULT_CAPACITY;
+	private OutboundQueue.SlowClientPolicy slowClientPolicy = OutboundQueue.SlowClientPolicy.COALESCE;
+	private OutboundQueue.Stats outboundStats = new OutboundQueue.Stats();
+
+	private volatile boolean closed = false;
+
+
+	public NioServerEngine(MultiPlayerServer server, Lobby lobby, IServerCallback serverCallback,
+			GameCallbackLogger gameCallbackLogger, int ioThreads) {
+		this.server = server;
+		this.lobby = lobby;
+		this.serverCallback = serverCallback;
+		this.gameCallbackLogger = gameCallbackLogger;
+		this.workers = new Worker[ioThreads];
+	}
+
+
+	/**
+	 * Sets the serialization stream reset interval of every process created by this engine
+	 * (see {@link ObjectResponseWriter})
+	 *
+	 * @param resetInterval
+	 */
+	public void setResetInterval(int resetInterval) {
+		this.resetInterval = resetInterval;
+	}
+
+	/**
+	 * Bounds the responses waiting for each client of this engine (see {@link OutboundQueue})
+	 *
+	 * @param capacity responses per client, 0 for no bound
+	 * @param slowClientPolicy what happens when a client's queue is full
+	 * @param stats counters shared by every client
+	 */
+	public void setOutboundQueue(int capacity, OutboundQueue.SlowClientPolicy slowClientPolicy, OutboundQueue.Stats stats) {
+		this.outboundCapacity = capacity;
+		this.slowClientPolicy = slowClientPolicy;
+		this.outboundStats = stats;
+	}
+
+
+	/**
+	 * Binds the server channel and starts the I/O threads.
+	 * The server socket is made available through {@link MultiPlayerServer#getServerSocket()}
+	 *
+	 * @param port
+	 * @return the bound server socket
+	 * @throws IOException
+	 */
+	public ServerSocketChannel start(int port) throws IOException {
+		return start(new InetSocketAddress(port));
+	}
+
+	/**
+	 * Binds the server channel to the address and starts the I/O threads
+	 *
+	 * @param address
+	 * @return the bound server socket
+	 * @throws IOException
+	 */
+	public ServerSocketChannel start(InetSocketAddress address) throws IOException {
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(address);
+
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Worker(i);
+			workers[i].start();
+		}
+		return serverChannel;
+	}
+
+
+	/**
+	 * Accept loop. Returns when the engine or the server channel is closed.
+	 */
+	@Override
+	public void run() {
+		while ( ! closed) {
+			try {
+				SocketChannel channel = serverChannel.accept();
+				AcceptEvent event = new AcceptEvent();
+				event.begin();
+				channel.configureBlocking(false);
+				channel.socket().setKeepAlive(true);
+				channel.socket().setTcpNoDelay(true);
+
+				serverCallback.onClientConnected(server, channel.socket());
+
+				Worker worker = workers[nextWorker];
+				nextWorker = (nextWorker + 1) % workers.length;
+				worker.register(channel);
+				
+				event.end();
+				if (event.shouldCommit()) {
+					event.client = String.valueOf(channel.socket().getRemoteSocketAddress());
+					event.mode = MultiPlayerServer.ConnectionMode.NIO.toString();
+					event.commit();
+				}
+			}
+			catch (ClosedChannelException e) {
+				break;
+			}
+			catch (IOException e) {
+				if ( ! closed) {
+					serverCallback.onException(null, e);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Parks the process until the round of its room ends.
+	 * Must be called while holding the room's lock
+	 *
+	 * @param process
+	 */
+	void await(NioServerProcess process) {
+		process.getRoom().getCoordinator().park(process);
+	}
+
+	/**
+	 * Removes the process from the waiting processes, without running it.
+	 * Must be called while holding the room's lock
+	 */
+	void cancelWait(NioServerProcess process) {
+		process.getRoom().getCoordinator().unpark(process);
+	}
+
+
+	/**
+	 * Closes the server channel, every client connection and stops the I/O threads
+	 */
+	public void close() {
+		closed = true;
+		try {
+			if (serverChannel != null) serverChannel.close();
+		}
+		catch (IOException e) {
+			serverCallback.onException(null, e);
+		}
+
+		for (Worker worker : workers) {
+			if (worker != null) worker.shutdown();
+		}
+	}
+
+
+	/**
+	 * I/O thread. Owns a selector and all the processes registered with it.
+	 */
+	final class Worker implements Runnable {
+
+		private Selector selector;
+		private Thread thread;
+		private Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+		private ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+		// accessed by this worker's thread only
+		private Set<NioServerProcess> processes = new HashSet<>();
+		private Set<NioServerProcess> timers = new HashSet<>();
+
+		private volatile boolean running = true;
+
+		Worker(int index) throws IOException {
+			this.selector = Selector.open();
+			this.thread = new Thread(this, "nio-worker-" + index);
+		}
+
+		void start() {
+			thread.start();
+		}
+
+		/**
+		 * Runs the task on this worker's thread
+		 */
+		void execute(Runnable task) {
+			tasks.add(task);
+			selector.wakeup();
+		}
+
+		void register(SocketChannel channel) {
+			execute(() -> {
+				NioServerProcess process = new NioServerProcess(NioServerEngine.this, this, lobby, channel, serverCallback, gameCallbackLogger);
+				process.setResetInterval(resetInterval);
+				process.setOutboundQueue(outboundCapacity, slowClientPolicy, outboundStats);
+				server.getGameCallbacks().forEach(process::addGameCallback);
+				try {
+					process.setKey(channel.register(selector, SelectionKey.OP_READ, process));
+					processes.add(process);
+					process.start();
+				}
+				catch (IOException e) {
+					serverCallback.onException(process, e);
+					closeQuietly(channel);
+				}
+			});
+		}
+
+		/**
+		 * Calls {@link NioServerProcess#onTimeout()} at the deadline, 
+		 * unless the timer is cancelled before. Must be called on this worker's thread.
+		 */
+		void schedule(NioServerProcess process, long deadline) {
+			process.timerDeadline = deadline;
+			timers.add(process);
+		}
+
+		void cancelTimer(NioServerProcess process) {
+			process.timerDeadline = 0;
+			timers.remove(process);
+		}
+
+		void remove(NioServerProcess process) {
+			processes.remove(process);
+			timers.remove(process);
+		}
+
+		@Override
+		public void run() {
+			while (running) {
+				try {
+					long timeout = nextTimeout();
+					if (timeout < 0) {
+						selector.selectNow();
+					}
+					else {
+						selector.select(timeout);
+					}
+
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+
+						NioServerProcess process = (NioServerProcess) key.attachment();
+						if (key.isValid() && key.isWritable()) {
+							process.onWritable();
+						}
+						if (key.isValid() && key.isReadable()) {
+							process.onReadable(readBuffer);
+						}
+					}
+
+					Runnable task;
+					while ((task = tasks.poll()) != null) {
+						task.run();
+					}
+
+					expireTimers();
+				}
+				catch (IOException e) {
+					serverCallback.onException(null, e);
+				}
+			}
+
+			// close every client owned by this worker
+			for (NioServerProcess process : new ArrayList<>(processes)) {
+				process.close();
+			}
+			try {
+				selector.close();
+			}
+			catch (IOException e) {
+				serverCallback.onException(null, e);
+			}
+		}
+
+		/**
+		 * @return milliseconds until the next timer, 0 if there is none,
+		 * or a negative value if there are tasks to run straight away
+		 */
+		private long nextTimeout() {
+			if ( ! tasks.isEmpty()) {
+				return -1;
+			}
+			long next = Long.MAX_VALUE;
+			for (NioServerProcess process : timers) {
+				next = Math.min(next, process.timerDeadline);
+			}
+			if (next == Long.MAX_VALUE) {
+				return 0;
+			}
+			return Math.max(1, next - System.currentTimeMillis());
+		}
+
+		/**
+		 * Runs the timers that are due (handshake timeouts)
+		 */
+		private void expireTimers() {
+			if (timers.isEmpty()) {
+				return;
+			}
+
+			List<NioServerProcess> expired = new ArrayList<>();
+			long now = System.currentTimeMillis();
+
+			Iterator<NioServerProcess> it = timers.iterator();
+			while (it.hasNext()) {
+				NioServerProcess process = it.next();
+				if (process.timerDeadline <= now) {
+					process.timerDeadline = 0;
+					it.remove();
+					expired.add(process);
+				}
+			}
+
+			expired.forEach(NioServerProcess::onTimeout);
+		}
+
+		void shutdown() {
+			running = false;
+			selector.wakeup();
+			try {
+				thread.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void closeQuietly(SocketChannel channel) {
+			try {
+				Socket socket = channel.socket();
+				socket.close();
+			}
+			catch (IOException e) {
+				serverCallback.onException(null, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,688 @@
+package server;
+
+import core.Game;
+import core.GameCallbackLogger;
+import core.GameManager;
+import core.GameRound;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Non-blocking version of {@link ServerProcess}, driven by a {@link NioServerEngine} I/O thread.
+ *
+ * <p>The game flow is the same as {@link ServerProcess#run()} but written as a state machine.
+ * Instead of blocking on readLine() the process returns and gets run again when the client
+ * sends a line. Instead of waiting in the {@link Lobby} the process gives the lobby a listener, 
+ * and instead of waiting on its room's {@link RoundCoordinator} the process parks itself 
+ * in the coordinator. Either way it gets run again on its I/O thread. 
+ * Like the blocking version it checks again whether it still has to wait when it runs.
+ *
+ * <p>Responses are written with the same {@link IResponseWriter} as in the blocking mode, but
+ * into an in-memory buffer that the I/O thread writes to the channel, so the client cannot
+ * tell the difference between the two modes. Responses wait in a bounded queue until the channel
+ * has taken the ones before them, and a client that stops reading is handled with the
+ * {@link OutboundQueue.SlowClientPolicy}, as in the blocking mode. The protocol handshake (see {@link Protocol})
+ * is the first state, and a timer takes the place of the socket timeout.
+ *
+ * <p>Every method of this class is called on the I/O thread that owns the channel.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class NioServerProcess extends ServerProcess {
+
+	/**
+	 * Lines longer than this are not a player typing. The connection is closed instead.
+	 */
+	public static final int MAX_LINE_LENGTH = 1024;
+
+	/**
+	 * Steps of {@link ServerProcess#run()}. The WAIT states are where the blocking
+	 * version would call await(). CLOSING waits for the last responses to be written
+	 */
+	enum State {
+		HANDSHAKE,
+		ENTER_NAME,
+		QUEUE,
+		MATCH_WAIT,
+		START_ROUND,
+		ENTER_GUESS,
+		ROUND_END,
+		ROUND_WAIT,
+		AFTER_ROUND,
+		CONTINUE_OR_QUIT,
+		CLOSING,
+		CLOSED
+	}
+
+	private NioServerEngine engine;
+	private NioServerEngine.Worker worker;
+	private SocketChannel channel;
+	private SelectionKey key;
+
+	private State state = State.HANDSHAKE;
+	private boolean prompted = false;
+
+	// bytes of the client's hello read so far
+	private byte[] hello = new byte[Protocol.HELLO_LENGTH];
+	private int helloLength = 0;
+
+	// parked in the room's coordinator, guarded by the room's lock
+	boolean waiting = false;
+	// when the process started waiting for the round to end
+	private long waitStart = 0;
+
+	// place in the lobby queue, until the player is matched
+	private Lobby.Ticket ticket;
+	private LobbyWaitEvent lobbyWait;
+
+	// the round being played
+	private GameRound round;
+
+	// handshake timeout, accessed by the worker only
+	long timerDeadline = 0;
+
+	// bytes read from the client that do not make a full line yet
+	private ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+	private Deque<String> lines = new ArrayDeque<>();
+
+	// encoded responses that are not yet written to the channel
+	private ByteArrayOutputStream outbound = new ByteArrayOutputStream();
+	private Deque<ByteBuffer> pendingWrites = new ArrayDeque<>();
+
+	// responses waiting for the channel to take the ones before them, see flush()
+	private Deque<Response> queued = new ArrayDeque<>();
+	private IResponseWriter encoder;
+	private int outboundCapacity = OutboundQueue.DEFAULT_CAPACITY;
+	private OutboundQueue.SlowClientPolicy slowClientPolicy = OutboundQueue.SlowClientPolicy.COALESCE;
+	private OutboundQueue.Stats outboundStats = new OutboundQueue.Stats();
+	// set when the client is disconnected for being too slow
+	private IOException failure;
+
+
+	NioServerProcess(NioServerEngine engine, NioServerEngine.Worker worker, Lobby lobby, SocketChannel channel,
+			IServerCallback callback, GameCallbackLogger gameLoggerCallback) {
+		super(lobby, channel.socket(), callback, gameLoggerCallback);
+		this.engine = engine;
+		this.worker = worker;
+		this.channel = channel;
+	}
+
+	public SocketChannel getChannel() {
+		return channel;
+	}
+
+	NioServerEngine.Worker getWorker() {
+		return worker;
+	}
+
+	/**
+	 * Bounds the responses waiting for the client. Must be called before the process starts
+	 *
+	 * @param capacity number of responses, 0 for no bound
+	 * @param policy what happens when the queue is full
+	 * @param stats counters shared by every client
+	 */
+	void setOutboundQueue(int capacity, OutboundQueue.SlowClientPolicy policy, OutboundQueue.Stats stats) {
+		this.outboundCapacity = capacity;
+		this.slowClientPolicy = policy;
+		this.outboundStats = stats;
+	}
+
+	void setKey(SelectionKey key) {
+		this.key = key;
+	}
+
+	boolean isClosed() {
+		return state == State.CLOSED;
+	}
+
+
+	/**
+	 * Starts waiting for the client's hello
+	 */
+	void start() {
+		worker.schedule(this, System.currentTimeMillis() + Protocol.HANDSHAKE_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Opens the streams for the protocol version and starts the game
+	 *
+	 * @param version negotiated version, or -1 if the client did not send a hello
+	 * @throws IOException
+	 */
+	private void open(int version) throws IOException {
+		if (version >= 0) {
+			outbound.write(Protocol.hello(version));
+		}
+		encoder = createWriter(version, outbound);
+		open(new IResponseWriter() {
+
+			@Override
+			public void write(Response response) throws IOException {
+				queue(response);
+			}
+
+			@Override
+			public void close() throws IOException {
+				encoder.close();
+			}
+		}, null);
+		worker.cancelTimer(this);
+		state = State.ENTER_NAME;
+	}
+
+	/**
+	 * Called by the worker when the handshake timer set with {@link NioServerEngine.Worker#schedule} runs out
+	 */
+	void onTimeout() {
+		if (state != State.HANDSHAKE) {
+			return;
+		}
+
+		// old client, it waits for the server to speak first
+		try {
+			open(-1);
+		}
+		catch (IOException e) {
+			getServerCallback().onException(this, e);
+			close();
+			return;
+		}
+		run();
+	}
+
+	/**
+	 * Called on the I/O thread once the lobby has matched the player.
+	 * A client that disconnected while it was being matched gives its seat back straight away
+	 */
+	private void onMatched() {
+		if (state != State.CLOSED) {
+			run();
+			return;
+		}
+
+		if (ticket != null && ticket.getRoom() != null) {
+			enterRoom(ticket.getRoom());
+			leaveRoom();
+		}
+		ticket = null;
+	}
+
+	/**
+	 * Advances the game for this client as far as it can go without blocking,
+	 * then writes whatever responses were produced to the channel.
+	 */
+	@Override
+	public void run() {
+		if (state == State.CLOSED || state == State.HANDSHAKE) {
+			return;
+		}
+
+		try {
+			while (step()) {
+				// keep going until we need input from the client or other players
+			}
+			if (state != State.CLOSED) {
+				flush();
+			}
+		}
+		catch (Exception e) {
+			getServerCallback().onException(this, e);
+			close();
+		}
+	}
+
+	/**
+	 * Runs one state of the game.
+	 *
+	 * @return false if the process has to wait for the client or for other players
+	 * @throws Exception
+	 */
+	private boolean step() throws Exception {
+		GameManager manager = getGameManager();
+
+		switch (state) {
+
+			case HANDSHAKE:
+				return false;
+
+			case ENTER_NAME: {
+				String name = nextLine("Enter your name: ", true);
+				if (name == null) {
+					return false;
+				}
+				SignUpEvent signUp = new SignUpEvent();
+				signUp.begin();
+				manager.signUpPlayer(name);
+
+				// a player whose room was restored after a restart goes back to their round
+				GameRoom resumed = getLobby().getRooms().resume(manager);
+				commit(signUp, resumed);
+				if (resumed != null) {
+					reply("Welcome back, resuming your round...");
+					enterRoom(resumed);
+					state = State.START_ROUND;
+					return true;
+				}
+				state = State.QUEUE;
+				return true;
+			}
+
+			case QUEUE: {
+				// wait for the lobby to find other players, up to 20 seconds
+				reply("Waiting for other players...");
+				state = State.MATCH_WAIT;
+				lobbyWait = new LobbyWaitEvent();
+				lobbyWait.begin();
+				ticket = getLobby().enqueue(manager.getCurrentPlayer(), () -> worker.execute(this::onMatched));
+				return true;
+			}
+
+			case MATCH_WAIT: {
+				if ( ! ticket.isDone()) {
+					return false;
+				}
+
+				GameRoom room = ticket.getRoom();
+				ticket = null;
+				commit(lobbyWait, room);
+				lobbyWait = null;
+				if (room == null) {
+					// the lobby was closed
+					state = State.CLOSING;
+					return false;
+				}
+				enterRoom(room);
+				state = State.START_ROUND;
+				return true;
+			}
+
+			case START_ROUND: {
+				// the first player starts the round, the others join it
+				RoundCoordinator coordinator = getRoom().getCoordinator();
+				LockStats lockStats = getRoom().getLockStats();
+				long acquired = lockStats.lock(getRoom().getLock(), LockStats.Section.JOIN);
+				try {
+					if (manager.getNumPlayers() >= Game.MIN_PLAYERS) {
+						reply("minimum number of players needed fulfilled");
+					}
+					round = coordinator.startRound(manager);
+
+					// a resumed player may have finished the round already
+					boolean finished = manager.isCurrentPlayerForfeited() || manager.playerWins() || manager.playerLoses();
+					state = finished ? State.ROUND_END : State.ENTER_GUESS;
+				}
+				finally {
+					lockStats.unlock(getRoom().getLock(), LockStats.Section.JOIN, acquired);
+				}
+				return true;
+			}
+
+			case ENTER_GUESS: {
+				String guess = nextLine("Enter your guess: ", false);
+				if (guess == null) {
+					return false;
+				}
+
+				LockStats lockStats = getRoom().getLockStats();
+				long acquired = lockStats.lock(getRoom().getLock(), LockStats.Section.GUESS);
+				try {
+					getRoom().getCoordinator().addGuess(manager, guess);
+
+					if (manager.isCurrentPlayerForfeited() || manager.playerWins() || manager.playerLoses()) {
+						state = State.ROUND_END;
+					}
+				}
+				finally {
+					lockStats.unlock(getRoom().getLock(), LockStats.Section.GUESS, acquired);
+				}
+				return true;
+			}
+
+			case ROUND_END: {
+				LockStats lockStats = getRoom().getLockStats();
+				long acquired = lockStats.lock(getRoom().getLock(), LockStats.Section.ROUND_END);
+				try {
+					// if round has not ended, wait for others to finish until they forfeit, win or lose
+					if ( ! round.hasEnded()) {
+						reply("Wait for other players to finish...");
+						state = State.ROUND_WAIT;
+						waitStart = System.nanoTime();
+						engine.await(this);
+						return false;
+					}
+				}
+				finally {
+					lockStats.unlock(getRoom().getLock(), LockStats.Section.ROUND_END, acquired);
+				}
+				state = State.AFTER_ROUND;
+				return true;
+			}
+
+			case ROUND_WAIT: {
+				// the process is run again when the round ends, or when the client sends something
+				LockStats lockStats = getRoom().getLockStats();
+				long acquired = lockStats.lock(getRoom().getLock(), LockStats.Section.ROUND_END);
+				try {
+					// only the coordinator's wake-ups count, it no longer has the process waiting.
+					// A line from the client is not a wake-up
+					if ( ! waiting) {
+						lockStats.wokenUp(round.hasEnded());
+					}
+					if ( ! round.hasEnded()) {
+						if ( ! waiting) {
+							engine.await(this);
+						}
+						return false;
+					}
+					lockStats.waited(System.nanoTime() - waitStart);
+				}
+				finally {
+					lockStats.unlock(getRoom().getLock(), LockStats.Section.ROUND_END, acquired);
+				}
+				state = State.AFTER_ROUND;
+				return true;
+			}
+
+			case AFTER_ROUND: {
+				manager.endCurrentRound();
+				state = State.CONTINUE_OR_QUIT;
+				return true;
+			}
+
+			case CONTINUE_OR_QUIT: {
+				String reply = nextLine("Press (p) to continue to play, or (q) to quit: ", true);
+				if (reply == null) {
+					return false;
+				}
+				reply = reply.toLowerCase();
+
+				LockStats lockStats = getRoom().getLockStats();
+				if (reply.equals("q")) {
+					long acquired = lockStats.lock(getRoom().getLock(), LockStats.Section.CONTINUE);
+					try {
+						manager.quitPlayer();
+					}
+					finally {
+						lockStats.unlock(getRoom().getLock(), LockStats.Section.CONTINUE, acquired);
+					}
+					leaveRoom();
+					state = State.CLOSING;
+					return false;
+				}
+
+				if ( ! reply.equals("p")) {
+					sendError("Please enter 'p' or 'q'.");
+					return true;
+				}
+
+				long acquired = lockStats.lock(getRoom().getLock(), LockStats.Section.CONTINUE);
+				try {
+					manager.chooseToContinue();
+				}
+				finally {
+					lockStats.unlock(getRoom().getLock(), LockStats.Section.CONTINUE, acquired);
+				}
+
+				// the room only plays one round, go back to the end of the lobby queue
+				leaveRoom();
+				state = State.QUEUE;
+				return true;
+			}
+
+			case CLOSING:
+			case CLOSED:
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Non-blocking version of readline(String, boolean).
+	 * The prompt is only sent once until a line has been consumed.
+	 *
+	 * @param message
+	 * @param isRequired
+	 * @return the trimmed line, or null if the client has not replied yet
+	 * @throws IOException
+	 */
+	private String nextLine(String message, boolean isRequired) throws IOException {
+		if ( ! prompted) {
+			prompt(message);
+			prompted = true;
+		}
+
+		String line = lines.poll();
+		if (line == null) {
+			return null;
+		}
+		prompted = false;
+		getServerCallback().onClientReply(this, line);
+
+		if (isRequired && line.trim().isEmpty()) {
+			sendError("Please enter non empty input.");
+			return nextLine(message, isRequired);
+		}
+
+		return line.trim();
+	}
+
+
+	/**
+	 * Called by the I/O thread when the channel is readable.
+	 * Splits the bytes into lines and runs the process.
+	 */
+	void onReadable(ByteBuffer buffer) {
+		try {
+			buffer.clear();
+			int read = channel.read(buffer);
+			if (read < 0) {
+				// client closed the connection
+				close();
+				return;
+			}
+
+			buffer.flip();
+			if (state == State.HANDSHAKE) {
+				readHello(buffer);
+			}
+			while (buffer.hasRemaining()) {
+				readLine(buffer.get());
+			}
+		}
+		catch (IOException e) {
+			getServerCallback().onException(this, e);
+			close();
+			return;
+		}
+
+		run();
+	}
+
+	/**
+	 * Collects the client's hello. As soon as the bytes cannot be a hello any more 
+	 * the client is treated as an old client and the bytes are read as a line.
+	 *
+	 * @param buffer
+	 * @throws IOException
+	 */
+	private void readHello(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining() && helloLength < Protocol.HELLO_LENGTH) {
+			hello[helloLength++] = buffer.get();
+
+			if ( ! Protocol.isHelloPrefix(hello, helloLength)) {
+				open(-1);
+				for (int i = 0; i < helloLength; i++) {
+					readLine(hello[i]);
+				}
+				return;
+			}
+		}
+
+		if (helloLength == Protocol.HELLO_LENGTH) {
+			open(Protocol.negotiate(hello[Protocol.MAGIC.length]));
+		}
+	}
+
+	/**
+	 * Adds the byte to the current line, or completes the line
+	 *
+	 * @param b
+	 * @throws IOException if the line is too long
+	 */
+	private void readLine(byte b) throws IOException {
+		if (b == '\n') {
+			String line = new String(partialLine.toByteArray(), Charset.defaultCharset());
+			if (line.endsWith("\r")) {
+				line = line.substring(0, line.length() - 1);
+			}
+			lines.add(line);
+			partialLine.reset();
+		}
+		else if (partialLine.size() >= MAX_LINE_LENGTH) {
+			throw new IOException("Client sent a line longer than " + MAX_LINE_LENGTH + " bytes");
+		}
+		else {
+			partialLine.write(b);
+		}
+	}
+
+	/**
+	 * Called by the I/O thread when the channel can accept more bytes
+	 */
+	void onWritable() {
+		if (state == State.CLOSED) {
+			return;
+		}
+
+		try {
+			flush();
+		}
+		catch (IOException e) {
+			getServerCallback().onException(this, e);
+			close();
+		}
+	}
+
+	/**
+	 * Queues the response until the channel has taken the ones before it. 
+	 * When the queue is full the slow client policy decides what happens to the response
+	 *
+	 * @param response
+	 * @throws IOException if the client is disconnected
+	 */
+	private void queue(Response response) throws IOException {
+		if (failure != null) {
+			throw failure;
+		}
+
+		if (outboundCapacity > 0 && queued.size() >= outboundCapacity) {
+			OutboundQueue.Overflow overflow = OutboundQueue.overflow(queued, outboundCapacity, response, slowClientPolicy, outboundStats);
+			if (overflow == OutboundQueue.Overflow.DISCONNECT) {
+				// the game callbacks do not pass the failure on, flush() closes the connection
+				failure = new IOException("The client is not reading its responses, " + queued.size() + " are waiting");
+				outboundStats.disconnected(queued.size());
+				queued.clear();
+				throw failure;
+			}
+			if (overflow == OutboundQueue.Overflow.DROP) {
+				return;
+			}
+		}
+
+		queued.add(response);
+		outboundStats.queued(queued.size());
+	}
+
+	/**
+	 * Moves serialized responses to the channel.
+	 * Whatever the channel does not take now is written when it becomes writable. 
+	 * Queued responses are only encoded once the channel has taken everything before them, 
+	 * so a client that does not read holds at most one batch of bytes and a full queue.
+	 *
+	 * @throws IOException also if the client was disconnected for being too slow
+	 */
+	private void flush() throws IOException {
+		if (failure != null) {
+			throw failure;
+		}
+
+		boolean blocked = false;
+		while ( ! blocked) {
+			if (pendingWrites.isEmpty() && ! queued.isEmpty()) {
+				int count = queued.size();
+				for (Response response : queued) {
+					encoder.write(response);
+				}
+				queued.clear();
+				outboundStats.added(-count, 0);
+			}
+			if (outbound.size() > 0) {
+				pendingWrites.add(ByteBuffer.wrap(outbound.toByteArray()));
+				outbound.reset();
+			}
+			if (pendingWrites.isEmpty()) {
+				break;
+			}
+
+			while ( ! pendingWrites.isEmpty()) {
+				ByteBuffer buffer = pendingWrites.peek();
+				channel.write(buffer);
+				if (buffer.hasRemaining()) {
+					blocked = true;
+					break;
+				}
+				pendingWrites.poll();
+			}
+		}
+
+		if (state == State.CLOSING && pendingWrites.isEmpty()) {
+			// the goodbye has been written
+			close();
+			return;
+		}
+
+		if (key != null && key.isValid()) {
+			int ops = pendingWrites.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+			if (key.interestOps() != ops) {
+				key.interestOps(ops);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		if (state == State.CLOSED) {
+			return;
+		}
+		state = State.CLOSED;
+
+		// a player that is already being matched gives the seat back in onMatched()
+		if (ticket != null && getLobby().cancel(ticket)) {
+			ticket = null;
+		}
+
+		GameRoom room = getRoom();
+		if (room != null) {
+			long acquired = room.getLockStats().lock(room.getLock(), LockStats.Section.CANCEL);
+			try {
+				engine.cancelWait(this);
+			}
+			finally {
+				room.getLockStats().unlock(room.getLock(), LockStats.Section.CANCEL, acquired);
+			}
+		}
+		worker.remove(this);
+		outboundStats.added(-queued.size(), 0);
+		queued.clear();
+		super.close();
+	}
+}
@@ -0,0 +1,78 @@
+package server;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+/**
+ * Writes responses using Java serialization. 
+ * This is the original protocol, still used for clients that do not ask for the binary protocol.
+ * 
+ * <p>An {@link ObjectOutputStream} remembers every object it has written so it can send 
+ * back-references instead of writing the same object twice. For a session that lasts hundreds 
+ * of rounds that keeps every Response ever sent in memory. The stream is therefore reset 
+ * every {@code resetInterval} responses, which forgets those objects. A reset costs one byte 
+ * on the wire, plus the class description of Response being sent again with the next response.
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class ObjectResponseWriter implements IResponseWriter {
+	
+	/**
+	 * Never reset the stream. Memory grows with every response, like the original server
+	 */
+	public static final int NEVER_RESET = 0;
+	
+	/**
+	 * Keeps at most 64 responses in memory per client
+	 */
+	public static final int DEFAULT_RESET_INTERVAL = 64;
+	
+	private ObjectOutputStream stream;
+	private int resetInterval;
+	private int writtenSinceReset = 0;
+	
+	public ObjectResponseWriter(ObjectOutputStream stream) {
+		this(stream, DEFAULT_RESET_INTERVAL);
+	}
+	
+	/**
+	 * @param stream
+	 * @param resetInterval reset the stream after this many responses, 
+	 * 1 to reset after every response or {@link #NEVER_RESET}
+	 */
+	public ObjectResponseWriter(ObjectOutputStream stream, int resetInterval) {
+		this.stream = stream;
+		this.resetInterval = Math.max(NEVER_RESET, resetInterval);
+	}
+	
+	public int getResetInterval() {
+		return resetInterval;
+	}
+
+	@Override
+	public void write(Response response) throws IOException {
+		ResponseWriteEvent event = new ResponseWriteEvent();
+		event.begin();
+		
+		stream.writeObject(response);
+		
+		if (resetInterval != NEVER_RESET && ++writtenSinceReset >= resetInterval) {
+			stream.reset();
+			writtenSinceReset = 0;
+		}
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.protocol = "serialized";
+			event.type = response.getType();
+			event.length = response.getMessage() == null ? 0 : response.getMessage().length();
+			event.commit();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		stream.close();
+	}
+}
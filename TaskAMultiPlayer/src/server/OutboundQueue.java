@@ -0,0 +1,451 @@
+package server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queue of the responses waiting to be sent to one client.
+ *
+ * <p>The game callbacks write responses while the room's lock is held. Writing straight to the
+ * socket blocks when the client stops reading and its TCP window fills up, and then every player
+ * of the room waits for that client. This writer only puts the response into a bounded queue and
+ * returns. A writer of its own takes the responses out and writes them to the client's
+ * {@link ResponseEncoder} or {@link ObjectResponseWriter}, in order.
+ *
+ * <p>When the queue is full the {@link SlowClientPolicy} decides what happens to the response.
+ * Prompts and the quit command are never dropped or merged, they are queued even if the queue is full.
+ * Each prompt is followed by a read, so there cannot be many of them, and a client that keeps replying without
+ * reading its prompts is disconnected once its queue holds twice its capacity. {@link NioServerProcess} keeps its
+ * own queue on its I/O thread and applies the same policy (see {@link #overflow}).
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class OutboundQueue implements IResponseWriter {
+
+	/**
+	 * What to do with a message when a client's queue is full
+	 * <ul>
+	 * <li>DROP - drop the message. The client misses it</li>
+	 * <li>COALESCE - merge the waiting messages into one, so nothing is lost but the client gets them all at once.
+	 * A client whose merged messages grow past {@link OutboundQueue#MAX_COALESCED_LENGTH} is disconnected</li>
+	 * <li>DISCONNECT - close the connection. The player leaves the room as if they had quit</li>
+	 * </ul>
+	 */
+	public enum SlowClientPolicy {
+		DROP,
+		COALESCE,
+		DISCONNECT
+	}
+
+	public static final int DEFAULT_CAPACITY = 256;
+	
+	/**
+	 * Longest message coalescing makes
+	 */
+	public static final int MAX_COALESCED_LENGTH = 64 * 1024;
+
+	/**
+	 * How long closing waits for the queued responses to be sent
+	 */
+	public static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+	/**
+	 * What happens to a response that finds its queue full, see {@link OutboundQueue#overflow}
+	 */
+	enum Overflow {
+		QUEUE,
+		DROP,
+		DISCONNECT
+	}
+
+	private IResponseWriter out;
+	private Closeable connection;
+	private int capacity;
+	private SlowClientPolicy policy;
+	private Stats stats;
+
+	private ReentrantLock lock = new ReentrantLock();
+	private Condition changed = lock.newCondition();
+
+	// guarded by lock
+	private Deque<Response> queue = new ArrayDeque<>();
+	private boolean closed = false;
+	private boolean writing = false;
+	private IOException failure;
+
+
+	/**
+	 * @param out writes to the client, used by the writer only
+	 * @param connection closed when the client is disconnected for being too slow
+	 * @param capacity number of messages the queue holds
+	 * @param policy
+	 * @param stats counters shared by every client
+	 */
+	public OutboundQueue(IResponseWriter out, Closeable connection, int capacity, SlowClientPolicy policy, Stats stats) {
+		this.out = out;
+		this.connection = connection;
+		this.capacity = Math.max(1, capacity);
+		this.policy = policy;
+		this.stats = stats;
+	}
+
+	/**
+	 * Starts the writer that sends the queued responses to the client
+	 *
+	 * @param executor runs the writer on the same kind of thread as the processes
+	 */
+	public void start(ISessionExecutor executor) {
+		executor.executeWriter(this::drain);
+	}
+
+	public SlowClientPolicy getPolicy() {
+		return policy;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of responses waiting to be sent
+	 * @return
+	 */
+	public int getDepth() {
+		lock.lock();
+		try {
+			return queue.size();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+
+	/**
+	 * Queues the response, or applies the slow client policy if the queue is full
+	 *
+	 * @throws IOException if the connection has failed or was closed
+	 */
+	@Override
+	public void write(Response response) throws IOException {
+		lock.lock();
+		try {
+			if (failure != null) {
+				throw new IOException("Cannot send to the client. " + failure.getMessage(), failure);
+			}
+			if (closed) {
+				throw new IOException("The connection is closed");
+			}
+
+			if (queue.size() >= capacity) {
+				Overflow overflow = overflow(queue, capacity, response, policy, stats);
+				if (overflow == Overflow.DISCONNECT) {
+					disconnect();
+					throw failure;
+				}
+				if (overflow == Overflow.DROP) {
+					return;
+				}
+			}
+
+			queue.add(response);
+			stats.queued(queue.size());
+			changed.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Applies the policy to a response that finds a full queue. The overflow is counted, 
+	 * and with {@link SlowClientPolicy#COALESCE} the messages in the queue are merged
+	 *
+	 * @param queue the client's queue
+	 * @param capacity
+	 * @param response
+	 * @param policy
+	 * @param stats
+	 * @return whether the response is queued or dropped, or the client has to be disconnected
+	 */
+	static Overflow overflow(Deque<Response> queue, int capacity, Response response, SlowClientPolicy policy, Stats stats) {
+		stats.overflows.incrementAndGet();
+
+		if (policy == SlowClientPolicy.DISCONNECT || queue.size() >= 2 * capacity) {
+			return Overflow.DISCONNECT;
+		}
+		if (response.getType() == Response.PRINTMESSAGE) {
+			if (policy == SlowClientPolicy.DROP) {
+				stats.dropped.incrementAndGet();
+				return Overflow.DROP;
+			}
+			if ( ! coalesce(queue, stats)) {
+				return Overflow.DISCONNECT;
+			}
+		}
+		return Overflow.QUEUE;
+	}
+
+	/**
+	 * Merges the messages that are next to each other in the queue.
+	 * The client prints every message on its own line, so a merged message prints the same
+	 * 
+	 * @return false if a merged message would be longer than {@link #MAX_COALESCED_LENGTH}
+	 */
+	private static boolean coalesce(Deque<Response> queue, Stats stats) {
+		Deque<Response> merged = new ArrayDeque<>();
+		for (Response response : queue) {
+			Response last = merged.peekLast();
+			if (last != null && last.getType() == Response.PRINTMESSAGE && response.getType() == Response.PRINTMESSAGE) {
+				if (last.getMessage().length() + response.getMessage().length() >= MAX_COALESCED_LENGTH) {
+					return false;
+				}
+				merged.pollLast();
+				merged.add(Response.message(last.getMessage() + "\n" + response.getMessage()));
+				stats.coalesced.incrementAndGet();
+			}
+			else {
+				merged.add(response);
+			}
+		}
+
+		stats.added(merged.size() - queue.size(), merged.size());
+		queue.clear();
+		queue.addAll(merged);
+		return true;
+	}
+
+	/**
+	 * Gives up on the client. The connection is closed, so the process reading from it ends as well
+	 */
+	private void disconnect() {
+		failure = new IOException("The client is not reading its responses, " + queue.size() + " are waiting");
+		stats.disconnected(queue.size());
+		queue.clear();
+		changed.signalAll();
+
+		try {
+			connection.close();
+		}
+		catch (IOException e) {
+			// the connection is going away either way
+		}
+	}
+
+
+	/**
+	 * Waits briefly for the queued responses to be sent, then closes the stream
+	 */
+	@Override
+	public void close() throws IOException {
+		boolean stuck;
+
+		lock.lock();
+		try {
+			closed = true;
+			changed.signalAll();
+
+			long remaining = TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+			while ((writing || ! queue.isEmpty()) && failure == null && remaining > 0) {
+				remaining = changed.awaitNanos(remaining);
+			}
+
+			stuck = writing && failure == null;
+			stats.added(-queue.size(), 0);
+			queue.clear();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			stuck = true;
+		}
+		finally {
+			lock.unlock();
+		}
+
+		// the client does not read, closing the stream would block on it as well.
+		// Closing the connection ends the stuck write
+		if (stuck) {
+			connection.close();
+			try {
+				out.close();
+			}
+			catch (IOException e) {
+				// the connection is closed already
+			}
+			return;
+		}
+		out.close();
+	}
+
+
+	/**
+	 * Writer loop. Sends the responses in order until the queue is closed and empty
+	 */
+	private void drain() {
+		while (true) {
+			Response response;
+
+			lock.lock();
+			try {
+				writing = false;
+				changed.signalAll();
+				while (queue.isEmpty() && ! closed && failure == null) {
+					changed.awaitUninterruptibly();
+				}
+				if (queue.isEmpty() || failure != null) {
+					return;
+				}
+
+				response = queue.poll();
+				stats.added(-1, queue.size());
+				writing = true;
+			}
+			finally {
+				lock.unlock();
+			}
+
+			long start = System.nanoTime();
+			try {
+				out.write(response);
+			}
+			catch (IOException e) {
+				lock.lock();
+				try {
+					if (failure == null) {
+						failure = e;
+					}
+					writing = false;
+					stats.added(-queue.size(), 0);
+					queue.clear();
+					changed.signalAll();
+				}
+				finally {
+					lock.unlock();
+				}
+				return;
+			}
+			finally {
+				stats.blockedNanos.addAndGet(System.nanoTime() - start);
+			}
+		}
+	}
+
+
+	/**
+	 * Counters of every client's queue, for the server's statistics
+	 */
+	public static class Stats {
+
+		private AtomicLong queued = new AtomicLong();
+		private AtomicLong overflows = new AtomicLong();
+		private AtomicLong dropped = new AtomicLong();
+		private AtomicLong coalesced = new AtomicLong();
+		private AtomicLong disconnects = new AtomicLong();
+		private AtomicLong blockedNanos = new AtomicLong();
+
+		private AtomicInteger depth = new AtomicInteger();
+		private AtomicInteger maxDepth = new AtomicInteger();
+
+		/**
+		 * Counts responses added to or taken out of a queue
+		 *
+		 * @param count negative when responses are taken out
+		 * @param queueDepth the depth of the queue afterwards
+		 */
+		void added(int count, int queueDepth) {
+			depth.addAndGet(count);
+			maxDepth.accumulateAndGet(queueDepth, Math::max);
+		}
+
+		/**
+		 * Counts a response added to a queue
+		 * @param queueDepth the depth of the queue afterwards
+		 */
+		void queued(int queueDepth) {
+			queued.incrementAndGet();
+			added(1, queueDepth);
+		}
+
+		/**
+		 * Counts a client disconnected for being too slow
+		 * @param discarded the responses that were waiting in its queue
+		 */
+		void disconnected(int discarded) {
+			disconnects.incrementAndGet();
+			added(-discarded, 0);
+		}
+
+		/**
+		 * Gets the number of responses that were queued
+		 * @return
+		 */
+		public long getQueued() {
+			return queued.get();
+		}
+
+		/**
+		 * Gets the number of responses that found their queue full
+		 * @return
+		 */
+		public long getOverflows() {
+			return overflows.get();
+		}
+
+		public long getDropped() {
+			return dropped.get();
+		}
+
+		/**
+		 * Gets the number of messages that were merged into the message before them
+		 * @return
+		 */
+		public long getCoalesced() {
+			return coalesced.get();
+		}
+
+		public long getDisconnects() {
+			return disconnects.get();
+		}
+
+		/**
+		 * Gets the time the writers spent blocked writing to clients.
+		 * Without the queues the game threads would have spent it
+		 * @return
+		 */
+		public long getBlockedNanos() {
+			return blockedNanos.get();
+		}
+
+		/**
+		 * Gets the number of responses waiting in every queue
+		 * @return
+		 */
+		public int getDepth() {
+			return depth.get();
+		}
+
+		/**
+		 * Gets the deepest a single queue has been
+		 * @return
+		 */
+		public int getMaxDepth() {
+			return maxDepth.get();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Outbound queues: %d waiting (deepest %d), %d queued, %d overflows, "
+					+ "%d dropped, %d coalesced, %d disconnected, %d ms blocked writing",
+					getDepth(), getMaxDepth(), getQueued(), getOverflows(), getDropped(), getCoalesced(),
+					getDisconnects(), TimeUnit.NANOSECONDS.toMillis(getBlockedNanos()));
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * Protocol version negotiation.
+ * 
+ * <p>Clients that understand the binary protocol send a hello as soon as they connect: 
+ * the {@link #MAGIC} bytes followed by the highest version they support. The server answers 
+ * with the same magic bytes and the version both sides will use.
+ * 
+ * <p>Older clients send nothing until the server asks for their name. If no hello 
+ * arrives within {@link #HANDSHAKE_TIMEOUT_MILLIS} the server does not answer and 
+ * falls back to Java serialization, so those clients keep working.
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class Protocol {
+	
+	public static final byte[] MAGIC = { 'G', 'G', 'P' };
+	
+	/**
+	 * Responses are Java-serialized (see {@link ObjectResponseWriter})
+	 */
+	public static final int VERSION_SERIALIZED = 0;
+	
+	/**
+	 * Responses are binary frames (see {@link ResponseEncoder})
+	 */
+	public static final int VERSION_BINARY = 1;
+	
+	public static final int LATEST_VERSION = VERSION_BINARY;
+	
+	/**
+	 * Magic bytes plus the version byte
+	 */
+	public static final int HELLO_LENGTH = MAGIC.length + 1;
+	
+	public static final int HANDSHAKE_TIMEOUT_MILLIS = 250;
+	
+	
+	/**
+	 * Creates the hello (or the answer to it) for the given version
+	 * @param version
+	 * @return
+	 */
+	public static byte[] hello(int version) {
+		byte[] hello = new byte[HELLO_LENGTH];
+		System.arraycopy(MAGIC, 0, hello, 0, MAGIC.length);
+		hello[MAGIC.length] = (byte) version;
+		return hello;
+	}
+	
+	/**
+	 * Checks if the bytes read so far can still become a hello
+	 * 
+	 * @param bytes
+	 * @param length
+	 * @return
+	 */
+	public static boolean isHelloPrefix(byte[] bytes, int length) {
+		for (int i = 0; i < length && i < MAGIC.length; i++) {
+			if (bytes[i] != MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * The version both sides will use
+	 * 
+	 * @param clientVersion
+	 * @return
+	 */
+	public static int negotiate(int clientVersion) {
+		return Math.max(VERSION_SERIALIZED, Math.min(clientVersion, LATEST_VERSION));
+	}
+	
+	
+	/**
+	 * Server side of the handshake for blocking sockets. 
+	 * Bytes that turn out not to be a hello are pushed back into the input.
+	 * 
+	 * @param socket
+	 * @param in must be able to push back {@link #HELLO_LENGTH} bytes
+	 * @return the version the client asked for, or -1 if the client did not send a hello
+	 * @throws IOException
+	 */
+	public static int readHello(Socket socket, PushbackInputStream in) throws IOException {
+		int timeout = socket.getSoTimeout();
+		byte[] hello = new byte[HELLO_LENGTH];
+		int length = 0;
+		
+		try {
+			socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+			
+			while (length < HELLO_LENGTH) {
+				int b = in.read();
+				if (b < 0) {
+					break;
+				}
+				hello[length++] = (byte) b;
+				
+				if ( ! isHelloPrefix(hello, length)) {
+					break;
+				}
+			}
+		}
+		catch (SocketTimeoutException e) {
+			// old client, it waits for the server to speak first
+		}
+		finally {
+			socket.setSoTimeout(timeout);
+		}
+		
+		if (length == HELLO_LENGTH && isHelloPrefix(hello, length)) {
+			return hello[MAGIC.length];
+		}
+		
+		in.unread(hello, 0, length);
+		return -1;
+	}
+	
+	/**
+	 * Client side of the handshake. Sends the hello and waits for the answer.
+	 * 
+	 * @param in
+	 * @param out
+	 * @param version highest version the client supports
+	 * @return the version chosen by the server
+	 * @throws IOException if the server does not understand the handshake
+	 */
+	public static int clientHello(InputStream in, OutputStream out, int version) throws IOException {
+		out.write(hello(version));
+		out.flush();
+		
+		byte[] answer = new byte[HELLO_LENGTH];
+		int length = 0;
+		while (length < HELLO_LENGTH) {
+			int read = in.read(answer, length, HELLO_LENGTH - length);
+			if (read < 0) {
+				throw new IOException("Server closed the connection during the handshake");
+			}
+			length += read;
+		}
+		
+		if ( ! isHelloPrefix(answer, length)) {
+			throw new IOException("Server does not support protocol negotiation");
+		}
+		return answer[MAGIC.length];
+	}
+}
@@ -29,6 +29,12 @@ import java.io.Serializable;
 	// Default action is to print message
 	public int type = PRINTMESSAGE;
 	
+	// set for a response sent to many clients, see shared()
+	private transient boolean shared = false;
+	
+	// binary frame of a shared response, encoded by the first ResponseEncoder that writes it
+	private transient volatile byte[] frame;
+	
 	public Response(String message) {
 		this(message, PRINTMESSAGE);
 	}
@@ -59,4 +65,30 @@ import java.io.Serializable;
 	public static Response quit(String message) {
 		return new Response(message, QUIT);
 	}
+	
+	/**
+	 * Creates a message that is sent as it is to many clients, eg. the results of a round.
+	 * Its binary frame is encoded once and written to every client. 
+	 * The message must not be changed after the response is created
+	 * 
+	 * @param message
+	 * @return
+	 */
+	public static Response shared(String message) {
+		Response response = new Response(message, PRINTMESSAGE);
+		response.shared = true;
+		return response;
+	}
+	
+	public boolean isShared() {
+		return shared;
+	}
+	
+	byte[] getFrame() {
+		return frame;
+	}
+	
+	void setFrame(byte[] frame) {
+		this.frame = frame;
+	}
 }
@@ -0,0 +1,51 @@
+package server;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads responses written by {@link ResponseEncoder}. Used by the client.
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class ResponseDecoder {
+	
+	/**
+	 * Frames larger than this are treated as a corrupt stream
+	 */
+	public static final int MAX_MESSAGE_LENGTH = 16 * 1024 * 1024;
+	
+	private DataInputStream in;
+	
+	public ResponseDecoder(InputStream in) {
+		this.in = new DataInputStream(in);
+	}
+	
+	/**
+	 * Blocks until a whole frame is read
+	 * 
+	 * @return
+	 * @throws java.io.EOFException if the server closed the connection
+	 * @throws IOException
+	 */
+	public Response read() throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > MAX_MESSAGE_LENGTH) {
+			throw new StreamCorruptedException("Invalid message length " + length);
+		}
+		
+		int type = in.readUnsignedByte();
+		byte[] payload = new byte[length];
+		in.readFully(payload);
+		
+		return new Response(new String(payload, StandardCharsets.UTF_8), type);
+	}
+	
+	public void close() throws IOException {
+		in.close();
+	}
+}
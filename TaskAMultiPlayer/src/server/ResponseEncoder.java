@@ -0,0 +1,104 @@
+package server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes responses in the binary protocol ({@link Protocol#VERSION_BINARY}).
+ * 
+ * <p>Each response is sent as one frame:
+ * <pre>
+ * +----------------+------+------------------------+
+ * | length (4)     | type | message (length bytes) |
+ * +----------------+------+------------------------+
+ * </pre>
+ * The length is a big-endian int counting the message bytes only. The type is one 
+ * of the Response types and the message is encoded as UTF-8. 
+ * A null message is sent as an empty message.
+ * 
+ * <p>See {@link ResponseDecoder} for the client side.
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class ResponseEncoder implements IResponseWriter {
+	
+	/**
+	 * Bytes in front of the message: length and type
+	 */
+	public static final int HEADER_LENGTH = 5;
+	
+	private OutputStream out;
+	
+	public ResponseEncoder(OutputStream out) {
+		this.out = out;
+	}
+	
+	/**
+	 * Encodes the response into a single frame
+	 * 
+	 * @param response
+	 * @return
+	 */
+	public static byte[] encode(Response response) {
+		String message = response.getMessage();
+		byte[] payload = message == null ? new byte[0] : message.getBytes(StandardCharsets.UTF_8);
+		
+		byte[] frame = new byte[HEADER_LENGTH + payload.length];
+		frame[0] = (byte) (payload.length >>> 24);
+		frame[1] = (byte) (payload.length >>> 16);
+		frame[2] = (byte) (payload.length >>> 8);
+		frame[3] = (byte) payload.length;
+		frame[4] = (byte) response.getType();
+		System.arraycopy(payload, 0, frame, HEADER_LENGTH, payload.length);
+		
+		return frame;
+	}
+
+	/**
+	 * Gets the frame of the response. A shared response (see {@link Response#shared(String)}) 
+	 * is encoded once, and the same frame is written to every client
+	 * 
+	 * @param response
+	 * @return
+	 */
+	static byte[] frame(Response response) {
+		if ( ! response.isShared()) {
+			return encode(response);
+		}
+		
+		// two clients may encode it at the same time, both get the same bytes
+		byte[] frame = response.getFrame();
+		if (frame == null) {
+			frame = encode(response);
+			response.setFrame(frame);
+		}
+		return frame;
+	}
+
+	/**
+	 * Writes the whole frame with a single write call and flushes it
+	 */
+	@Override
+	public void write(Response response) throws IOException {
+		ResponseWriteEvent event = new ResponseWriteEvent();
+		event.begin();
+		
+		out.write(frame(response));
+		out.flush();
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.protocol = "binary";
+			event.type = response.getType();
+			event.length = response.getMessage() == null ? 0 : response.getMessage().length();
+			event.commit();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
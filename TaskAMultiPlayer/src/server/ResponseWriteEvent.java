@@ -0,0 +1,34 @@
+package server;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a {@link Response} being written by an {@link IResponseWriter}. 
+ * With an {@link OutboundQueue} this happens on the client's writer, and in NIO mode the 
+ * response is only encoded into the client's buffer.
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+@Name("guessing.ResponseWrite")
+@Label("Response Write")
+@Category({"Guessing Game", "Session"})
+@Description("A response being written to a client")
+@StackTrace(false)
+public class ResponseWriteEvent extends jdk.jfr.Event {
+	
+	@Label("Protocol")
+	@Description("binary or serialized")
+	public String protocol;
+	
+	@Label("Type")
+	@Description("PRINTMESSAGE (0), READLINE (1) or QUIT (2)")
+	public int type;
+	
+	@Label("Message Length")
+	public int length;
+}
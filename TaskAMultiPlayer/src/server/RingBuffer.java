@@ -0,0 +1,109 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded queue for many producers and a single consumer that never takes a lock.
+ *
+ * <p>Every slot has a sequence number that tells producers whether the slot is free and the
+ * consumer whether it is filled. Producers claim a slot by moving the tail with a compare-and-set,
+ * so a full buffer makes {@link #offer(Object)} return false instead of waiting. Only one thread
+ * may call {@link #poll()}.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ * @param <E>
+ */
+public class RingBuffer<E> {
+
+	private final Object[] slots;
+	private final AtomicLongArray sequences;
+	private final int mask;
+
+	private final AtomicLong tail = new AtomicLong();
+
+	// written by the consumer only
+	private volatile long head = 0;
+
+
+	/**
+	 * @param capacity rounded up to a power of two
+	 */
+	public RingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.slots = new Object[size];
+		this.sequences = new AtomicLongArray(size);
+		this.mask = size - 1;
+
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	public int capacity() {
+		return slots.length;
+	}
+
+	/**
+	 * Adds the element at the tail
+	 *
+	 * @param element
+	 * @return false if the buffer is full
+	 */
+	public boolean offer(E element) {
+		long position;
+		int index;
+		while (true) {
+			position = tail.get();
+			index = (int) position & mask;
+			long available = sequences.get(index) - position;
+
+			if (available == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					break;
+				}
+			}
+			else if (available < 0) {
+				// the consumer has not taken the element a lap ago yet
+				return false;
+			}
+		}
+
+		slots[index] = element;
+		sequences.lazySet(index, position + 1);
+		return true;
+	}
+
+	/**
+	 * Takes the element at the head. Must only be called by the consumer thread
+	 *
+	 * @return the element, or null if the buffer is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		int index = (int) head & mask;
+		if (sequences.get(index) != head + 1) {
+			return null;
+		}
+
+		E element = (E) slots[index];
+		slots[index] = null;
+		sequences.lazySet(index, head + slots.length);
+		head++;
+		return element;
+	}
+
+	/**
+	 * Gets the number of elements. This is only an estimate while producers are adding
+	 * @return
+	 */
+	public int size() {
+		long size = tail.get() - head;
+		return (int) Math.max(0, Math.min(size, slots.length));
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+}
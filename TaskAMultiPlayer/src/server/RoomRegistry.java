@@ -0,0 +1,246 @@
+package server;
+
+import core.Game;
+import core.GameManager;
+import core.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the open {@link GameRoom}s of the server.
+ *
+ * <p>The {@link Lobby} opens a room with a new {@link Game} for every match it forms, and a room
+ * is retired as soon as its last player leaves. Rounds in different rooms run at the same time.
+ *
+ * <p>Rooms restored after a restart (see {@link GameStateStore}) keep the seats of their players
+ * until the players sign up again with the same name, see {@link #resume(GameManager)}.
+ *
+ * <p>The registry's monitor only guards its own list of rooms and their seats. The lock of a room
+ * is never taken while holding it, so a virtual thread waiting for a room's lock does not pin its
+ * carrier, and players leaving different rooms do not wait for each other's room.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class RoomRegistry {
+
+	private Supplier<Game> gameFactory;
+
+	private List<GameRoom> rooms = new ArrayList<>();
+	private int nextId = 1;
+
+	private IRoomCallback callback;
+
+	// contention of the locks of every room
+	private LockStats lockStats = new LockStats();
+
+
+	/**
+	 * @param gameFactory creates the game of every new room
+	 */
+	public RoomRegistry(Supplier<Game> gameFactory) {
+		this.gameFactory = gameFactory;
+	}
+
+
+	/**
+	 * Sets the callback of every room opened from now on
+	 * @param callback
+	 */
+	public void setCallback(IRoomCallback callback) {
+		List<GameRoom> open;
+		synchronized (this) {
+			this.callback = callback;
+			open = new ArrayList<>(rooms);
+		}
+
+		for (GameRoom room : open) {
+			room.getLock().lock();
+			try {
+				room.setCallback(callback);
+			}
+			finally {
+				room.getLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Opens a room with a new game and adds the players to it.
+	 * Every player must call {@link #leave(GameRoom)} when they leave the room.
+	 *
+	 * @param players
+	 * @return
+	 */
+	public synchronized GameRoom open(List<Player> players) {
+		Game game = gameFactory.get();
+		game.start();
+		for (Player player : players) {
+			game.addPlayer(player);
+		}
+
+		GameRoom room = new GameRoom(nextId++, game);
+		room.setSeats(players.size());
+		room.setCallback(callback);
+		room.setLockStats(lockStats);
+		if (callback != null) {
+			callback.onRoomOpened(room);
+		}
+		rooms.add(room);
+		return room;
+	}
+
+	/**
+	 * Adds rooms restored after a restart. Their players can take their seats back
+	 * with {@link #resume(GameManager)}. Must be called before the lobby starts
+	 *
+	 * @param restored
+	 * @param nextId id of the next room opened, rooms never get the id of an older room
+	 */
+	public synchronized void restore(List<GameRoom> restored, int nextId) {
+		this.nextId = Math.max(this.nextId, nextId);
+		for (GameRoom room : restored) {
+			room.setSeats(room.getGame().getPlayers().size());
+			room.getVacant().addAll(room.getGame().getPlayers());
+			room.setCallback(callback);
+			room.setLockStats(lockStats);
+			rooms.add(room);
+			nextId = Math.max(nextId, room.getId() + 1);
+		}
+	}
+
+	/**
+	 * Gives a restored player's seat to the current player of the manager if they have 
+	 * the same name. The manager's current player is replaced with the restored player, 
+	 * who still has their guesses.
+	 *
+	 * @param manager
+	 * @return the room of the restored player, or null if no room keeps a seat for the name
+	 */
+	public GameRoom resume(GameManager manager) {
+		String name = manager.getCurrentPlayer().getName();
+
+		List<GameRoom> seats = new ArrayList<>();
+		List<Player> players = new ArrayList<>();
+		synchronized (this) {
+			for (GameRoom room : rooms) {
+				for (Player player : room.getVacant()) {
+					if (player.getName().equals(name)) {
+						seats.add(room);
+						players.add(player);
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < seats.size(); i++) {
+			GameRoom room = seats.get(i);
+			if (hasEnded(room)) {
+				continue;
+			}
+			// another player with the same name may have taken the seat meanwhile
+			synchronized (this) {
+				if ( ! room.getVacant().remove(players.get(i))) {
+					continue;
+				}
+			}
+			manager.setCurrentPlayer(players.get(i));
+			return room;
+		}
+		return null;
+	}
+
+	/**
+	 * The others can end the round while a player that had finished is away, 
+	 * that player then signs up as a new player. Their seat is given up with the other vacant seats
+	 */
+	private static boolean hasEnded(GameRoom room) {
+		room.getLock().lock();
+		try {
+			return room.getCoordinator().getPhase() == RoundCoordinator.Phase.RESULTS;
+		}
+		finally {
+			room.getLock().unlock();
+		}
+	}
+
+	/**
+	 * Gives up the seats of the restored players that have not come back, 
+	 * so the players that did come back are not left waiting for them
+	 */
+	public void releaseVacantSeats() {
+		List<GameRoom> left = new ArrayList<>();
+		List<Player> players = new ArrayList<>();
+
+		synchronized (this) {
+			for (GameRoom room : rooms) {
+				for (Player player : room.getVacant()) {
+					left.add(room);
+					players.add(player);
+				}
+				room.getVacant().clear();
+			}
+		}
+
+		for (int i = 0; i < left.size(); i++) {
+			GameRoom room = left.get(i);
+			GameManager manager = new GameManager(room.getGame());
+			manager.setCurrentPlayer(players.get(i));
+
+			room.getLock().lock();
+			try {
+				room.getCoordinator().leave(manager);
+			}
+			finally {
+				room.getLock().unlock();
+			}
+			leave(room);
+		}
+	}
+
+	/**
+	 * Gives the seat back. The room is retired when it is empty
+	 *
+	 * @param room
+	 */
+	public void leave(GameRoom room) {
+		synchronized (this) {
+			room.setSeats(room.getSeats() - 1);
+			if (room.getSeats() > 0) {
+				return;
+			}
+			rooms.remove(room);
+		}
+
+		room.getLock().lock();
+		try {
+			room.setRetired(true);
+			// the game is over, its rounds no longer need to be in memory
+			room.getGame().archiveRounds();
+			if (room.getCallback() != null) {
+				room.getCallback().onRoomRetired(room);
+			}
+		}
+		finally {
+			room.getLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the contention of the locks of the rooms
+	 * @return
+	 */
+	public LockStats getLockStats() {
+		return lockStats;
+	}
+
+	/**
+	 * Gets a copy of the open rooms
+	 * @return
+	 */
+	public synchronized List<GameRoom> getRooms() {
+		return new ArrayList<>(rooms);
+	}
+}
@@ -0,0 +1,426 @@
+package server;
+
+import core.GameRound;
+import core.GameSnapshot;
+import core.IRoundArchive;
+import core.Player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Compact on-disk archive of the rounds games no longer keep in memory.
+ *
+ * <p>Games give their old rounds to the archive as they start new ones, and all their rounds
+ * when their room is retired (see {@link core.Game#setRetention(int, IRoundArchive)}), so the
+ * heap does not grow with the number of rounds played. The archive is a directory of segment
+ * files that are only appended to. A new segment is started when the current one is full, and
+ * every time the archive is opened.
+ *
+ * <p>Each segment starts with the {@link #MAGIC} bytes and the {@link #VERSION}, followed by the rounds.
+ * A round is its length, the time it was archived, the code, whether it had ended, the names of
+ * its players, its winners, losers and forfeiters as places in the names, and its guesses.
+ *
+ * <p>Rounds are written to a buffer and the buffer to the file when it is full, when the archive
+ * is read and when it is closed. Reading goes through the files one round at a time, so a query
+ * keeps no more rounds in memory than it returns.
+ *
+ * <p>Can be run to print the archive: <pre>java -cp bin server.RoundArchive [directory] [player]</pre>
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class RoundArchive implements IRoundArchive, Closeable {
+
+	public static final byte[] MAGIC = { 'G', 'G', 'A' };
+	public static final int VERSION = 1;
+
+	public static final long DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+
+	static final String SEGMENT_PREFIX = "rounds-";
+	static final String SEGMENT_SUFFIX = ".archive";
+
+	private File dir;
+	private long segmentSize;
+
+	// a ReentrantLock so virtual threads do not pin their carrier thread (see GameRoom)
+	private ReentrantLock lock = new ReentrantLock();
+
+	// guarded by the lock
+	private int segmentIndex;
+	private DataOutputStream out;
+	private long segmentLength = 0;
+	private ByteArrayOutputStream record = new ByteArrayOutputStream();
+	private DataOutputStream recordOut = new DataOutputStream(record);
+	private long archived = 0;
+	private boolean closed = false;
+
+
+	public RoundArchive(File dir) throws IOException {
+		this(dir, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Opens a new segment after the existing segments of the directory
+	 *
+	 * @param dir created if it does not exist
+	 * @param segmentSize bytes per segment file
+	 * @throws IOException
+	 */
+	public RoundArchive(File dir, long segmentSize) throws IOException {
+		if ( ! dir.isDirectory() && ! dir.mkdirs()) {
+			throw new IOException("Cannot create archive directory " + dir);
+		}
+
+		this.dir = dir;
+		this.segmentSize = segmentSize;
+
+		List<File> segments = segments(dir);
+		segmentIndex = segments.isEmpty() ? 0 : index(segments.get(segments.size() - 1));
+		roll();
+	}
+
+
+	/**
+	 * Appends the round. If the archive cannot be written it is closed
+	 * and the error is printed, the game goes on without it.
+	 *
+	 * @param round
+	 */
+	@Override
+	public void archive(GameRound round) {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+
+			record.reset();
+			write(round, recordOut);
+
+			if (segmentLength + 4 + record.size() > segmentSize) {
+				roll();
+			}
+			out.writeInt(record.size());
+			record.writeTo(out);
+			segmentLength += 4 + record.size();
+			archived++;
+		}
+		catch (IOException e) {
+			System.err.println("Round archive stopped: " + e.getMessage());
+			closeQuietly();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private static void write(GameRound round, DataOutputStream out) throws IOException {
+		List<Player> players = round.getPlayers();
+
+		out.writeLong(System.currentTimeMillis());
+		GameSnapshot.writeString(out, round.getCode());
+		out.writeBoolean(round.hasEnded());
+
+		out.writeShort(players.size());
+		for (Player player : players) {
+			GameSnapshot.writeString(out, player.getName());
+		}
+		writePlaces(out, players, round.getWinners());
+		writePlaces(out, players, round.getLosers());
+		writePlaces(out, players, round.getForfeiters());
+
+		out.writeShort(round.getGuesses().size());
+		for (String guess : round.getGuesses()) {
+			GameSnapshot.writeString(out, guess);
+		}
+	}
+
+	/**
+	 * Writes the places of the players in the round's players
+	 */
+	private static void writePlaces(DataOutputStream out, List<Player> players, List<Player> list) throws IOException {
+		out.writeShort(list.size());
+		for (Player player : list) {
+			out.writeShort(players.indexOf(player));
+		}
+	}
+
+	/**
+	 * Flushes the current segment and starts the next one.
+	 * Must be called while holding the lock
+	 *
+	 * @throws IOException
+	 */
+	private void roll() throws IOException {
+		if (out != null) {
+			out.close();
+		}
+
+		segmentIndex++;
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(segmentFile(dir, segmentIndex)), 64 * 1024));
+		out.write(MAGIC);
+		out.writeByte(VERSION);
+		segmentLength = MAGIC.length + 1;
+	}
+
+	/**
+	 * Writes the buffered rounds to the file, so they can be read
+	 */
+	public void flush() {
+		lock.lock();
+		try {
+			if ( ! closed) {
+				out.flush();
+			}
+		}
+		catch (IOException e) {
+			System.err.println("Round archive stopped: " + e.getMessage());
+			closeQuietly();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+
+	/**
+	 * Passes every archived round to the consumer, oldest first
+	 *
+	 * @param consumer
+	 * @return the number of rounds read
+	 * @throws IOException if a segment is not an archive segment
+	 */
+	public long read(Consumer<ArchivedRound> consumer) throws IOException {
+		flush();
+		return read(dir, consumer);
+	}
+
+	/**
+	 * Gets the player's last rounds
+	 *
+	 * @param name
+	 * @param limit the most rounds to return
+	 * @return the rounds, oldest first
+	 * @throws IOException
+	 */
+	public List<ArchivedRound> findByPlayer(String name, int limit) throws IOException {
+		Deque<ArchivedRound> last = new ArrayDeque<>();
+		read(round -> {
+			if (round.hasPlayer(name)) {
+				last.add(round);
+				if (last.size() > limit) {
+					last.poll();
+				}
+			}
+		});
+		return new ArrayList<>(last);
+	}
+
+	/**
+	 * Reads every round of the archive in a directory, oldest first.
+	 * A round that was not finished when the server stopped ends its segment
+	 *
+	 * @param dir
+	 * @param consumer
+	 * @return the number of rounds read
+	 * @throws IOException
+	 */
+	public static long read(File dir, Consumer<ArchivedRound> consumer) throws IOException {
+		long count = 0;
+		byte[] body = new byte[256];
+
+		for (File segment : segments(dir)) {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)))) {
+				checkHeader(segment, in);
+
+				while (true) {
+					int length;
+					try {
+						length = in.readInt();
+						if (length > body.length) {
+							body = new byte[Math.max(length, body.length * 2)];
+						}
+						in.readFully(body, 0, length);
+					}
+					catch (EOFException e) {
+						break;
+					}
+
+					consumer.accept(read(new DataInputStream(new ByteArrayInputStream(body, 0, length))));
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static void checkHeader(File segment, DataInputStream in) throws IOException {
+		for (byte b : MAGIC) {
+			if (in.readByte() != b) {
+				throw new StreamCorruptedException(segment + " is not an archive segment");
+			}
+		}
+		int version = in.readUnsignedByte();
+		if (version > VERSION) {
+			throw new StreamCorruptedException(segment + " was written by a newer version " + version);
+		}
+	}
+
+	private static ArchivedRound read(DataInputStream in) throws IOException {
+		long time = in.readLong();
+		String code = in.readUTF();
+		boolean ended = in.readBoolean();
+
+		List<String> players = readStrings(in);
+		List<String> winners = readPlaces(in, players);
+		List<String> losers = readPlaces(in, players);
+		List<String> forfeited = readPlaces(in, players);
+		List<String> guesses = readStrings(in);
+
+		return new ArchivedRound(time, code, ended, players, winners, losers, forfeited, guesses);
+	}
+
+	private static List<String> readStrings(DataInputStream in) throws IOException {
+		int count = in.readUnsignedShort();
+		List<String> values = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			values.add(in.readUTF());
+		}
+		return values;
+	}
+
+	private static List<String> readPlaces(DataInputStream in, List<String> players) throws IOException {
+		int count = in.readUnsignedShort();
+		List<String> names = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int place = in.readShort();
+			if (place >= 0 && place < players.size()) {
+				names.add(players.get(place));
+			}
+		}
+		return names;
+	}
+
+
+	/**
+	 * Gets the number of rounds archived since the archive was opened
+	 * @return
+	 */
+	public long getArchived() {
+		lock.lock();
+		try {
+			return archived;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	public File getDirectory() {
+		return dir;
+	}
+
+	/**
+	 * Writes the buffered rounds and closes the archive. Rounds archived later are dropped
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			out.close();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void closeQuietly() {
+		closed = true;
+		try {
+			if (out != null) out.close();
+		}
+		catch (IOException e) {
+			// already failing
+		}
+	}
+
+
+	static File segmentFile(File dir, int index) {
+		return new File(dir, String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+	}
+
+	/**
+	 * Gets the segment files of the directory in the order they were written
+	 *
+	 * @param dir
+	 * @return
+	 */
+	static List<File> segments(File dir) {
+		List<File> segments = new ArrayList<>();
+		File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+		if (files != null) {
+			for (File file : files) {
+				if (index(file) > 0) {
+					segments.add(file);
+				}
+			}
+		}
+		segments.sort((a, b) -> Integer.compare(index(a), index(b)));
+		return segments;
+	}
+
+	private static int index(File segment) {
+		String name = segment.getName();
+		try {
+			return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+		}
+		catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+
+	/**
+	 * Prints the archive, one round per line
+	 *
+	 * @param args the archive directory, defaults to {@link MultiPlayerServer#DEFAULT_ARCHIVE},
+	 * and a player name to only print the player's rounds
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		File dir = new File(args.length > 0 ? args[0] : MultiPlayerServer.DEFAULT_ARCHIVE);
+		String player = args.length > 1 ? args[1] : null;
+
+		long start = System.nanoTime();
+		long count = read(dir, round -> {
+			if (player == null || round.hasPlayer(player)) {
+				System.out.println(round);
+			}
+		});
+		long elapsed = System.nanoTime() - start;
+
+		System.err.printf("%d rounds read in %.1f ms%n", count, elapsed / 1e6);
+	}
+}
@@ -0,0 +1,244 @@
+package server;
+
+import core.Game;
+import core.GameManager;
+import core.GameRound;
+import core.Player;
+import core.Player.PlayerStatus;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Round lifecycle of one {@link GameRoom}. The {@link Lobby} seats the players of the room,
+ * they play one round, and every player then goes back to the lobby or quits.
+ *
+ * <pre>
+ * SEATED --(first player starts the round)--> PLAYING --(round ended)--> RESULTS
+ * </pre>
+ *
+ * <p>Players that finish early wait for the round to end on the room's own condition, so they
+ * are only woken when their round ends. The wait has a predicate on the round itself, so a
+ * wake-up that is not for the player sends them back to sleep instead of on with the game.
+ * A player that disconnects is taken out of the round (see {@link #leave(GameManager)})
+ * so the others are not left waiting for them.
+ *
+ * <p>Blocking processes use {@link #awaitRoundEnd(GameRound)}. NIO processes
+ * {@link #park(NioServerProcess)} themselves instead and are run again on their I/O thread.
+ *
+ * <p>Everything that changes the room goes through the coordinator and is passed on to the
+ * room's {@link IRoomCallback}, if it has one.
+ *
+ * <p>Every method must be called while holding the room's lock.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class RoundCoordinator {
+
+	public enum Phase {
+		SEATED,
+		PLAYING,
+		RESULTS
+	}
+
+	private GameRoom room;
+	private Game game;
+
+	private Phase phase = Phase.SEATED;
+	private GameRound round;
+	// null for a round restored after a restart
+	private RoundEvent roundEvent;
+
+	private Condition roundEnded;
+	private Set<NioServerProcess> parked = new LinkedHashSet<>();
+
+
+	public RoundCoordinator(GameRoom room, ReentrantLock lock) {
+		this.room = room;
+		this.game = room.getGame();
+		this.roundEnded = lock.newCondition();
+	}
+
+	public Phase getPhase() {
+		return phase;
+	}
+
+	/**
+	 * Gets the round of the room. This returns null until the round has started
+	 * @return
+	 */
+	public GameRound getRound() {
+		return round;
+	}
+
+
+	/**
+	 * Starts the round with every player of the room, or joins the current
+	 * player to the round if another player has started it already
+	 *
+	 * @param manager
+	 * @return the round the player plays
+	 * @throws Exception
+	 */
+	public GameRound startRound(GameManager manager) throws Exception {
+		if (phase == Phase.RESULTS) {
+			throw new IllegalStateException("The round of this room has already ended");
+		}
+
+		manager.startNextRound();
+		manager.joinCurrentPlayer();
+
+		if (phase == Phase.SEATED) {
+			phase = Phase.PLAYING;
+			round = game.getCurrentRound();
+			roundEvent = new RoundEvent();
+			roundEvent.begin();
+
+			if (room.getCallback() != null) {
+				room.getCallback().onRoundStarted(room, round);
+			}
+		}
+		return round;
+	}
+
+	/**
+	 * Adds the current player's guess to the round (see {@link GameManager#addGuess(String)})
+	 * and moves to the results if the guess has ended the round
+	 *
+	 * @param manager
+	 * @param guess
+	 */
+	public void addGuess(GameManager manager, String guess) {
+		if (room.getCallback() != null) {
+			room.getCallback().onGuessAdded(room, room.getSeat(manager.getCurrentPlayer()), guess);
+		}
+
+		manager.addGuess(guess);
+		checkRoundEnded();
+	}
+
+	/**
+	 * Moves to the results once the round has ended (see {@link GameManager#addGuess(String)}).
+	 * Wakes the players waiting for the round to end.
+	 */
+	public void checkRoundEnded() {
+		if (phase != Phase.PLAYING || ! round.hasEnded()) {
+			return;
+		}
+
+		phase = Phase.RESULTS;
+		roundEnded.signalAll();
+
+		if (roundEvent != null) {
+			roundEvent.end();
+			if (roundEvent.shouldCommit()) {
+				roundEvent.room = room.getId();
+				roundEvent.players = round.getPlayers().size();
+				roundEvent.commit();
+			}
+			roundEvent = null;
+		}
+
+		for (NioServerProcess process : parked) {
+			process.waiting = false;
+			process.getWorker().execute(process);
+		}
+		parked.clear();
+	}
+
+	/**
+	 * Takes the player out of the round when they leave the room, so the other players are not
+	 * left waiting for them. Also removes the player from the game.
+	 *
+	 * @param manager
+	 */
+	public void leave(GameManager manager) {
+		if (manager.getCurrentPlayer() == null) {
+			return;
+		}
+
+		int seat = room.getSeat(manager.getCurrentPlayer());
+		if (room.getCallback() != null && seat >= 0) {
+			room.getCallback().onPlayerLeft(room, seat);
+		}
+
+		if (phase == Phase.PLAYING) {
+			manager.leaveCurrentRound();
+		}
+		manager.removeCurrentPlayer();
+		checkRoundEnded();
+	}
+
+
+	/**
+	 * Starts the round again with the code it had before the server restarted, 
+	 * without firing any event (see {@link GameStateStore})
+	 *
+	 * @param code
+	 * @throws Exception
+	 */
+	void restoreRound(String code) throws Exception {
+		round = game.startNextRound(code);
+		for (Player player : game.getPlayers()) {
+			player.setStatus(PlayerStatus.STARTED);
+		}
+		phase = Phase.PLAYING;
+	}
+
+	/**
+	 * Sets the phase of a room read from a snapshot. The round is the game's current round
+	 *
+	 * @param phase
+	 */
+	void restore(Phase phase) {
+		this.phase = phase;
+		this.round = game.getCurrentRound();
+	}
+
+
+	/**
+	 * Waits until the round has ended. The wait and every wake-up are recorded in the room's {@link LockStats}
+	 *
+	 * @param round
+	 * @return how long the lock was released for, in nanoseconds
+	 * @throws InterruptedException
+	 */
+	public long awaitRoundEnd(GameRound round) throws InterruptedException {
+		if (round.hasEnded()) {
+			return 0;
+		}
+
+		long start = System.nanoTime();
+		while ( ! round.hasEnded()) {
+			roundEnded.await();
+			room.getLockStats().wokenUp(round.hasEnded());
+		}
+		long waited = System.nanoTime() - start;
+		room.getLockStats().waited(waited);
+		return waited;
+	}
+
+	/**
+	 * Parks the NIO process until the round ends.
+	 * The process is then run again on its I/O thread and has to check the round again.
+	 *
+	 * @param process
+	 */
+	void park(NioServerProcess process) {
+		process.waiting = true;
+		parked.add(process);
+	}
+
+	/**
+	 * Removes the process from the parked processes, without running it
+	 *
+	 * @param process
+	 */
+	void unpark(NioServerProcess process) {
+		process.waiting = false;
+		parked.remove(process);
+	}
+}
@@ -0,0 +1,28 @@
+package server;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for the round of a {@link GameRoom}, from its start to its end. 
+ * It is begun by the player that starts the round and committed by the one that ends it.
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+@Name("guessing.Round")
+@Label("Round")
+@Category({"Guessing Game", "Round"})
+@Description("A round from its start to its end")
+@StackTrace(false)
+public class RoundEvent extends jdk.jfr.Event {
+	
+	@Label("Room")
+	public int room;
+	
+	@Label("Players")
+	public int players;
+}
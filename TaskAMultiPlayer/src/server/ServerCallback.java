@@ -1,5 +1,6 @@
 package server;
 
+import java.io.PrintStream;
 import java.net.Socket;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -15,9 +16,20 @@ import java.util.logging.Logger;
 public class ServerCallback implements IServerCallback {
 
 	private Logger logger;
+	private PrintStream console;
 
 	public ServerCallback(Logger logger) {
+		this(logger, System.out);
+	}
+
+	/**
+	 * Events are also printed to the console stream, eg. the console of an {@link AsyncLogHandler}
+	 * @param logger
+	 * @param console
+	 */
+	public ServerCallback(Logger logger, PrintStream console) {
 		this.logger = logger;
+		this.console = console;
 	}
 	
 	
@@ -30,7 +42,7 @@ public class ServerCallback implements IServerCallback {
 
 	}
 	private void SERVER_STARTED(String message) {
-		System.out.println("SERVER STARTED - " + message);
+		console.println("SERVER STARTED - " + message);
         logger.log(Level.INFO, message);
     }
 	
@@ -43,7 +55,7 @@ public class ServerCallback implements IServerCallback {
 		CLIENT_CONNECTED("Client " + socket.getInetAddress().toString() + " connected.");
 	}
 	private void CLIENT_CONNECTED(String message) {
-		System.out.println("CLIENT CONNECTED - " + message);
+		console.println("CLIENT CONNECTED - " + message);
         logger.log(Level.INFO, message);
     }
 
@@ -56,7 +68,7 @@ public class ServerCallback implements IServerCallback {
 		SERVER_RESPONDED("Server: " + response.getMessage());
 	}
 	private void SERVER_RESPONDED(String message) {
-		System.out.println("SERVER RESPONDED - " + message);		logger.log(Level.INFO, message);
+		console.println("SERVER RESPONDED - " + message);		logger.log(Level.INFO, message);
 
     }
 
@@ -70,7 +82,7 @@ public class ServerCallback implements IServerCallback {
 		CLIENT_REPLIED(String.format("%s: %s\n", address, clientReply));
 	}
 	private void CLIENT_REPLIED(String message) {
-		System.out.println("CLIENT REPLIED - " + message);
+		console.println("CLIENT REPLIED - " + message);
 	}
 
 	/**
@@ -82,7 +94,7 @@ public class ServerCallback implements IServerCallback {
 		CLIENT_DISCONNECTED(String.format("CLIENT DISCONNECTED: %s disconnected.", address));
 	}
 	private void CLIENT_DISCONNECTED(String message) {
-		System.out.println("CLIENT DISCONNECTED - " + message);
+		console.println("CLIENT DISCONNECTED - " + message);
 		logger.log(Level.INFO, message);
 
     }
@@ -0,0 +1,367 @@
+package server;
+
+import core.Game;
+import core.GameRound;
+import core.IGameCallback;
+import core.Player;
+
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Callback that keeps metrics of the server's events and exposes them as an MBean.
+ *
+ * <p>Events only add to counters and histograms that threads do not wait on (see {@link Meter} and
+ * {@link Histogram}), so the players' threads are not slowed down. The values are read when a JMX
+ * client such as jconsole asks for them. The lobby and the outbound queues keep their own counters,
+ * which are read from them, as do the locks of the rooms (see {@link LockStats}).
+ *
+ * <p>Rounds are counted when their secret code is created, which happens once per round. The round
+ * ended event comes from every player of the round, only the first one is counted.
+ *
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class ServerMetrics implements IServerMetrics, IServerCallback, IGameCallback {
+
+	public static final String OBJECT_NAME = "guessing:type=ServerMetrics";
+
+	private Lobby lobby;
+	private OutboundQueue.Stats outboundStats;
+
+	// sockets, as a client may be reported disconnected more than once
+	private Set<Socket> connected = ConcurrentHashMap.newKeySet();
+	private LongAdder connections = new LongAdder();
+	private LongAdder exceptions = new LongAdder();
+	private LongAdder replies = new LongAdder();
+
+	private Meter signUps = new Meter();
+	private Meter guesses = new Meter();
+	private LongAdder wins = new LongAdder();
+	private LongAdder losses = new LongAdder();
+	private LongAdder forfeits = new LongAdder();
+
+	// rounds that have started and not ended, with the time they started.
+	// Rounds nobody finishes are forgotten once they are collected
+	private Map<GameRound, Long> activeRounds = Collections.synchronizedMap(new WeakHashMap<>());
+	private LongAdder roundsStarted = new LongAdder();
+	private LongAdder roundsEnded = new LongAdder();
+	private Histogram roundDurations = new Histogram();
+
+
+	public ServerMetrics(Lobby lobby, OutboundQueue.Stats outboundStats) {
+		this.lobby = lobby;
+		this.outboundStats = outboundStats;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server under {@link #OBJECT_NAME}
+	 * @throws JMException
+	 */
+	public void register() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if (server.isRegistered(name)) {
+			server.unregisterMBean(name);
+		}
+		server.registerMBean(this, name);
+	}
+
+
+	// server events
+
+	@Override
+	public void onServerStarted(MultiPlayerServer server, int port) {
+	}
+
+	@Override
+	public void onClientConnected(MultiPlayerServer server, Socket socket) {
+		connected.add(socket);
+		connections.increment();
+	}
+
+	@Override
+	public void onSendResponse(ServerProcess process, Response response) {
+	}
+
+	@Override
+	public void onClientReply(ServerProcess process, String clientReply) {
+		replies.increment();
+	}
+
+	@Override
+	public void onClientDisconnected(MultiPlayerServer server, Socket socket, ServerProcess process) {
+		connected.remove(socket);
+	}
+
+	@Override
+	public void onException(ServerProcess process, Exception e) {
+		exceptions.increment();
+	}
+
+
+	// game events
+
+	@Override
+	public void onStart(Game game) {
+	}
+
+	@Override
+	public void onSecretCodeCreated(Game game, String secretCode) {
+		GameRound round = game.getCurrentRound();
+		if (round != null) {
+			activeRounds.put(round, System.nanoTime());
+			roundsStarted.increment();
+		}
+	}
+
+	@Override
+	public void onRoundStarted(Game game, GameRound round, Player player) {
+	}
+
+	@Override
+	public void onPlayerSignedUp(Game game, GameRound round, Player player) {
+		signUps.mark();
+	}
+
+	@Override
+	public void onGuessAdded(GameRound round, Player player, String guess) {
+		guesses.mark();
+	}
+
+	@Override
+	public void onHigherIncorrectGuess(GameRound round, Player player, String guess) {
+	}
+
+	@Override
+	public void onLowerIncorrectGuess(GameRound round, Player player, String guess) {
+	}
+
+	@Override
+	public void onisInvalidRangeGuess(GameRound round, Player player, String guess) {
+	}
+
+	@Override
+	public void onPlayerWon(GameRound round, Player player, int numOfGuesses) {
+		wins.increment();
+	}
+
+	@Override
+	public void onPlayerLost(GameRound round, Player player, String secretCode) {
+		losses.increment();
+	}
+
+	@Override
+	public void onRoundEnded(Game game, GameRound round) {
+		Long startedAt = activeRounds.remove(round);
+		if (startedAt != null) {
+			roundsEnded.increment();
+			roundDurations.record(System.nanoTime() - startedAt);
+		}
+	}
+
+	@Override
+	public void onPlayerForfeited(Game game, GameRound round, Player player) {
+		forfeits.increment();
+	}
+
+	@Override
+	public void onPlayerQuited(Game game, Player player) {
+	}
+
+
+	// metrics
+
+	@Override
+	public int getConnectedClients() {
+		return connected.size();
+	}
+
+	@Override
+	public long getConnections() {
+		return connections.sum();
+	}
+
+	@Override
+	public long getSignUps() {
+		return signUps.getCount();
+	}
+
+	@Override
+	public double getSignUpsPerSecond() {
+		return signUps.getRate();
+	}
+
+	@Override
+	public long getGuesses() {
+		return guesses.getCount();
+	}
+
+	@Override
+	public double getGuessesPerSecond() {
+		return guesses.getRate();
+	}
+
+	@Override
+	public long getClientReplies() {
+		return replies.sum();
+	}
+
+	@Override
+	public long getWins() {
+		return wins.sum();
+	}
+
+	@Override
+	public long getLosses() {
+		return losses.sum();
+	}
+
+	@Override
+	public long getForfeits() {
+		return forfeits.sum();
+	}
+
+	@Override
+	public int getActiveRounds() {
+		return activeRounds.size();
+	}
+
+	@Override
+	public long getRoundsStarted() {
+		return roundsStarted.sum();
+	}
+
+	@Override
+	public long getRoundsEnded() {
+		return roundsEnded.sum();
+	}
+
+	@Override
+	public double getRoundDurationMeanMillis() {
+		return millis(roundDurations.getMean());
+	}
+
+	@Override
+	public double getRoundDurationP99Millis() {
+		return millis(roundDurations.getPercentile(0.99));
+	}
+
+	@Override
+	public double getRoundDurationMaxMillis() {
+		return millis(roundDurations.getMax());
+	}
+
+	@Override
+	public int getLobbyQueueDepth() {
+		return lobby.getQueueDepth();
+	}
+
+	@Override
+	public double getLobbyWaitMeanMillis() {
+		return lobby.getAverageTimeToMatchMillis();
+	}
+
+	@Override
+	public double getLobbyWaitP99Millis() {
+		return millis(lobby.getTimeToMatch().getPercentile(0.99));
+	}
+
+	@Override
+	public double getLobbyWaitMaxMillis() {
+		return lobby.getMaxTimeToMatchMillis();
+	}
+
+	@Override
+	public long getExceptions() {
+		return exceptions.sum();
+	}
+
+	@Override
+	public long getOutboundOverflows() {
+		return outboundStats.getOverflows();
+	}
+
+	@Override
+	public long getOutboundDisconnects() {
+		return outboundStats.getDisconnects();
+	}
+
+	@Override
+	public long getLockAcquisitions() {
+		return getLockStats().getAcquisitions();
+	}
+
+	@Override
+	public long getLockContended() {
+		return getLockStats().getContended();
+	}
+
+	@Override
+	public double getLockWaitP99Millis() {
+		return millis(getLockStats().getAcquirePercentile(0.99));
+	}
+
+	@Override
+	public double getLockHoldP99Millis() {
+		return millis(getLockStats().getHoldPercentile(0.99));
+	}
+
+	@Override
+	public double getRoundWaitP99Millis() {
+		return millis(getLockStats().getRoundWaits().getPercentile(0.99));
+	}
+
+	@Override
+	public long getRoundWakeUps() {
+		return getLockStats().getWakeUps();
+	}
+
+	@Override
+	public long getRoundWakeUpsWithoutProgress() {
+		return getLockStats().getWakeUpsWithoutProgress();
+	}
+
+	/**
+	 * Gets the durations of the rounds, in nanoseconds
+	 * @return
+	 */
+	public Histogram getRoundDurations() {
+		return roundDurations;
+	}
+
+	public Lobby getLobby() {
+		return lobby;
+	}
+
+	public OutboundQueue.Stats getOutboundStats() {
+		return outboundStats;
+	}
+
+	public LockStats getLockStats() {
+		return lobby.getRooms().getLockStats();
+	}
+
+	private static double millis(double nanos) {
+		return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d clients connected (%d connections), %d sign-ups (%.1f/s), %d guesses (%.1f/s), "
+				+ "%d active rounds, %d ended, round duration %.1f ms average, %.1f ms p99, %d exceptions",
+				getConnectedClients(), getConnections(), getSignUps(), getSignUpsPerSecond(), getGuesses(), getGuessesPerSecond(),
+				getActiveRounds(), getRoundsEnded(), getRoundDurationMeanMillis(), getRoundDurationP99Millis(), getExceptions());
+	}
+}
@@ -4,191 +4,364 @@ import core.Game;
 import core.GameCallback;
 import core.GameCallbackLogger;
 import core.GameManager;
+import core.GameRound;
+import core.IGameCallback;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.net.Socket;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Class that orchestrates how the game will run.
  * You can treat this as the main controller of the game project.
  * 
- * <p>This class will run in a separate thread and will use synchronization 
- * to sync with other threads running this ServerProcess class.
+ * <p>This class will run in a separate thread and will use the lock and the {@link RoundCoordinator} 
+ * of its {@link GameRoom} to sync with the other players in the room. The player waits in the 
+ * {@link Lobby} until it has matched them with other players, and goes back to the lobby 
+ * for every round they choose to play. The thread is provided by an {@link ISessionExecutor}.
  * 
- * <p>The game will use serialization and {@link ObjectOutputStream}.
+ * <p>The game sends {@link Response} objects instead of plain lines.
  * This allows for multi-line printing in the client side and make sending 
- * commands to the client possible.
+ * commands to the client possible. Responses are Java-serialized with 
+ * {@link ObjectOutputStream}, or sent as binary frames to clients that 
+ * ask for it when they connect (see {@link Protocol}). They are queued for a writer 
+ * of their own (see {@link OutboundQueue}), unless the server writes them on the game threads.
  * 
  * @author Oluwole Aibinu
  *S3479719
  */
 public class ServerProcess implements Runnable {
 	
-	/**
-	 * LOCK object that will be shared among all threads running this class
-	 */
-	public static final Object LOCK = new Object();
-	
 	public static final int WAITING_TIME_SECONDS = 20;
 	
 	// required fields
-	private Game game;
+	private Lobby lobby;
 	private Socket socket;
 	private IServerCallback cb;
 	
-	// derived fields
-	private ObjectOutputStream stream;
+	private GameCallbackLogger gameLoggerCallback;
+	private int resetInterval = ObjectResponseWriter.DEFAULT_RESET_INTERVAL;
+	
+	// responses are queued for a writer of their own when an executor is set (see setOutboundQueue())
+	private int outboundCapacity = OutboundQueue.DEFAULT_CAPACITY;
+	private OutboundQueue.SlowClientPolicy slowClientPolicy = OutboundQueue.SlowClientPolicy.COALESCE;
+	private OutboundQueue.Stats outboundStats;
+	private ISessionExecutor writerExecutor;
+	
+	// derived fields, available once the protocol is agreed (see open())
+	private IResponseWriter writer;
 	private BufferedReader reader;
 	private GameManager manager;
 	
+	// available while the player is in a room (see enterRoom())
+	private GameRoom room;
 	
-	public ServerProcess(Game game, Socket socket, IServerCallback callback, GameCallbackLogger gameLoggerCallback) throws IOException {
-		this.game = game;
+	
+	public ServerProcess(Lobby lobby, Socket socket, IServerCallback callback, GameCallbackLogger gameLoggerCallback) {
+		this.lobby = lobby;
 		this.socket = socket;
 		this.cb = callback;
-		this.stream = new ObjectOutputStream(socket.getOutputStream());
-		this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-		this.manager = new GameManager(game);
+		this.gameLoggerCallback = gameLoggerCallback;
+		this.manager = new GameManager(null);
+	}
+	
+	/**
+	 * Sets up the streams once the protocol version is known. 
+	 * The reader may be null for processes that do not read from the socket's 
+	 * streams directly (see {@link NioServerProcess}).
+	 * 
+	 * @param writer
+	 * @param reader
+	 */
+	protected void open(IResponseWriter writer, BufferedReader reader) {
+		this.writer = writer;
+		this.reader = reader;
 		
-		GameCallback cb = new GameCallback(stream);
+		GameCallback cb = new GameCallback(writer);
 		manager.addCallback(cb);
 		manager.addCallback(gameLoggerCallback);
 	}
 	
+	/**
+	 * Waits briefly for the client's hello and opens the streams 
+	 * with the protocol version it asked for.
+	 * 
+	 * @throws IOException
+	 */
+	private void negotiate() throws IOException {
+		PushbackInputStream in = new PushbackInputStream(socket.getInputStream(), Protocol.HELLO_LENGTH);
+		OutputStream out = socket.getOutputStream();
+		
+		int version = Protocol.readHello(socket, in);
+		if (version >= 0) {
+			version = Protocol.negotiate(version);
+			out.write(Protocol.hello(version));
+		}
+		
+		IResponseWriter writer = createWriter(version, out);
+		if (writerExecutor != null) {
+			OutboundQueue queue = new OutboundQueue(writer, socket, outboundCapacity, slowClientPolicy, outboundStats);
+			queue.start(writerExecutor);
+			writer = queue;
+		}
+		open(writer, new BufferedReader(new InputStreamReader(in)));
+	}
+	
+	/**
+	 * Creates the response writer for the protocol version
+	 * 
+	 * @param version negotiated version, or -1 if the client did not send a hello
+	 * @param out
+	 * @return
+	 * @throws IOException
+	 */
+	protected IResponseWriter createWriter(int version, OutputStream out) throws IOException {
+		if (version == Protocol.VERSION_BINARY) {
+			return new ResponseEncoder(out);
+		}
+		return new ObjectResponseWriter(new ObjectOutputStream(out), resetInterval);
+	}
+	
 	public Socket getSocket() {
 		return socket;
 	}
 	
+	/**
+	 * Gets the game of the player's room. 
+	 * This will return null while the player is not in a room
+	 * @return
+	 */
 	public Game getGame() {
-		return game;
+		return room != null ? room.getGame() : null;
+	}
+	
+	/**
+	 * Gets the player's room. 
+	 * This will return null while the player is not in a room
+	 * @return
+	 */
+	public GameRoom getRoom() {
+		return room;
 	}
 	
 	public GameManager getGameManager() {
 		return manager;
 	}
 	
+	protected IServerCallback getServerCallback() {
+		return cb;
+	}
+	
+	/**
+	 * Adds a callback to the player's game manager, next to the one that talks 
+	 * to the client and the game logger. Must be called before the process runs
+	 * 
+	 * @param callback
+	 */
+	public void addGameCallback(IGameCallback callback) {
+		manager.addCallback(callback);
+	}
+	
+	protected Lobby getLobby() {
+		return lobby;
+	}
+	
+	/**
+	 * Moves the player into the room the lobby has matched them to
+	 * 
+	 * @param room
+	 */
+	protected void enterRoom(GameRoom room) {
+		this.room = room;
+		manager.setGame(room.getGame());
+	}
+	
+	/**
+	 * Gives up the player's seat. If the round is still playing, 
+	 * the player is taken out of it so the others do not wait for them
+	 */
+	protected void leaveRoom() {
+		if (room == null) {
+			return;
+		}
+		
+		LockStats lockStats = room.getLockStats();
+		long acquired = lockStats.lock(room.getLock(), LockStats.Section.LEAVE);
+		try {
+			room.getCoordinator().leave(manager);
+		}
+		finally {
+			lockStats.unlock(room.getLock(), LockStats.Section.LEAVE, acquired);
+		}
+		lobby.getRooms().leave(room);
+		room = null;
+	}
+	
+	/**
+	 * Sets how often the serialization stream is reset for clients using the old protocol. 
+	 * Must be called before the process runs (see {@link ObjectResponseWriter})
+	 * 
+	 * @param resetInterval
+	 */
+	public void setResetInterval(int resetInterval) {
+		this.resetInterval = resetInterval;
+	}
+	
+	/**
+	 * Sends the responses through an {@link OutboundQueue}, so a client that does not read 
+	 * cannot block the players of its room. Must be called before the process runs
+	 * 
+	 * @param capacity number of messages the queue holds
+	 * @param policy what happens when the queue is full
+	 * @param stats counters shared by every client
+	 * @param executor runs the queue's writer
+	 */
+	public void setOutboundQueue(int capacity, OutboundQueue.SlowClientPolicy policy, OutboundQueue.Stats stats, ISessionExecutor executor) {
+		this.outboundCapacity = capacity;
+		this.slowClientPolicy = policy;
+		this.outboundStats = stats;
+		this.writerExecutor = executor;
+	}
+	
 	
 	@Override
 	public void run() {
 		
 		try {
 			
+			// agree on the protocol before sending anything
+			if (writer == null) {
+				negotiate();
+			}
+			
 			// ask for player name
+			GameRoom resumed = null;
 			if (manager.getCurrentPlayer() == null) {
 				String name = readline("Enter your name: ", true);
-				manager.setCurrentPlayerName(name);
+				SignUpEvent signUp = new SignUpEvent();
+				signUp.begin();
+				manager.signUpPlayer(name);
+				
+				// a player whose room was restored after a restart goes back to their round
+				resumed = lobby.getRooms().resume(manager);
+				commit(signUp, resumed);
 			}
-
 			
-			// Begin the synchronized block because we will use wait() 
-			// and notifyAll() in this block of code
-			synchronized (LOCK) {
+			// a player that chooses to continue goes back to the end of the lobby queue.
+			// This is a loop rather than a recursive call so long sessions do not grow the stack
+			boolean shouldContinue;
+			do {
 				
-				// first 2 players will enter this block, waiting for the 3rd player
-				// the third player will not enter this code
-				// if there is no 3rd player within 20 seconds, wait() will return.
-				if (manager.getNumPlayers() < Game.MIN_PLAYERS) {
+				// wait for the lobby to find other players. 
+				// If there are not enough players within 20 seconds, the round starts anyway
+				GameRoom matched = resumed;
+				if (matched != null) {
+					reply("Welcome back, resuming your round...");
+					resumed = null;
+				}
+				else {
 					reply("Waiting for other players...");
-					LOCK.wait(WAITING_TIME_SECONDS * 1000);
+					LobbyWaitEvent lobbyWait = new LobbyWaitEvent();
+					lobbyWait.begin();
+					matched = lobby.enqueue(manager.getCurrentPlayer(), null).awaitMatch();
+					commit(lobbyWait, matched);
+					if (matched == null) {
+						break;
+					}
 				}
+				enterRoom(matched);
 				
-				// only the third and the next players will enter this block of code
-				// it notifies other waiting players, that they have joined
-				if (manager.getNumPlayers() >= Game.MIN_PLAYERS) {
-					reply("minimum number of players needed fulfilled");
-					LOCK.notifyAll();
-				}
-			}
-			
-			
-			// only 1 person allowed to start a new round
-			synchronized (LOCK) {
-				manager.startNextRound();
+				ReentrantLock lock = room.getLock();
+				LockStats lockStats = room.getLockStats();
+				RoundCoordinator coordinator = room.getCoordinator();
+				GameRound round;
+				boolean finished;
+				long acquired;
 				
-				// in case the round had already started, 
-				// join the player in the current round
-				manager.joinCurrentPlayer();
-			}
-			
-			
-			do {
+				acquired = lockStats.lock(lock, LockStats.Section.JOIN);
+				try {
+					if (manager.getNumPlayers() >= Game.MIN_PLAYERS) {
+						reply("minimum number of players needed fulfilled");
+					}
+					
+					// the first player starts the round, the others join it. 
+					// A resumed player may have finished the round already
+					round = coordinator.startRound(manager);
+					finished = manager.isCurrentPlayerForfeited() || manager.playerWins() || manager.playerLoses();
+				}
+				finally {
+					lockStats.unlock(lock, LockStats.Section.JOIN, acquired);
+				}
 				
-				// Enter guess
-				String guess = readline("Enter your guess: ");
-				manager.addGuess(guess);
 				
-				// Player forfeits if it enters 'f'
-				if (manager.isCurrentPlayerForfeited()) {
-					break;
+				while ( ! finished) {
+					
+					// Enter guess
+					String guess = readline("Enter your guess: ");
+					
+					acquired = lockStats.lock(lock, LockStats.Section.GUESS);
+					try {
+						coordinator.addGuess(manager, guess);
+						
+						// Player forfeits if it enters 'f'
+						// player wins if it guessed the code correctly
+						// otherwise if didnt guess by the 4th time, the player loses
+						finished = manager.isCurrentPlayerForfeited() || manager.playerWins() || manager.playerLoses();
+					}
+					finally {
+						lockStats.unlock(lock, LockStats.Section.GUESS, acquired);
+					}
+					
 				}
 				
-				// player wins if it guessed the code correctly
-				// otherwise if didnt guess by the 4th time, the player loses
-				if (manager.playerWins() || manager.playerLoses()) {
-					break;
-				}
 				
-			} while (true);
-			
-			
-			// Use synchronized block because we are using wait() and notify() methods
-			synchronized (LOCK) {
 				// if round has not ended, wait for others to finish until they forfeit, win or lose
-				if ( ! manager.isRoundEnded()) {
-					reply("Wait for other players to finish...");
-					LOCK.wait();
+				acquired = lockStats.lock(lock, LockStats.Section.ROUND_END);
+				try {
+					if ( ! round.hasEnded()) {
+						reply("Wait for other players to finish...");
+						// the lock is not held while waiting
+						acquired += coordinator.awaitRoundEnd(round);
+					}
 				}
-				else {
-					// tells other thread that we've finished
-					LOCK.notifyAll();
+				finally {
+					lockStats.unlock(lock, LockStats.Section.ROUND_END, acquired);
 				}
-			}
-			
-			// when the player reached this point means other players 
-			// have won, lost or forfeited
-			manager.endCurrentRound();
-					
-			// Ask to continue or quit
-			boolean shouldContinue = continueOrQuit("Press (p) to continue to play, or (q) to quit: ");
-			
-			// again we will use wait() and notify() here, so use synchronized block
-			synchronized (LOCK) {
 				
-				// player quits, in that case tell other 
-				// clients that the client has quited
-				if (!shouldContinue) {
-					manager.quitPlayer();
-					LOCK.notifyAll();
-				}
-				else {
-					manager.chooseToContinue();
+				// when the player reached this point means other players 
+				// have won, lost or forfeited
+				manager.endCurrentRound();
+				
+				// Ask to continue or quit
+				shouldContinue = continueOrQuit("Press (p) to continue to play, or (q) to quit: ");
+				
+				acquired = lockStats.lock(lock, LockStats.Section.CONTINUE);
+				try {
 					
-					// If there are other players that are not finished, 
-					// The players that are finished will enter this block of code
-					if ( !manager.isRoundEnded() || !manager.isAllOtherPlayersChosenToContinueOrQuit() ) {
-						reply("Please wait for other players to finish before next round begins...");
-						LOCK.wait();
+					// player quits, in that case tell other 
+					// clients that the client has quited
+					if (!shouldContinue) {
+						manager.quitPlayer();
 					}
-					
-					// Only the last player finished will run this code
-					if ( manager.isRoundEnded() && manager.isAllOtherPlayersChosenToContinueOrQuit() ) {
-						LOCK.notifyAll();
+					else {
+						manager.chooseToContinue();
 					}
 				}
-			}
-			
-			// if player decided to continue, run the process all over again
-			if (shouldContinue) {
-				run(); // recursive call
-			}
-			
+				finally {
+					lockStats.unlock(lock, LockStats.Section.CONTINUE, acquired);
+				}
+				
+				// the room only plays one round
+				leaveRoom();
+			} while (shouldContinue);
 			
 			// when player reach this point, means player had quit
 			
-			
 		} 
 		// in case an IOException occurred, fire onException() event
 		catch (IOException e) {
@@ -204,6 +377,37 @@ public class ServerProcess implements Runnable {
 		}
 	}
 	
+	/**
+	 * Records the sign up if a flight recording wants it
+	 * 
+	 * @param event
+	 * @param resumed the room the player went back to, or null
+	 */
+	protected void commit(SignUpEvent event, GameRoom resumed) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.player = manager.getCurrentPlayer().getName();
+			event.client = String.valueOf(socket.getRemoteSocketAddress());
+			event.room = resumed != null ? resumed.getId() : 0;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Records the wait in the lobby if a flight recording wants it
+	 * 
+	 * @param event
+	 * @param matched the room the player was matched to, or null if the lobby was closed
+	 */
+	protected void commit(LobbyWaitEvent event, GameRoom matched) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.player = manager.getCurrentPlayer().getName();
+			event.room = matched != null ? matched.getId() : 0;
+			event.commit();
+		}
+	}
+	
 	/**
 	 * Ask client if they want to continue or not. 
 	 * Will ask again until 'p' or 'q' is entered
@@ -231,10 +435,10 @@ public class ServerProcess implements Runnable {
 	 * Close connection
 	 */
 	public void close() {
-		manager.removeCurrentPlayer();
+		leaveRoom();
 		
 		try {
-			if (stream != null) stream.close();
+			if (writer != null) writer.close();
 			if (reader != null) reader.close();
 			if (socket != null) socket.close();
 			
@@ -248,15 +452,15 @@ public class ServerProcess implements Runnable {
 	
 	/**
 	 * Helper method to reply messages to the client. 
-	 * Uses serialization to send objects to the client. 
-	 * The client then unpacks the contents of the serialized object
+	 * Sends {@link Response} objects to the client. 
+	 * The client then unpacks the contents of the object
 	 * 
 	 * @param message
 	 * @throws IOException
 	 */
-	private void reply(String message) throws IOException {
+	protected void reply(String message) throws IOException {
 		Response response = Response.message(message);
-		stream.writeObject(response);
+		writer.write(response);
 		cb.onSendResponse(this, response);
 	}
 	
@@ -284,9 +488,7 @@ public class ServerProcess implements Runnable {
 	 * @throws IOException
 	 */
 	private String readline(String message, boolean isRequired) throws IOException {
-		Response response = Response.readLine(message);
-		stream.writeObject(response);
-		cb.onSendResponse(this, response);
+		prompt(message);
 		
 		String line = reader.readLine();
 		cb.onClientReply(this, line);
@@ -299,15 +501,27 @@ public class ServerProcess implements Runnable {
 		return line.trim();
 	}
 	
+	/**
+	 * Sends a READLINE command to the client without waiting for the reply
+	 * 
+	 * @param message
+	 * @throws IOException
+	 */
+	protected void prompt(String message) throws IOException {
+		Response response = Response.readLine(message);
+		writer.write(response);
+		cb.onSendResponse(this, response);
+	}
+	
 	/**
 	 * Send a message to the client. Message is prepended with "ERROR: "
 	 * 
 	 * @param message
 	 * @throws IOException
 	 */
-	private void sendError(String message) throws IOException {
+	protected void sendError(String message) throws IOException {
 		Response response = Response.message("ERROR: " + message);
-		stream.writeObject(response);
+		writer.write(response);
 		cb.onSendResponse(this, response);
 	}
 }
@@ -0,0 +1,32 @@
+package server;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a player signing up, from the name being read to the player 
+ * being added or taking back their seat in a restored room.
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+@Name("guessing.SignUp")
+@Label("Sign Up")
+@Category({"Guessing Game", "Session"})
+@Description("A player signing up with their name")
+@StackTrace(false)
+public class SignUpEvent extends jdk.jfr.Event {
+	
+	@Label("Player")
+	public String player;
+	
+	@Label("Client")
+	public String client;
+	
+	@Label("Resumed Room")
+	@Description("Room the player went back to after a restart, 0 if none")
+	public int room;
+}
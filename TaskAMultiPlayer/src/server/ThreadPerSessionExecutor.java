@@ -0,0 +1,29 @@
+package server;
+
+/**
+ * Runs each {@link ServerProcess} on a new platform thread. 
+ * This is how the server has always worked.
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class ThreadPerSessionExecutor implements ISessionExecutor {
+
+	@Override
+	public void execute(ServerProcess process) {
+		Thread thread = new Thread(process);
+		thread.start();
+	}
+	
+	@Override
+	public void executeWriter(Runnable writer) {
+		Thread thread = new Thread(writer, "outbound-writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void shutdown() {
+		// nothing to do, each thread ends with its process
+	}
+}
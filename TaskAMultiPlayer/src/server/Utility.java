@@ -2,6 +2,7 @@ package server;
 
 import java.io.IOException;
 import java.util.logging.FileHandler;
+import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
@@ -49,4 +50,33 @@ public class Utility {
 		return logger;
 	}
 	
+	/**
+	 * Create a logger object that logs to the handler instead of a file
+	 * 
+	 * @param handler
+	 * @param className
+	 * @return
+	 */
+	public static <T> Logger createLogger(Handler handler, Class<T> className) {
+		Logger logger = Logger.getLogger(className.getName());
+		logger.setUseParentHandlers(false);
+		logger.addHandler(handler);
+		return logger;
+	}
+	
+	/**
+	 * Create a handler that writes the log file in the background (see {@link AsyncLogHandler}). 
+	 * The handler is closed when the program exits, so the events still in its buffer are written
+	 * 
+	 * @param fileName
+	 * @param policy what to do with events when the buffer is full
+	 * @return
+	 * @throws IOException
+	 */
+	public static AsyncLogHandler createAsyncLogHandler(String fileName, AsyncLogHandler.OverflowPolicy policy) throws IOException {
+		AsyncLogHandler handler = new AsyncLogHandler(fileName, policy);
+		Runtime.getRuntime().addShutdownHook(new Thread(handler::close));
+		return handler;
+	}
+	
 }
@@ -0,0 +1,70 @@
+package server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs each {@link ServerProcess} on its own virtual thread.
+ * 
+ * <p>A virtual thread blocked in readLine() or waiting on its {@link GameRoom}'s lock 
+ * does not hold on to an OS thread, so the blocking code in ServerProcess can stay 
+ * as it is while the server keeps tens of thousands of idle lobby connections.
+ * 
+ * <p>Virtual threads need Java 21 or later. The project still compiles for Java 8, 
+ * so the executor is looked up at runtime. Use {@link #isSupported()} before 
+ * creating an instance.
+ * 
+ * @author Oluwole Aibinu
+ *S3479719
+ */
+public class VirtualThreadSessionExecutor implements ISessionExecutor {
+	
+	private ExecutorService executor;
+	
+	/**
+	 * @throws UnsupportedOperationException if the running JVM has no virtual threads
+	 */
+	public VirtualThreadSessionExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			this.executor = (ExecutorService) factory.invoke(null);
+		} 
+		catch (NoSuchMethodException e) {
+			throw new UnsupportedOperationException("Virtual threads need Java 21 or later, running on Java " 
+					+ System.getProperty("java.version"));
+		}
+		catch (ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("Virtual threads could not be started. " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Checks if the running JVM supports virtual threads
+	 * @return
+	 */
+	public static boolean isSupported() {
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} 
+		catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void execute(ServerProcess process) {
+		executor.execute(process);
+	}
+	
+	@Override
+	public void executeWriter(Runnable writer) {
+		executor.execute(writer);
+	}
+
+	@Override
+	public void shutdown() {
+		executor.shutdown();
+	}
+}